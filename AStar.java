@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 public class AStar implements Algorithm {
@@ -5,15 +7,22 @@ public class AStar implements Algorithm {
   private final boolean clockwise;
   private final boolean withOpen;
   private final String tieBreaker; // "new-first" or "old-first"
+  private final boolean exactHeuristic; // use the board's DistanceField instead of Chebyshev
+  private final String openListType; // "heap", "buckets" or "indexed", see OpenList.create
 
   // Statistics
   private int generatedNodesCount = 0; // "Num" in output
   private int maxSpace = 0;
-
-  // Counter for tie-breaking based on creation time
-  private int creationCounter = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
 
   public AStar(String order, boolean withOpen, String tieBreaker) {
+    this(order, withOpen, tieBreaker, false, "heap");
+  }
+
+  public AStar(String order, boolean withOpen, String tieBreaker, boolean exactHeuristic,
+      String openListType) {
+    this.exactHeuristic = exactHeuristic;
+    this.openListType = openListType;
     this.clockwise = order.equalsIgnoreCase("clockwise");
     this.withOpen = withOpen;
     if (tieBreaker == null) {
@@ -23,45 +32,46 @@ public class AStar implements Algorithm {
     }
   }
 
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public String solve(Board board) {
-    State start = board.getStart();
-    State goal = board.getGoal();
-
-    // Priority Queue with custom comparator for F-value and Tie-Breaking
-    PriorityQueue<State> openList = new PriorityQueue<>(new Comparator<State>() {
-      @Override
-      public int compare(State s1, State s2) {
-        // 1. Compare f(n) values
-        int fCompare = Double.compare(s1.getF(), s2.getF());
-        if (fCompare != 0)
-          return fCompare;
-
-        // 2. Tie-Breaker: Compare Creation Time according to the input
-        if (tieBreaker.equals("new-first")) {
-          // Prefer newer nodes (Higher creation time comes first)
-          return Integer.compare(s2.getCreationTime(), s1.getCreationTime());
-        } else {
-          // Prefer older nodes (Lower creation time comes first)
-          return Integer.compare(s1.getCreationTime(), s2.getCreationTime());
-        }
-      }
-    });
+    metrics.searchStarted("A*");
+    Heuristic heuristic = exactHeuristic ? board.getDistanceField() : board.getHeuristicTable();
+
+    // Nodes live in a NodePool (primitive arrays), the hot loop below allocates no objects
+    NodePool pool = new NodePool(board.getCols());
+
+    // Open list ordered by F-value, then creation time according to the tie-breaker
+    OpenList openList = OpenList.create(openListType, pool, tieBreaker.equals("new-first"));
+
+    // "with open" under -Dsearch.trace: record open-list deltas to a file instead of printing
+    OpenTrace trace = withOpen
+        ? OpenTrace.fromSystemProperty(OpenTrace.ORDERED, tieBreaker.equals("new-first"))
+        : null;
+    if (trace != null)
+      openList = trace.tracing(openList, pool);
 
-    // Map to track best g-score found so far for a unique state (row, col, wheels)
-    // Key: State ID (String), Value: Double (g-cost)
-    Map<String, Double> openMap = new HashMap<>();
-    Set<String> closedList = new HashSet<>();
+    // Map to track the open node of a unique state (row, col, wheels), which holds its best g
+    // Key: packed State key (State.getKey()), Value: node id
+    LongIntMap openMap = new LongIntMap();
+    LongSet closedList = new LongSet();
 
     // Initialize Start
-    // start.setG(0);
-    start.setH(calculateHeuristic(start, goal, board));
-    start.setCreationTime(++creationCounter);
-    // Note: Start node is not counted in "Num" according to instructions,
-    // but we increment counter to keep time tracking consistent.
+    int startRow = board.getStartRow();
+    int startCol = board.getStartCol();
+    boolean startSupply = board.isSupplyStation(startRow, startCol);
+    int start = pool.add(startRow, startCol, startSupply, 0,
+        h(heuristic, startRow, startCol, startSupply), NodePool.NONE, null);
+    metrics.heuristicEvaluated();
+    // Note: Start node is not counted in "Num" according to instructions.
+    // Node ids are handed out in creation order, so they double as the tie-breaking time.
 
     openList.add(start);
-    openMap.put(start.getId(), start.getG());
+    openMap.put(pool.key(start), start);
     maxSpace = 1;
 
     Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
@@ -69,143 +79,149 @@ public class AStar implements Algorithm {
     while (!openList.isEmpty()) {
 
       // Print Open List if requested (For debugging)
-      if (withOpen)
-        printOpenSet(openList);
+      if (trace != null)
+        trace.step();
+      else if (withOpen)
+        printOpenSet(openList, pool);
 
-      State current = openList.poll();
-      openMap.remove(current.getId());
+      int current = openList.poll();
+      long currentKey = pool.key(current);
+      openMap.remove(currentKey);
 
       // If already in closed with a better or equal cost, skip (Lazy deletion)
-      if (closedList.contains(current.getId())) {
+      if (!closedList.add(currentKey)) {
         continue;
       }
-
-      closedList.add(current.getId());
-
-      // // Check Goal
-      // if (current.onGoal) {
-      // return returnResult(current);
-      // }
+      metrics.expanded();
+      metrics.frontier(openList.size(), closedList.size());
+
+      int row = pool.row(current);
+      int col = pool.col(current);
+      int g = pool.g(current);
+      boolean supply = pool.supply(current);
+      int parent = pool.parent(current);
+      int parentRow = parent == NodePool.NONE ? -1 : pool.row(parent);
+      int parentCol = parent == NodePool.NONE ? -1 : pool.col(parent);
+      boolean parentSupply = parent != NodePool.NONE && pool.supply(parent);
 
       // Expand Neighbors
       for (Direction dir : dirs) {
         int newR, newC;
 
         // 1. Handle Tunnel Entry
-        if (board.isTunnel(current.row, current.col) && dir == Direction.Ent) {
-          int[] exit = board.getTunnelExit(current.row, current.col);
-          newR = exit[0];
-          newC = exit[1];
-        } else if (dir == Direction.Ent) {
-          continue; // Cannot enter if not on tunnel
+        if (dir == Direction.Ent) {
+          int exit = board.isTunnel(row, col) ? board.getTunnelExitIndex(row, col) : -1;
+          if (exit < 0)
+            continue; // Cannot enter if not on tunnel
+          newR = exit / board.getCols();
+          newC = exit % board.getCols();
         } else {
           // 2. Normal Move
-          newR = current.row + dir.dr;
-          newC = current.col + dir.dc;
+          newR = row + dir.dr;
+          newC = col + dir.dc;
         }
 
         // checks for wall, bounds, smooth floor without supply station and not going back to parent
-        if (board.isLegal(newR, newC, current.SupplyStation, current.parent)) {
-
-          double newG = current.getG() + board.getPositionValue(newR, newC, dir);
+        if (board.isLegal(newR, newC, supply, parentRow, parentCol, parentSupply)) {
 
-          // Create potential next state
-          State next = new State(newR, newC, newG, 0, current, dir.name(), board);
+          int newG = g + board.getPositionValue(newR, newC, dir);
+          boolean newSupply = supply || board.isSupplyStation(newR, newC);
 
           // Check Goal (all of the edges to the goal will be the same weight so no need to check
           // after)
-          if (next.onGoal) {
-            return returnResult(next);
+          if (board.isGoal(newR, newC)) {
+            metrics.generated();
+            closeTrace(trace);
+            return returnResult(pool, pool.add(newR, newC, newSupply, newG, 0, current, dir));
           }
 
-          // Calculate H and F
-          next.setH(calculateHeuristic(next, goal, board));
+          // Calculate H
+          int newH = h(heuristic, newR, newC, newSupply);
+          metrics.heuristicEvaluated();
 
-          // Update Creation Time and Global Counter
+          // Update Global Counter
           generatedNodesCount++;
-          next.setCreationTime(++creationCounter);
+          metrics.generated();
+
+          // Dead end under the exact heuristic: the goal can't be reached from here
+          if (newH == NodePool.UNREACHABLE)
+            continue;
 
           // 4. Algorithm Logic (Open/Closed checks)
-          if (closedList.contains(next.getId())) {
+          long nextKey = State.key(newR, newC, newSupply);
+          if (closedList.contains(nextKey)) {
             // If we found a cheaper path to a closed node, strictly we should re-open it.
             // But with a consistent heuristic, this rarely happens.
+            metrics.duplicatePruned();
             continue;
           }
 
           // Check if in Open List with better G
-          if (openMap.containsKey(next.getId())) {
-            double existingG = openMap.get(next.getId());
-            if (newG < existingG) {
+          int existing = openMap.get(nextKey, NodePool.NONE);
+          if (existing != NodePool.NONE) {
+            if (newG < pool.g(existing)) {
               // We found a better path to a node currently in Open.
-              // In Java PQ, we can't easily "update", so we add the new one
-              // and ignore the old one when popped (lazy approach).
-              openList.add(next);
-              openMap.put(next.getId(), newG);
+              // Open lists without decrease-key get the new one added and
+              // ignore the old one when popped (lazy approach).
+              int next = pool.add(newR, newC, newSupply, newG, newH, current, dir);
+              if (!openList.update(existing, next))
+                openList.add(next);
+              openMap.put(nextKey, next);
+              metrics.reopened();
+            } else {
+              metrics.duplicatePruned();
             }
           } else {
             // Not in Open or Closed -> Add it
+            int next = pool.add(newR, newC, newSupply, newG, newH, current, dir);
             openList.add(next);
-            openMap.put(next.getId(), newG);
+            openMap.put(nextKey, next);
             maxSpace = Math.max(maxSpace, openList.size());
           }
         }
       }
     }
 
+    closeTrace(trace);
+    metrics.searchFinished(false, 0);
     return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace + "\nCost: inf";
   }
 
-  /**
-   * Recommended Heuristic: Tunnel-Aware Chebyshev h(n) = min(Chebyshev(n, goal), Chebyshev(n,
-   * tunnel_in) + 2 + Chebyshev(tunnel_out, goal)...)
-   */
-  private double calculateHeuristic(State current, State goal, Board board) {
-    // 1. Direct distance
-    double minCost = chebyshevDistance(current.row, current.col, goal.row, goal.col);
-
-    // 2. Check all tunnels for shortcuts
-    // Assuming board.getAllTunnels() returns a List of int[]{r1, c1, r2, c2}
-    // where (r1,c1) is entrance and (r2,c2) is exit.
-    for (int[] tunnel : board.getAllTunnels()) {
-      int tInR = tunnel[0];
-      int tInC = tunnel[1];
-      int tOutR = tunnel[2];
-      int tOutC = tunnel[3];
-
-      // Distance to tunnel entrance + cost of tunnel (2) + distance from exit to goal
-      double tunnelPathCost = chebyshevDistance(current.row, current.col, tInR, tInC) + 2
-          + chebyshevDistance(tOutR, tOutC, goal.row, goal.col);
-
-      if (tunnelPathCost < minCost) {
-        minCost = tunnelPathCost;
-      }
-
-      // Note: Since tunnels are bidirectional (or numbered pairs),
-      // ensure your getAllTunnels provides both directions or check both here.
-    }
-    return minCost;
+  // Heuristic value as a pool int, UNREACHABLE for dead ends
+  private static int h(Heuristic heuristic, int r, int c, boolean supply) {
+    double h = heuristic.get(r, c, supply);
+    return h == Double.MAX_VALUE ? NodePool.UNREACHABLE : (int) h;
   }
 
-  private double chebyshevDistance(int r1, int c1, int r2, int c2) {
-    return Math.max(Math.abs(r1 - r2), Math.abs(c1 - c2));
+  private static void closeTrace(OpenTrace trace) {
+    if (trace == null)
+      return;
+    try {
+      trace.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException("Writing the open-list trace failed", e);
+    }
   }
 
   // Printing method for "with open"
-  private void printOpenSet(PriorityQueue<State> openSet) {
-    // Create a copy to iterate without destroying order
-    PriorityQueue<State> copy = new PriorityQueue<>(openSet.comparator());
-    copy.addAll(openSet);
-
+  private void printOpenSet(OpenList openSet, NodePool pool) {
     StringBuilder sb = new StringBuilder("Open list: [");
-    while (!copy.isEmpty()) {
-      sb.append(copy.poll().toString()); // Ensure State.toString() is concise
-      if (!copy.isEmpty())
+    int[] nodes = openSet.snapshot();
+    for (int i = 0; i < nodes.length; i++) {
+      if (i > 0)
         sb.append(", ");
+      sb.append(pool.toString(nodes[i]));
     }
     sb.append("]");
     System.out.println(sb.toString());
   }
 
+  private String returnResult(NodePool pool, int goal) {
+    metrics.searchFinished(true, pool.g(goal));
+    return pool.path(goal) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + pool.g(goal);
+  }
+
   @Override
   public String returnResult(State next) {
     return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
@@ -4,4 +4,7 @@ public interface Algorithm {
     String buildPath(State goal);
 
     String returnResult(State next);
+
+    // Where solve() reports its search events, SearchMetrics.NONE by default
+    void setMetrics(SearchMetrics metrics);
 }
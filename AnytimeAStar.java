@@ -0,0 +1,247 @@
+import java.util.*;
+
+/**
+ * Anytime Repairing A* (ARA*, "A* anytime"): AStar's expansion loop with the heuristic inflated by
+ * a weight w, so the first path comes quickly, then rerun with smaller weights down to 1. Each
+ * rerun reuses the previous one: states whose g improved after they were closed are kept aside
+ * and requeued with the open list under the new weight, instead of searching from scratch.
+ *
+ * <p>Every improved path is published to the {@link Listener} with its proven suboptimality bound,
+ * cost / min(g + h) over the states still queued (1 means optimal). {@link #stop()} (any thread)
+ * or a time budget ends the search early with the best path so far; the first path is always
+ * completed. Without either it ends at w = 1 with an optimal Cost. The heuristic is
+ * PortalHeuristic, consistent as both guarantees need. "Num" counts generated nodes over all
+ * reruns.
+ */
+public class AnytimeAStar implements Algorithm {
+
+  /** Receives each path that is cheaper, or proven closer to optimal, than the last one. */
+  public interface Listener {
+    void improved(String path, int cost, double bound);
+  }
+
+  public static final double START_WEIGHT = 3.0;
+  public static final double WEIGHT_STEP = 0.5;
+
+  private final boolean clockwise;
+  private final boolean newFirst;
+  private final long budgetNanos; // 0 = no time limit
+  private volatile boolean stopped = false;
+  private Listener listener = (path, cost, bound) -> {};
+
+  private int generatedNodesCount = 0;
+  private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  public AnytimeAStar(String order, String tieBreaker, long budgetMillis) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.newFirst = "new-first".equals(tieBreaker);
+    this.budgetNanos = budgetMillis * 1_000_000L;
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  public void setListener(Listener listener) {
+    this.listener = listener;
+  }
+
+  /** Ends the search at the next check; solve() returns the best path found so far. */
+  public void stop() {
+    stopped = true;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("A* anytime");
+    long deadline = budgetNanos > 0 ? System.nanoTime() + budgetNanos : Long.MAX_VALUE;
+    // ARA*'s bounds and its w = 1 optimality need a consistent h, also when tunnels chain
+    Heuristic heuristic = new PortalHeuristic(board, board.getGoalRow(), board.getGoalCol());
+    NodePool pool = new NodePool(board.getCols()); // h holds the weighted heuristic
+    LongIntMap best = new LongIntMap(); // state -> node with its lowest g, open or closed
+    LongSet closed = new LongSet();
+    int[] incons = new int[16]; // closed states whose g improved during this run
+    int inconsCount = 0;
+    int goal = NodePool.NONE;
+
+    double weight = START_WEIGHT;
+    OpenList openList = OpenList.create("heap", pool, newFirst);
+    int startRow = board.getStartRow();
+    int startCol = board.getStartCol();
+    boolean startSupply = board.isSupplyStation(startRow, startCol);
+    int start = pool.add(startRow, startCol, startSupply, 0,
+        weighted(heuristic, startRow, startCol, startSupply, weight), NodePool.NONE, null);
+    openList.add(start);
+    best.put(pool.key(start), start);
+    maxSpace = 1;
+
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+    int iteration = 0;
+    long expansions = 0;
+    int publishedCost = Integer.MAX_VALUE;
+    double publishedBound = Double.MAX_VALUE;
+
+    search:
+    while (true) {
+      metrics.iteration(++iteration, weight);
+
+      // ImprovePath: expand until nothing queued can lead to a cheaper goal under this weight
+      while (!openList.isEmpty()) {
+        int current = openList.poll();
+        long currentKey = pool.key(current);
+        if (best.get(currentKey, NodePool.NONE) != current)
+          continue; // superseded by a cheaper copy
+        if (goal != NodePool.NONE && pool.g(goal) <= pool.f(current)) {
+          openList.add(current); // still queued for the next run
+          break;
+        }
+        if (goal != NodePool.NONE && (++expansions & 1023) == 0
+            && (stopped || System.nanoTime() > deadline))
+          break search;
+        closed.add(currentKey);
+        metrics.expanded();
+        metrics.frontier(openList.size(), closed.size());
+
+        int row = pool.row(current);
+        int col = pool.col(current);
+        int g = pool.g(current);
+        boolean supply = pool.supply(current);
+        int parent = pool.parent(current);
+        int parentRow = parent == NodePool.NONE ? -1 : pool.row(parent);
+        int parentCol = parent == NodePool.NONE ? -1 : pool.col(parent);
+        boolean parentSupply = parent != NodePool.NONE && pool.supply(parent);
+
+        for (Direction dir : dirs) {
+          int newR, newC;
+          if (dir == Direction.Ent) {
+            int exit = board.isTunnel(row, col) ? board.getTunnelExitIndex(row, col) : -1;
+            if (exit < 0)
+              continue;
+            newR = exit / board.getCols();
+            newC = exit % board.getCols();
+          } else {
+            newR = row + dir.dr;
+            newC = col + dir.dc;
+          }
+          if (!board.isLegal(newR, newC, supply, parentRow, parentCol, parentSupply))
+            continue;
+          int newG = g + board.getPositionValue(newR, newC, dir);
+          boolean newSupply = supply || board.isSupplyStation(newR, newC);
+          generatedNodesCount++;
+          metrics.generated();
+
+          if (board.isGoal(newR, newC)) {
+            if (goal == NodePool.NONE || newG < pool.g(goal))
+              goal = pool.add(newR, newC, newSupply, newG, 0, current, dir);
+            continue;
+          }
+
+          long nextKey = State.key(newR, newC, newSupply);
+          int existing = best.get(nextKey, NodePool.NONE);
+          if (existing != NodePool.NONE && newG >= pool.g(existing)) {
+            metrics.duplicatePruned();
+            continue;
+          }
+          int next = pool.add(newR, newC, newSupply, newG,
+              weighted(heuristic, newR, newC, newSupply, weight), current, dir);
+          metrics.heuristicEvaluated();
+          best.put(nextKey, next);
+          if (closed.contains(nextKey)) {
+            // Not reopened in this run (that is what keeps ARA* fast); requeued for the next one
+            metrics.reopened();
+            if (inconsCount == incons.length)
+              incons = Arrays.copyOf(incons, inconsCount << 1);
+            incons[inconsCount++] = next;
+          } else {
+            openList.add(next);
+            maxSpace = Math.max(maxSpace, openList.size());
+          }
+        }
+      }
+
+      if (goal == NodePool.NONE)
+        break; // no path at all
+
+      // Queued states for the next run: open and incons, minus superseded copies
+      int[] queued = new int[openList.size() + inconsCount];
+      int queuedCount = 0;
+      while (!openList.isEmpty()) {
+        int node = openList.poll();
+        if (best.get(pool.key(node), NodePool.NONE) == node)
+          queued[queuedCount++] = node;
+      }
+      for (int i = 0; i < inconsCount; i++)
+        if (best.get(pool.key(incons[i]), NodePool.NONE) == incons[i])
+          queued[queuedCount++] = incons[i];
+
+      // Proven bound: nothing cheaper than min(g + h) over the queued states can exist
+      long lowerBound = pool.g(goal);
+      for (int i = 0; i < queuedCount; i++) {
+        int node = queued[i];
+        lowerBound = Math.min(lowerBound,
+            pool.g(node) + (long) heuristic.get(pool.row(node), pool.col(node), pool.supply(node)));
+      }
+      double bound = lowerBound <= 0 ? 1.0 : (double) pool.g(goal) / lowerBound;
+      if (pool.g(goal) < publishedCost || bound < publishedBound) {
+        publishedCost = pool.g(goal);
+        publishedBound = bound;
+        listener.improved(pool.path(goal), publishedCost, bound);
+      }
+
+      if ((weight == 1.0 && inconsCount == 0) || bound <= 1.0 || stopped
+          || System.nanoTime() > deadline)
+        break;
+
+      // Next run: lower the weight, requeue with the new keys, start a fresh closed list
+      weight = Math.max(1.0, weight - WEIGHT_STEP);
+      openList = OpenList.create("heap", pool, newFirst);
+      closed.clear();
+      inconsCount = 0;
+      for (int i = 0; i < queuedCount; i++) {
+        int node = queued[i];
+        int row = pool.row(node);
+        int col = pool.col(node);
+        boolean supply = pool.supply(node);
+        int copy = pool.add(row, col, supply, pool.g(node),
+            weighted(heuristic, row, col, supply, weight), pool.parent(node), pool.move(node));
+        best.put(pool.key(copy), copy);
+        openList.add(copy);
+      }
+      maxSpace = Math.max(maxSpace, openList.size());
+    }
+
+    if (goal == NodePool.NONE) {
+      metrics.searchFinished(false, 0);
+      return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+          + "\nCost: inf";
+    }
+    metrics.searchFinished(true, pool.g(goal));
+    return pool.path(goal) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + pool.g(goal);
+  }
+
+  // w * h as a pool int, rounded down
+  private static int weighted(Heuristic heuristic, int r, int c, boolean supply, double weight) {
+    return (int) (weight * heuristic.get(r, c, supply));
+  }
+
+  @Override
+  public String returnResult(State next) {
+    return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
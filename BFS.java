@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 
 public class BFS implements Algorithm {
@@ -7,6 +9,7 @@ public class BFS implements Algorithm {
 
     private int visitedNodes = 0; // to count expanded nodes
     private int maxSpace = 0;
+    private SearchMetrics metrics = SearchMetrics.NONE;
 
     public BFS(String order, boolean withOpen) {
         this.clockwise = order.equalsIgnoreCase("clockwise");
@@ -14,67 +17,129 @@ public class BFS implements Algorithm {
     }
 
     @Override
-    public String solve(Board board) {
-        State start = board.getStart();
-        Queue<State> queue = new LinkedList<>();
-        Set<String> openList = new HashSet<>();
-        Set<String> closedList = new HashSet<>();
+    public void setMetrics(SearchMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-        queue.add(start);
-        openList.add(start.getId());
+    @Override
+    public String solve(Board board) {
+        metrics.searchStarted("BFS");
+        // Nodes are only added to the pool when queued, so the FIFO queue is simply the ids from
+        // head to pool.size()
+        NodePool pool = new NodePool(board.getCols());
+        int head = 0;
+        LongSet openList = new LongSet();
+        LongSet closedList = new LongSet();
+
+        int startRow = board.getStartRow();
+        int startCol = board.getStartCol();
+        int start = pool.add(startRow, startCol, board.isSupplyStation(startRow, startCol), 0, 0,
+                NodePool.NONE, null);
+        openList.add(pool.key(start));
+
+        // "with open" under -Dsearch.trace: record open-set deltas to a file instead of printing
+        OpenTrace trace = withOpen ? OpenTrace.fromSystemProperty(OpenTrace.KEYED, false) : null;
+        if (trace != null)
+            trace.pushKey(pool.key(start));
+        // Printed "with open": the ids in a HashSet updated as the open list is, so the listing
+        // comes out in the same order as when the open list itself was a HashSet<String>
+        Set<String> printed = withOpen && trace == null ? new HashSet<>() : null;
+        if (printed != null)
+            printed.add(State.keyToId(pool.key(start)));
 
         Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
-        while (!queue.isEmpty()) {
-            if (withOpen)
-                printOpenSet(openList);
-            State current = queue.poll();
-            openList.remove(current.getId());
-            closedList.add(current.getId());
+        while (head < pool.size()) {
+            if (trace != null)
+                trace.step();
+            else if (withOpen)
+                printOpenSet(printed);
+            int current = head++;
+            long currentKey = pool.key(current);
+            openList.remove(currentKey);
+            if (printed != null)
+                printed.remove(State.keyToId(currentKey));
+            if (trace != null)
+                trace.popKey(currentKey);
+            closedList.add(currentKey);
+            metrics.expanded();
+            metrics.frontier(pool.size() - head, closedList.size());
+
+            int row = pool.row(current);
+            int col = pool.col(current);
+            boolean supply = pool.supply(current);
+            int parent = pool.parent(current);
+            int parentRow = parent == NodePool.NONE ? -1 : pool.row(parent);
+            int parentCol = parent == NodePool.NONE ? -1 : pool.col(parent);
+            boolean parentSupply = parent != NodePool.NONE && pool.supply(parent);
 
             for (Direction dir : dirs) {
                 int newR;
                 int newC;
 
                 // handle tunnel separately
-                if (board.isTunnel(current.row, current.col) && dir == Direction.Ent) {
-                    int[] exit = board.getTunnelExit(current.row, current.col);
-                    newR = exit[0];
-                    newC = exit[1];
-                } else if (dir == Direction.Ent) { // unnessary check(not standing on a tunnel)
-                    continue; // can't enter tunnel if not on one
+                if (dir == Direction.Ent) {
+                    int exit = board.isTunnel(row, col) ? board.getTunnelExitIndex(row, col) : -1;
+                    if (exit < 0)
+                        continue; // can't enter tunnel if not on one
+                    newR = exit / board.getCols();
+                    newC = exit % board.getCols();
                 } else { // normal move
-                    newR = current.row + dir.dr;
-                    newC = current.col + dir.dc;
+                    newR = row + dir.dr;
+                    newC = col + dir.dc;
                 }
 
                 // checks for wall, bounds, smooth floor without supply station and not going back
-                // to
-                // parent
-                if (board.isLegal(newR, newC, current.SupplyStation, current.parent)) {
-                    State next = new State(newR, newC,
-                            current.getG() + board.getPositionValue(newR, newC, dir), 0, current,
-                            dir.name(), board);
-
-                    // `System.out.println(current.SupplyStation);
-
+                // to parent
+                if (board.isLegal(newR, newC, supply, parentRow, parentCol, parentSupply)) {
+                    int newG = pool.g(current) + board.getPositionValue(newR, newC, dir);
+                    boolean newSupply = supply || board.isSupplyStation(newR, newC);
 
                     visitedNodes++;
+                    metrics.generated();
 
                     // check goal
-                    if (next.onGoal)
-                        return returnResult(next);
+                    if (board.isGoal(newR, newC)) {
+                        closeTrace(trace);
+                        return returnResult(pool,
+                                pool.add(newR, newC, newSupply, newG, 0, current, dir));
+                    }
 
-                    if (!closedList.contains(next.getId()) && !openList.contains(next.getId())) {
-                        queue.add(next);
-                        openList.add(next.getId());
-                        maxSpace = Math.max(maxSpace, queue.size());
+                    long nextKey = State.key(newR, newC, newSupply);
+                    if (!closedList.contains(nextKey) && !openList.contains(nextKey)) {
+                        pool.add(newR, newC, newSupply, newG, 0, current, dir);
+                        openList.add(nextKey);
+                        if (trace != null)
+                            trace.pushKey(nextKey);
+                        else if (printed != null)
+                            printed.add(State.keyToId(nextKey));
+                        maxSpace = Math.max(maxSpace, pool.size() - head);
+                    } else {
+                        metrics.duplicatePruned();
                     }
                 }
             }
         }
+        closeTrace(trace);
+        metrics.searchFinished(false, 0);
         return "no path";
     }
 
+    private static void closeTrace(OpenTrace trace) {
+        if (trace == null)
+            return;
+        try {
+            trace.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Writing the open-list trace failed", e);
+        }
+    }
+
+    private String returnResult(NodePool pool, int goal) {
+        metrics.searchFinished(true, pool.g(goal));
+        return pool.path(goal) + "\n" + "Num: " + visitedNodes + "\n" + "Max space: " + maxSpace
+                + "\n" + "Cost: " + (double) pool.g(goal);
+    }
+
     @Override
     public String buildPath(State goal) {
         List<String> moves = new ArrayList<>();
@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Solves many queries in one JVM. Each non-empty, non-'#' line of the query file is
+ *
+ * <pre>
+ * map file ; start ; goal ; algorithm [options] ; order [tie-breaking]
+ * e.g.  maps/big.txt ; 3,4 ; 120,77 ; A* buckets ; clockwise new-first
+ * </pre>
+ *
+ * where start/goal are "row,col" or "-" for the map's own S/G. A map file holds the "NxM" size line
+ * and the grid (an Ex1 input.txt also works, its four header lines are skipped). Algorithm and
+ * order use the same syntax as Ex1's first two lines.
+ *
+ * <p>Each map is parsed once, and each (map, start, goal) Board is built once, so the Board index,
+ * HeuristicTable and DistanceField are shared by every query on it. Queries run concurrently on
+ * virtual threads when the JVM has them (Java 21+), otherwise on a fixed pool with one thread per
+ * core. Results are written in input order. With -Dsearch.cache (see ResultCache) repeated
+ * queries are answered from the cache.
+ */
+public class BatchSolver {
+
+  private final ConcurrentHashMap<String, Board> maps = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Board> boards = new ConcurrentHashMap<>();
+  private final ResultCache cache = ResultCache.fromSystemProperty(); // null unless enabled
+  private final int threads;
+
+  /** @param threads worker threads, or 0 for virtual threads (falls back to one per core) */
+  public BatchSolver(int threads) {
+    this.threads = threads;
+  }
+
+  /** java BatchSolver queries.txt [results.txt] [threads] */
+  public static void main(String[] args) throws IOException {
+    String output = args.length > 1 ? args[1] : "batch_output.txt";
+    int threads = args.length > 2 ? Integer.parseInt(args[2]) : 0;
+
+    List<String> queries = new ArrayList<>();
+    for (String line : Files.readAllLines(Path.of(args[0]))) {
+      if (!line.isBlank() && !line.trim().startsWith("#"))
+        queries.add(line);
+    }
+
+    long startTime = System.nanoTime();
+    BatchSolver solver = new BatchSolver(threads);
+    List<String> results = solver.solveAll(queries);
+    double timeSec = (System.nanoTime() - startTime) / 1e9;
+
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Path.of(output)))) {
+      for (int i = 0; i < results.size(); i++) {
+        out.println("# " + queries.get(i).trim());
+        out.println(results.get(i));
+        out.println();
+      }
+    }
+    System.out.println("Solved " + results.size() + " queries in " + timeSec + "s ("
+        + (results.size() / timeSec) + " queries/sec)");
+    if (solver.cache != null)
+      System.out.println(solver.cache);
+  }
+
+  /** Solves every query and returns the results in the same order. */
+  public List<String> solveAll(List<String> queries) {
+    ExecutorService executor = newExecutor();
+    try {
+      List<Future<String>> futures = new ArrayList<>(queries.size());
+      for (String query : queries)
+        futures.add(executor.submit(() -> solve(query)));
+
+      List<String> results = new ArrayList<>(queries.size());
+      for (Future<String> future : futures) {
+        try {
+          results.add(future.get());
+        } catch (ExecutionException e) {
+          results.add("error: " + e.getCause());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new IllegalStateException("Batch interrupted", e);
+        }
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /** Solves one query line. */
+  public String solve(String query) throws IOException {
+    String[] fields = query.split(";");
+    if (fields.length != 5)
+      throw new IllegalArgumentException("Expected 5 ';'-separated fields: " + query);
+    String mapFile = fields[0].trim();
+    String start = fields[1].trim();
+    String goal = fields[2].trim();
+
+    Board board = board(mapFile, start, goal);
+    SearchMetrics metrics = SearchMetrics.fromSystemProperty();
+    Algorithm solver = Ex1.createSolver(fields[3].trim(), fields[4].trim(), false, metrics);
+    String result;
+    try {
+      result = cache != null
+          ? cache.solve(board, fields[3], fields[4], () -> solver.solve(board))
+          : solver.solve(board);
+    } finally {
+      // Batch boards are never edited, and a listening solver would stay alive with the board
+      if (solver instanceof LPAStar)
+        ((LPAStar) solver).detach();
+    }
+    if (metrics != SearchMetrics.NONE)
+      System.err.println("# " + query.trim() + "\n" + metrics);
+    return result;
+  }
+
+  private Board board(String mapFile, String start, String goal) throws IOException {
+    Board map = maps.get(mapFile);
+    if (map == null) {
+      map = loadMap(mapFile);
+      Board raced = maps.putIfAbsent(mapFile, map);
+      if (raced != null)
+        map = raced;
+    }
+    if (start.equals("-") && goal.equals("-"))
+      return map;
+
+    Board base = map;
+    return boards.computeIfAbsent(mapFile + ";" + start + ";" + goal, key -> {
+      int[] s = start.equals("-") ? new int[] {base.getStartRow(), base.getStartCol()} : cell(start);
+      int[] g = goal.equals("-") ? new int[] {base.getGoalRow(), base.getGoalCol()} : cell(goal);
+      return base.withEndpoints(s[0], s[1], g[0], g[1]);
+    });
+  }
+
+  // Text map (bare or a full Ex1 input.txt) or a binary .smap, see MapLoader
+  private static Board loadMap(String mapFile) throws IOException {
+    return MapLoader.load(Path.of(mapFile)).board;
+  }
+
+  private static int[] cell(String rowCol) {
+    String[] parts = rowCol.split(",");
+    return new int[] {Integer.parseInt(parts[0].trim()), Integer.parseInt(parts[1].trim())};
+  }
+
+  private ExecutorService newExecutor() {
+    if (threads <= 0) {
+      try {
+        // Java 21+: one cheap virtual thread per query
+        return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+            .invoke(null);
+      } catch (ReflectiveOperationException e) {
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+      }
+    }
+    return Executors.newFixedThreadPool(threads);
+  }
+}
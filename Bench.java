@@ -0,0 +1,156 @@
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Benchmarks for every engine and the board hot paths. Run with
+ *
+ * <pre>
+ * java -cp . Bench [name filter] [seconds per iteration]
+ * </pre>
+ *
+ * Each benchmark gets warmup iterations (discarded) and then measured iterations, each a fixed
+ * time slice of back-to-back calls. It reports throughput (ops/s), average latency (us/op) and
+ * allocation (bytes/op and MB/s, from the JVM's per-thread allocation counter - the same data
+ * JMH's gc profiler reads). Results go to stdout as one row per benchmark.
+ *
+ * <p>Solve benchmarks run on generated boards over a grid of sizes and terrain mixes. DFID and
+ * IDA* only get the small sizes; their trees grow too fast for anything else.
+ */
+public class Bench {
+
+  private static final int WARMUP_ITERATIONS = 3;
+  private static final int MEASURE_ITERATIONS = 5;
+
+  // Terrain mixes for the generated boards
+  private static final Map<String, MapGenerator> TERRAINS = new LinkedHashMap<>();
+  static {
+    TERRAINS.put("open", new MapGenerator().set("wall=0.04").set("smooth=0").set("rough=0.05")
+        .set("supply=0.01").set("tunnels=2"));
+    TERRAINS.put("mixed", new MapGenerator().set("wall=0.15").set("smooth=0.1").set("rough=0.2")
+        .set("supply=0.05").set("tunnels=2"));
+    TERRAINS.put("rough", new MapGenerator().set("wall=0.23").set("smooth=0.05").set("rough=0.5")
+        .set("supply=0.02").set("tunnels=2"));
+  }
+
+  private static final int[] SEARCH_SIZES = {16, 64, 256};
+  private static final int[] DEEPENING_SIZES = {6, 8};
+
+  /** One benchmarked operation; the result is fed to a sink so the JIT can't drop the call. */
+  private interface Op {
+    Object run();
+  }
+
+  private static volatile Object sink;
+  private static long bits; // sink for primitive results, so they don't get boxed into sink
+
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  private final String filter;
+  private final long iterationNanos;
+
+  private Bench(String filter, double secondsPerIteration) {
+    this.filter = filter;
+    this.iterationNanos = (long) (secondsPerIteration * 1e9);
+  }
+
+  public static void main(String[] args) {
+    String filter = args.length > 0 ? args[0] : "";
+    double seconds = args.length > 1 ? Double.parseDouble(args[1]) : 1.0;
+    new Bench(filter, seconds).runAll();
+  }
+
+  private void runAll() {
+    System.out.printf("%-40s %14s %12s %14s %10s%n", "Benchmark", "ops/s", "us/op", "bytes/op",
+        "MB/s");
+
+    // --- solve() per engine ---
+    for (Map.Entry<String, MapGenerator> terrain : TERRAINS.entrySet()) {
+      for (int size : SEARCH_SIZES) {
+        Board board = terrain.getValue().generateBoard(size, size, 42);
+        String suffix = "[" + terrain.getKey() + "," + size + "x" + size + "]";
+        bench("BFS.solve" + suffix, () -> new BFS("clockwise", false).solve(board));
+        bench("AStar.solve" + suffix,
+            () -> new AStar("clockwise", false, "new-first").solve(board));
+      }
+      for (int size : DEEPENING_SIZES) {
+        Board board = terrain.getValue().generateBoard(size, size, 42);
+        String suffix = "[" + terrain.getKey() + "," + size + "x" + size + "]";
+        bench("DFID.solve" + suffix, () -> new DFID("clockwise", false).solve(board));
+        bench("IDAStar.solve" + suffix, () -> new IDAStar("clockwise", false).solve(board));
+      }
+    }
+
+    // --- hot paths on a mid-size mixed board ---
+    Board board = TERRAINS.get("mixed").generateBoard(256, 256, 42);
+    int rows = board.getRows();
+    int cols = board.getCols();
+    Direction[] dirs = Direction.CLOCKWISE;
+    int[] tunnel = board.getAllTunnels().isEmpty() ? null : board.getAllTunnels().get(0);
+    State parent = board.getStart();
+    HeuristicTable heuristic = board.getHeuristicTable();
+    int[] cursor = {0};
+
+    bench("Board.isLegal", () -> {
+      int i = cursor[0]++ & 0xFFFF;
+      bits += board.isLegal(i / cols % rows, i % cols, (i & 1) == 0, parent) ? 1 : 0;
+      return null;
+    });
+    bench("Board.getPositionValue", () -> {
+      int i = cursor[0]++ & 0xFFFF;
+      int r = i / cols % rows;
+      int c = i % cols;
+      bits += board.getCell(r, c) == '#' ? 0 : board.getPositionValue(r, c, dirs[i & 7]);
+      return null;
+    });
+    if (tunnel != null)
+      bench("Board.getTunnelExit", () -> board.getTunnelExit(tunnel[0], tunnel[1]));
+    bench("State.new", () -> {
+      int i = cursor[0]++ & 0xFFFF;
+      return new State(i / cols % rows, i % cols, 1, 0, parent, "R", board);
+    });
+    bench("HeuristicTable.get", () -> {
+      int i = cursor[0]++ & 0xFFFF;
+      bits += (long) heuristic.get(i / cols % rows, i % cols);
+      return null;
+    });
+    bench("HeuristicTable.build", () -> new HeuristicTable(board));
+  }
+
+  private void bench(String name, Op op) {
+    if (!name.contains(filter))
+      return;
+    long threadId = Thread.currentThread().getId();
+    for (int i = 0; i < WARMUP_ITERATIONS; i++)
+      iteration(op);
+
+    long ops = 0;
+    long nanos = 0;
+    long bytes = THREADS.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+      long[] result = iteration(op);
+      ops += result[0];
+      nanos += result[1];
+    }
+    bytes = THREADS.getThreadAllocatedBytes(threadId) - bytes;
+
+    double seconds = nanos / 1e9;
+    System.out.printf("%-40s %14.1f %12.3f %14.1f %10.1f%n", name, ops / seconds,
+        nanos / 1e3 / ops, (double) bytes / ops, bytes / 1e6 / seconds);
+  }
+
+  // Calls op back to back for one time slice; returns {calls, elapsed nanos}
+  private long[] iteration(Op op) {
+    long calls = 0;
+    long begin = System.nanoTime();
+    long now;
+    do {
+      // batches of 16 keep the clock reads out of the measurement for cheap ops
+      for (int i = 0; i < 16; i++)
+        sink = op.run();
+      calls += 16;
+      now = System.nanoTime();
+    } while (now - begin < iterationNanos);
+    return new long[] {calls, now - begin};
+  }
+}
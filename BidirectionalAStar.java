@@ -0,0 +1,183 @@
+import java.util.*;
+
+/**
+ * Front-to-end bidirectional A*. The forward search runs from the start toward the goal, the
+ * backward search from the goal over ReverseMoves toward the start, each with a PortalHeuristic
+ * to its target: walking and tunnel hops cost the same both ways, so it is a lower bound in either
+ * direction, also when tunnels chain. Each side expands from its own open list (the smaller one
+ * goes next) and reopens states when it finds a cheaper g.
+ *
+ * <p>mu is the cheapest start-goal path seen through any state reached from both sides. The
+ * search stops once the smaller of the two minimum f values reaches mu, since no unexpanded path
+ * can beat it.
+ */
+public class BidirectionalAStar implements Algorithm {
+
+  private final boolean clockwise;
+  private final boolean withOpen;
+  private final boolean newFirst;
+
+  // Statistics
+  private int generatedNodesCount = 0;
+  private int maxSpace = 0;
+  private int creationCounter = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  private State meetBackward;
+
+  public BidirectionalAStar(String order, boolean withOpen, String tieBreaker) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.withOpen = withOpen;
+    this.newFirst = "new-first".equals(tieBreaker);
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("A* bidirectional");
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+    ReverseMoves reverse = new ReverseMoves(board);
+    Heuristic toGoal = new PortalHeuristic(board, board.getGoalRow(), board.getGoalCol());
+    Heuristic toStart = new PortalHeuristic(board, board.getStartRow(), board.getStartCol());
+
+    Side forward = new Side();
+    Side backward = new Side();
+
+    State start = board.getStart();
+    start.setH(toGoal.get(start));
+    forward.offer(start);
+    for (boolean supply : new boolean[] {false, true}) {
+      State goal = new State(board.getGoalRow(), board.getGoalCol(), 0, 0, null, null, board);
+      goal.SupplyStation = supply;
+      goal.setH(toStart.get(goal));
+      backward.offer(goal);
+    }
+
+    double mu = Double.MAX_VALUE;
+    State meetForward = null;
+    meetBackward = null;
+
+    while (!forward.open.isEmpty() && !backward.open.isEmpty()) {
+      if (Math.min(forward.open.peek().getF(), backward.open.peek().getF()) >= mu)
+        break;
+      maxSpace = Math.max(maxSpace, forward.open.size() + backward.open.size());
+      if (withOpen)
+        printOpenSet(forward, backward);
+
+      boolean expandForward = forward.open.size() <= backward.open.size();
+      Side side = expandForward ? forward : backward;
+      Side other = expandForward ? backward : forward;
+      State current = side.open.poll();
+      if (current.getG() > side.g.get(current.getKey(), Double.MAX_VALUE))
+        continue; // stale, a cheaper copy is queued
+      metrics.expanded();
+      metrics.frontier(forward.open.size() + backward.open.size(),
+          forward.g.size() + backward.g.size());
+
+      List<State> children = new ArrayList<>();
+      if (expandForward) {
+        for (Direction dir : dirs) {
+          int newR, newC;
+          if (dir == Direction.Ent) {
+            int exit = board.isTunnel(current.row, current.col)
+                ? board.getTunnelExitIndex(current.row, current.col) : -1;
+            if (exit < 0)
+              continue; // not a tunnel, or its other end is gone
+            newR = exit / board.getCols();
+            newC = exit % board.getCols();
+          } else {
+            newR = current.row + dir.dr;
+            newC = current.col + dir.dc;
+          }
+          if (board.isLegal(newR, newC, current.SupplyStation, current.parent)) {
+            State next = new State(newR, newC,
+                current.getG() + board.getPositionValue(newR, newC, dir), 0, current, dir.name(),
+                board);
+            next.setH(toGoal.get(next));
+            metrics.heuristicEvaluated();
+            children.add(next);
+          }
+        }
+      } else {
+        reverse.forEach(current.row, current.col, current.SupplyStation, dirs,
+            (pr, pc, prevSupply, cost, dir) -> {
+              State prev = new State(pr, pc, current.getG() + cost, 0, current, dir.name(), board);
+              prev.SupplyStation = prevSupply;
+              prev.setH(toStart.get(prev));
+              metrics.heuristicEvaluated();
+              children.add(prev);
+            });
+      }
+
+      for (State child : children) {
+        generatedNodesCount++;
+        metrics.generated();
+        long key = child.getKey();
+        double knownG = side.g.get(key, Double.MAX_VALUE);
+        if (child.getG() >= knownG) {
+          metrics.duplicatePruned();
+          continue;
+        }
+        if (knownG != Double.MAX_VALUE)
+          metrics.reopened();
+
+        State met = other.best.get(key);
+        if (met != null && child.getG() + met.getG() < mu) {
+          mu = child.getG() + met.getG();
+          meetForward = expandForward ? child : met;
+          meetBackward = expandForward ? met : child;
+        }
+        // the goal is terminal for the forward side
+        if (!(expandForward && child.onGoal) && child.getF() < mu)
+          side.offer(child);
+      }
+    }
+
+    if (meetForward == null) {
+      metrics.searchFinished(false, 0);
+      return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace + "\nCost: inf";
+    }
+    return returnResult(meetForward);
+  }
+
+  /** One search direction: open list, best g per state and the state holding it. */
+  private final class Side {
+    final PriorityQueue<State> open = new PriorityQueue<>(OpenList.comparator(newFirst));
+    final LongDoubleMap g = new LongDoubleMap();
+    final LongObjectMap<State> best = new LongObjectMap<>();
+
+    void offer(State s) {
+      long key = s.getKey();
+      s.setCreationTime(++creationCounter);
+      g.put(key, s.getG());
+      best.put(key, s);
+      open.add(s);
+    }
+  }
+
+  private void printOpenSet(Side forward, Side backward) {
+    System.out.println("Open list: " + forward.open + " <-> " + backward.open);
+  }
+
+  @Override
+  public String returnResult(State next) {
+    metrics.searchFinished(true, next.getG() + meetBackward.getG());
+    return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + (int) (next.getG() + meetBackward.getG());
+  }
+
+  @Override
+  public String buildPath(State meet) {
+    List<String> moves = new ArrayList<>();
+    for (State curr = meet; curr.parent != null; curr = curr.parent)
+      moves.add(curr.move);
+    Collections.reverse(moves);
+    for (State curr = meetBackward; curr.parent != null; curr = curr.parent)
+      moves.add(curr.move);
+    return String.join("-", moves);
+  }
+}
@@ -0,0 +1,192 @@
+import java.util.*;
+
+/**
+ * BFS grown from both ends: forward from the start and backward from the goal over ReverseMoves,
+ * one whole layer at a time on the side with the smaller frontier. When a layer touches the other
+ * side, the layer is finished and the meeting with the fewest total moves wins, so the move count
+ * equals plain BFS's. Backward states point toward the goal: their parent is the next state on the
+ * way and their move is the forward move that leads there.
+ */
+public class BidirectionalBFS implements Algorithm {
+
+  private final boolean clockwise;
+  private final boolean withOpen;
+
+  private int visitedNodes = 0; // generated nodes, both directions
+  private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  // Best meeting found so far (fewest total moves)
+  private State meetForward;
+  private State meetBackward;
+  private int bestMoves;
+
+  public BidirectionalBFS(String order, boolean withOpen) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.withOpen = withOpen;
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("BFS bidirectional");
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+    ReverseMoves reverse = new ReverseMoves(board);
+
+    // Per side: frontier queue, every state seen (for meeting and path), and its move depth
+    ArrayDeque<State> forwardQueue = new ArrayDeque<>();
+    ArrayDeque<State> backwardQueue = new ArrayDeque<>();
+    LongObjectMap<State> forwardSeen = new LongObjectMap<>();
+    LongObjectMap<State> backwardSeen = new LongObjectMap<>();
+    LongDoubleMap forwardDepth = new LongDoubleMap();
+    LongDoubleMap backwardDepth = new LongDoubleMap();
+
+    State start = board.getStart();
+    forwardQueue.add(start);
+    forwardSeen.put(start.getKey(), start);
+    forwardDepth.put(start.getKey(), 0);
+    for (boolean supply : new boolean[] {false, true}) {
+      State goal = backwardState(board.getGoalRow(), board.getGoalCol(), supply, 0, null, null, board);
+      backwardQueue.add(goal);
+      backwardSeen.put(goal.getKey(), goal);
+      backwardDepth.put(goal.getKey(), 0);
+    }
+
+    int forwardLayer = 0;
+    int backwardLayer = 0;
+    bestMoves = Integer.MAX_VALUE;
+    meetForward = null;
+    meetBackward = null;
+
+    while (!forwardQueue.isEmpty() && !backwardQueue.isEmpty() && meetForward == null) {
+      maxSpace = Math.max(maxSpace, forwardQueue.size() + backwardQueue.size());
+      if (withOpen)
+        printOpenSet(forwardQueue, backwardQueue);
+
+      boolean forward = forwardQueue.size() <= backwardQueue.size();
+      int layerSize = forward ? forwardQueue.size() : backwardQueue.size();
+
+      for (int i = 0; i < layerSize; i++) {
+        if (forward) {
+          State current = forwardQueue.poll();
+          int depth = forwardLayer + 1;
+          metrics.expanded();
+          metrics.frontier(forwardQueue.size() + backwardQueue.size(),
+              forwardSeen.size() + backwardSeen.size());
+          for (Direction dir : dirs) {
+            int newR, newC;
+            if (dir == Direction.Ent) {
+              int exit = board.isTunnel(current.row, current.col)
+                  ? board.getTunnelExitIndex(current.row, current.col) : -1;
+              if (exit < 0)
+                continue; // not a tunnel, or its other end is gone
+              newR = exit / board.getCols();
+              newC = exit % board.getCols();
+            } else {
+              newR = current.row + dir.dr;
+              newC = current.col + dir.dc;
+            }
+            if (!board.isLegal(newR, newC, current.SupplyStation, current.parent))
+              continue;
+
+            State next = new State(newR, newC,
+                current.getG() + board.getPositionValue(newR, newC, dir), 0, current, dir.name(),
+                board);
+            visitedNodes++;
+            metrics.generated();
+            long key = next.getKey();
+
+            State other = backwardSeen.get(key);
+            if (other != null && depth + (int) backwardDepth.get(key, 0) < bestMoves) {
+              bestMoves = depth + (int) backwardDepth.get(key, 0);
+              meetForward = next;
+              meetBackward = other;
+            }
+            if (!next.onGoal && forwardSeen.get(key) == null) {
+              forwardSeen.put(key, next);
+              forwardDepth.put(key, depth);
+              forwardQueue.add(next);
+            } else if (!next.onGoal) {
+              metrics.duplicatePruned();
+            }
+          }
+        } else {
+          State current = backwardQueue.poll();
+          int depth = backwardLayer + 1;
+          metrics.expanded();
+          metrics.frontier(forwardQueue.size() + backwardQueue.size(),
+              forwardSeen.size() + backwardSeen.size());
+          reverse.forEach(current.row, current.col, current.SupplyStation, dirs,
+              (pr, pc, prevSupply, cost, dir) -> {
+                State prev = backwardState(pr, pc, prevSupply, current.getG() + cost, current,
+                    dir.name(), board);
+                visitedNodes++;
+                metrics.generated();
+                long key = prev.getKey();
+                if (backwardSeen.get(key) != null) {
+                  metrics.duplicatePruned();
+                  return;
+                }
+                backwardSeen.put(key, prev);
+                backwardDepth.put(key, depth);
+                backwardQueue.add(prev);
+                State other = forwardSeen.get(key);
+                if (other != null && depth + (int) forwardDepth.get(key, 0) < bestMoves) {
+                  bestMoves = depth + (int) forwardDepth.get(key, 0);
+                  meetForward = other;
+                  meetBackward = prev;
+                }
+              });
+        }
+      }
+      if (forward)
+        forwardLayer++;
+      else
+        backwardLayer++;
+    }
+
+    if (meetForward == null) {
+      metrics.searchFinished(false, 0);
+      return "no path";
+    }
+    return returnResult(meetForward);
+  }
+
+  // A backward state: g is the cost still to go, parent is the next state toward the goal
+  private static State backwardState(int r, int c, boolean supply, double toGo, State towardGoal,
+      String move, Board board) {
+    State s = new State(r, c, toGo, 0, towardGoal, move, board);
+    s.SupplyStation = supply;
+    return s;
+  }
+
+  @Override
+  public String buildPath(State meet) {
+    List<String> moves = new ArrayList<>();
+    for (State curr = meet; curr.parent != null; curr = curr.parent)
+      moves.add(curr.move);
+    Collections.reverse(moves);
+    for (State curr = meetBackward; curr.parent != null; curr = curr.parent)
+      moves.add(curr.move);
+    return String.join("-", moves);
+  }
+
+  @Override
+  public String returnResult(State next) {
+    metrics.searchFinished(true, next.getG() + meetBackward.getG());
+    return buildPath(next) + "\n" + "Num: " + visitedNodes + "\n" + "Max space: " + maxSpace
+        + "\n" + "Cost: " + (next.getG() + meetBackward.getG());
+  }
+
+  private void printOpenSet(Collection<State> forward, Collection<State> backward) {
+    StringJoiner f = new StringJoiner("  ");
+    forward.forEach(s -> f.add(s.getId()));
+    StringJoiner b = new StringJoiner("  ");
+    backward.forEach(s -> b.add(s.getId()));
+    System.out.println("Open list: [" + f + "] <-> [" + b + "]");
+  }
+}
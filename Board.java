@@ -1,61 +1,347 @@
-import java.util.*; // Required for List, ArrayList, Map, HashMap
+import java.util.*; // Required for List, ArrayList, Arrays, Collections
 
 public class Board {
+    // Largest map: every cell index r * cols + c, and the per-cell tables, must fit an int
+    public static final long MAX_CELLS = Integer.MAX_VALUE;
+
     private final int rows;
     private final int cols;
-    private final char[][] grid;
+    private final CellGrid grid; // one byte per cell, heap or memory-mapped (see MapLoader)
+    private final Board base; // board as loaded: withEndpoints views share its hierarchy
+
+    // Index built once in the constructor: O(1) goal test, tunnel jump by binary search
+    private int startRow = -1, startCol = -1;
+    private int goalRow = -1, goalCol = -1;
+    // Tunnel cells in ascending index order (r * cols + c) and their exit index, -1 if unpaired.
+    // Sized by the number of tunnel cells rather than the map, so huge maps stay cheap to index.
+    // Rebuilt by setCell when a tunnel end changes.
+    private long[] tunnelCells;
+    private int[] tunnelExits;
+    private List<int[]> tunnels; // {r1, c1, r2, c2} per tunnel pair, in scan order
+    private volatile List<int[]> supplyStations; // {r, c} per '*', scanned on first request
+    private volatile HeuristicTable heuristicTable; // built on first use, see getHeuristicTable()
+    private volatile DistanceField distanceField; // built on first use, see getDistanceField()
+    private volatile JumpTable jumpTable; // built on first use, see getJumpTable()
+    private volatile HierarchicalGraph hierarchy; // built on first use, see getHierarchy()
+    private volatile String fingerprint; // content hash, see getFingerprint()
+    private final List<CellListener> listeners = new java.util.concurrent.CopyOnWriteArrayList<>();
 
     public Board(int rows, int cols, char[][] grid) {
-        this.rows = rows;
-        this.cols = cols;
+        this(CellGrid.of(rows, cols, grid));
+    }
+
+    public Board(CellGrid grid) {
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
+        checkSize(rows, cols);
         this.grid = grid;
+        this.base = this;
+
+        long[] cells = new long[16];
+        int[] exits = new int[16];
+        int count = 0;
+        List<int[]> tunnelList = new ArrayList<>();
+        int[] firstEnd = new int[10]; // slot in cells[] of the first end seen per tunnel digit
+        Arrays.fill(firstEnd, -1);
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                char cell = grid.get(r, c);
+                if (cell == 'S' && startRow < 0) {
+                    startRow = r;
+                    startCol = c;
+                } else if (cell == 'G' && goalRow < 0) {
+                    goalRow = r;
+                    goalCol = c;
+                } else if (cell >= '0' && cell <= '9') {
+                    if (count == cells.length) {
+                        cells = Arrays.copyOf(cells, count << 1);
+                        exits = Arrays.copyOf(exits, count << 1);
+                    }
+                    long idx = (long) r * cols + c;
+                    cells[count] = idx;
+                    exits[count] = -1;
+                    int id = cell - '0';
+                    int first = firstEnd[id];
+                    if (first < 0) {
+                        firstEnd[id] = count;
+                    } else {
+                        // Exit is the first other cell with the same digit in scan order
+                        long firstIdx = cells[first];
+                        tunnelList.add(new int[] {(int) (firstIdx / cols), (int) (firstIdx % cols), r, c});
+                        exits[count] = (int) firstIdx;
+                        if (exits[first] < 0)
+                            exits[first] = (int) idx;
+                    }
+                    count++;
+                }
+            }
+        }
+        this.tunnelCells = Arrays.copyOf(cells, count);
+        this.tunnelExits = Arrays.copyOf(exits, count);
+        this.tunnels = Collections.unmodifiableList(tunnelList);
+    }
+
+    /**
+     * Board over a grid whose index was stored alongside it (binary map files): start, goal and
+     * the tunnel pairs {r1, c1, r2, c2} are taken as given, so the cells are never scanned.
+     */
+    public Board(CellGrid grid, int startRow, int startCol, int goalRow, int goalCol,
+            List<int[]> tunnelPairs) {
+        this.rows = grid.getRows();
+        this.cols = grid.getCols();
+        checkSize(rows, cols);
+        this.grid = grid;
+        this.base = this;
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.goalRow = goalRow;
+        this.goalCol = goalCol;
+
+        // Same pairing rule as the scan: the later end exits to the first, the first end to its
+        // earliest partner
+        TreeMap<Long, Integer> partner = new TreeMap<>();
+        for (int[] t : tunnelPairs) {
+            long first = (long) t[0] * cols + t[1];
+            long second = (long) t[2] * cols + t[3];
+            partner.put(second, (int) first);
+            partner.putIfAbsent(first, (int) second);
+        }
+        this.tunnelCells = new long[partner.size()];
+        this.tunnelExits = new int[partner.size()];
+        int i = 0;
+        for (Map.Entry<Long, Integer> e : partner.entrySet()) {
+            tunnelCells[i] = e.getKey();
+            tunnelExits[i++] = e.getValue();
+        }
+        this.tunnels = Collections.unmodifiableList(new ArrayList<>(tunnelPairs));
+    }
+
+    private static void checkSize(int rows, int cols) {
+        if ((long) rows * cols > MAX_CELLS)
+            throw new IllegalArgumentException("Board too large: " + rows + "x" + cols
+                    + " cells, at most " + MAX_CELLS);
     }
 
     public boolean isLegal(int r, int c, boolean hasSupplyStation, State parent) {
+        if (parent == null)
+            return isLegal(r, c, hasSupplyStation, -1, -1, false);
+        return isLegal(r, c, hasSupplyStation, parent.row, parent.col, parent.SupplyStation);
+    }
+
+    // Same check with the parent given by position (parentRow -1 for none), for NodePool engines
+    public boolean isLegal(int r, int c, boolean hasSupplyStation, int parentRow, int parentCol,
+            boolean parentSupply) {
         // inside board
         if (r < 0 || r >= rows || c < 0 || c >= cols)
             return false;
 
         // smooth floor check
-        if (grid[r][c] == '~' && !hasSupplyStation)
+        char cell = grid.get(r, c);
+        if (cell == '~' && !hasSupplyStation)
             return false;
 
         // not going back to parent
-        if (parent != null && parent.row == r && parent.col == c
-                && parent.SupplyStation == hasSupplyStation)
+        if (parentRow == r && parentCol == c && parentSupply == hasSupplyStation)
             return false;
 
         // not a wall
-        return grid[r][c] != '#'; // or whatever blocks movement
+        return cell != '#'; // or whatever blocks movement
+
+    }
+
+    /**
+     * Changes one cell in place (a wall appears, a tunnel closes, ...) and tells every listener.
+     * Derived tables (heuristic, distance field, jump table, hierarchy) are dropped and rebuilt on
+     * next use, the tunnel index is rebuilt if a tunnel end changed. Start and goal are moved with
+     * withEndpoints, not here. Only for heap boards that are not withEndpoints views, and not while
+     * a search is running on the board; views made earlier keep their own tables. Closing or
+     * opening one end of a pair leaves a tunnel cell without an exit: getTunnelExitIndex returns -1
+     * for it and engines treat it as having no Ent move.
+     */
+    public void setCell(int r, int c, char value) {
+        if (r < 0 || r >= rows || c < 0 || c >= cols)
+            throw new IllegalArgumentException("Cell outside the board: " + r + "," + c);
+        char old = grid.get(r, c);
+        if (old == value)
+            return;
+        if (old == 'S' || old == 'G' || value == 'S' || value == 'G')
+            throw new IllegalArgumentException("Move the start or goal with withEndpoints");
+        grid.set(r, c, value);
+
+        boolean tunnelChanged = isDigit(old) || isDigit(value);
+        if (tunnelChanged) {
+            long cell = (long) r * cols + c;
+            int slot = Arrays.binarySearch(tunnelCells, cell);
+            long[] cells;
+            if (slot >= 0 && !isDigit(value)) { // closed
+                cells = new long[tunnelCells.length - 1];
+                System.arraycopy(tunnelCells, 0, cells, 0, slot);
+                System.arraycopy(tunnelCells, slot + 1, cells, slot, cells.length - slot);
+            } else if (slot < 0) { // opened
+                int at = -slot - 1;
+                cells = new long[tunnelCells.length + 1];
+                System.arraycopy(tunnelCells, 0, cells, 0, at);
+                cells[at] = cell;
+                System.arraycopy(tunnelCells, at, cells, at + 1, tunnelCells.length - at);
+            } else { // digit changed
+                cells = tunnelCells;
+            }
+            indexTunnels(cells);
+            heuristicTable = null;
+        }
+        if (old == '*' || value == '*')
+            supplyStations = null;
+        distanceField = null;
+        jumpTable = null;
+        hierarchy = null;
+        fingerprint = null;
+
+        for (CellListener listener : listeners)
+            listener.cellChanged(r, c, old, value);
+    }
+
+    public void addListener(CellListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(CellListener listener) {
+        listeners.remove(listener);
+    }
+
+    private static boolean isDigit(char cell) {
+        return cell >= '0' && cell <= '9';
+    }
+
+    // Same pairing rule as the constructor's scan, over the tunnel cells only
+    private void indexTunnels(long[] cells) {
+        int[] exits = new int[cells.length];
+        Arrays.fill(exits, -1);
+        int[] firstEnd = new int[10];
+        Arrays.fill(firstEnd, -1);
+        List<int[]> tunnelList = new ArrayList<>();
+        for (int i = 0; i < cells.length; i++) {
+            int r = (int) (cells[i] / cols);
+            int c = (int) (cells[i] % cols);
+            int id = grid.get(r, c) - '0';
+            int first = firstEnd[id];
+            if (first < 0) {
+                firstEnd[id] = i;
+            } else {
+                tunnelList.add(new int[] {(int) (cells[first] / cols), (int) (cells[first] % cols), r, c});
+                exits[i] = (int) cells[first];
+                if (exits[first] < 0)
+                    exits[first] = (int) cells[i];
+            }
+        }
+        this.tunnelCells = cells;
+        this.tunnelExits = exits;
+        this.tunnels = Collections.unmodifiableList(tunnelList);
+    }
+
+    // View of the same map with the start and goal moved: shares the tunnel index and the cell
+    // storage, the old and new endpoint cells are overlaid on top of it
+    private Board(Board base, int startRow, int startCol, int goalRow, int goalCol) {
+        this.rows = base.rows;
+        this.cols = base.cols;
+        this.tunnelCells = base.tunnelCells;
+        this.tunnelExits = base.tunnelExits;
+        this.tunnels = base.tunnels;
+        this.supplyStations = base.supplyStations;
+        this.base = base.base;
+
+        // New endpoints first: the first patch on a cell wins, so they override a cleared old one
+        int[] patchRows = new int[4];
+        int[] patchCols = new int[4];
+        char[] values = new char[4];
+        int n = 0;
+        patchRows[n] = startRow;
+        patchCols[n] = startCol;
+        values[n++] = 'S';
+        patchRows[n] = goalRow;
+        patchCols[n] = goalCol;
+        values[n++] = 'G';
+        if (base.startRow >= 0) {
+            patchRows[n] = base.startRow;
+            patchCols[n] = base.startCol;
+            values[n++] = '-';
+        }
+        if (base.goalRow >= 0) {
+            patchRows[n] = base.goalRow;
+            patchCols[n] = base.goalCol;
+            values[n++] = '-';
+        }
+        this.grid = base.grid.withPatches(Arrays.copyOf(patchRows, n), Arrays.copyOf(patchCols, n),
+                Arrays.copyOf(values, n));
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.goalRow = goalRow;
+        this.goalCol = goalCol;
+    }
+
+    /**
+     * Same map with a different start and goal (the original 'S'/'G' cells become plain floor).
+     * Endpoints must be on floor, '^', '~', 'S' or 'G' cells - not walls, tunnels or stations.
+     */
+    public Board withEndpoints(int startRow, int startCol, int goalRow, int goalCol) {
+        checkEndpoint(startRow, startCol);
+        checkEndpoint(goalRow, goalCol);
+        if (startRow == goalRow && startCol == goalCol)
+            throw new IllegalArgumentException("Start and goal are the same cell");
+        return new Board(this, startRow, startCol, goalRow, goalCol);
+    }
 
+    private void checkEndpoint(int r, int c) {
+        if (r < 0 || r >= rows || c < 0 || c >= cols)
+            throw new IllegalArgumentException("Endpoint outside the board: " + r + "," + c);
+        char cell = grid.get(r, c);
+        if (cell == '#' || cell == '*' || isTunnel(r, c))
+            throw new IllegalArgumentException("Endpoint on '" + cell + "' at " + r + "," + c);
     }
 
     public State getStart() {
-        for (int r = 0; r < rows; r++)
-            for (int c = 0; c < cols; c++)
-                if (grid[r][c] == 'S')
-                    return new State(r, c, 0, 0, null, null, this);
-        return null;
+        if (startRow < 0)
+            return null;
+        return new State(startRow, startCol, 0, 0, null, null, this);
     }
 
     public State getGoal() {
-        for (int r = 0; r < rows; r++)
-            for (int c = 0; c < cols; c++)
-                if (grid[r][c] == 'G')
-                    return new State(r, c, 0, 0, null, null, null);
-        return null;
+        if (goalRow < 0)
+            return null;
+        return new State(goalRow, goalCol, 0, 0, null, null, null);
+    }
+
+    public int getStartRow() {
+        return startRow;
+    }
+
+    public int getStartCol() {
+        return startCol;
+    }
+
+    public int getGoalRow() {
+        return goalRow;
+    }
+
+    public int getGoalCol() {
+        return goalCol;
+    }
+
+    public boolean isGoal(int r, int c) {
+        return r == goalRow && c == goalCol;
     }
 
     public int[] getTunnelExit(int row, int col) {
-        for (int r = 0; r < this.getRows(); r++) {
-            for (int c = 0; c < this.getCols(); c++) {
-                if (this.getCell(row, col) == this.getCell(r, c) && (r != row || c != col)) {
-                    // found matching tunnel exit
-                    return new int[] {r, c};
-                }
-            }
-        }
-        return null; // no exit found
+        int exit = getTunnelExitIndex(row, col);
+        if (exit < 0)
+            return null; // no exit found
+        return new int[] {exit / cols, exit % cols};
+    }
+
+    // Allocation-free variant of getTunnelExit: exit cell index (r * cols + c), or -1
+    public int getTunnelExitIndex(int row, int col) {
+        int slot = Arrays.binarySearch(tunnelCells, (long) row * cols + col);
+        return slot < 0 ? -1 : tunnelExits[slot];
     }
 
     public int getPositionValue(int r, int c, Direction dir) { // does not include entering tunnel
@@ -97,7 +383,7 @@ public class Board {
     }
 
     public char getCell(int r, int c) {
-        return grid[r][c];
+        return grid.get(r, c);
     }
 
     public int getRows() {
@@ -108,40 +394,117 @@ public class Board {
         return cols;
     }
 
+    // Copy of the cells as rows of chars (allocates the whole map, avoid on large boards)
     public char[][] getGrid() {
+        char[][] copy = new char[rows][cols];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++)
+                copy[r][c] = grid.get(r, c);
+        return copy;
+    }
+
+    public CellGrid getCellGrid() {
         return grid;
     }
 
+    // Tunnel pairs {row1, col1, row2, col2}, precomputed in the constructor (read-only)
     public List<int[]> getAllTunnels() {
-        List<int[]> tunnels = new ArrayList<>();
-        Map<Character, int[]> tempMap = new HashMap<>();
+        return tunnels;
+    }
 
-        for (int r = 0; r < rows; r++) {
-            for (int c = 0; c < cols; c++) {
-                if (isTunnel(r, c)) {
-                    char tunnelId = grid[r][c];
-
-                    if (tempMap.containsKey(tunnelId)) {
-                        // We found the second end of the tunnel
-                        int[] exit1 = tempMap.get(tunnelId);
-                        // Add the pair: {row1, col1, row2, col2}
-                        tunnels.add(new int[] {exit1[0], exit1[1], r, c});
-                    } else {
-                        // Found the first end, store it and wait for the second
-                        tempMap.put(tunnelId, new int[] {r, c});
-                    }
+    // Per-cell tunnel-aware heuristic, built on first request and shared by later solves
+    public HeuristicTable getHeuristicTable() {
+        HeuristicTable table = heuristicTable;
+        if (table == null) {
+            synchronized (this) {
+                table = heuristicTable;
+                if (table == null)
+                    heuristicTable = table = new HeuristicTable(this);
+            }
+        }
+        return table;
+    }
+
+    // Exact cost-to-goal for every state (one backward Dijkstra), built on first request
+    public DistanceField getDistanceField() {
+        DistanceField field = distanceField;
+        if (field == null) {
+            synchronized (this) {
+                field = distanceField;
+                if (field == null)
+                    distanceField = field = new DistanceField(this);
+            }
+        }
+        return field;
+    }
+
+    // JPS+ jump distances per cell, layer and direction (JumpPointSearch), built on first request
+    public JumpTable getJumpTable() {
+        JumpTable table = jumpTable;
+        if (table == null) {
+            synchronized (this) {
+                table = jumpTable;
+                if (table == null)
+                    jumpTable = table = new JumpTable(this);
+            }
+        }
+        return table;
+    }
+
+    // HPA* clusters and entrances (HierarchicalAStar), built on first request from the board as
+    // loaded and shared by every withEndpoints view of it, so repeated queries reuse it
+    public HierarchicalGraph getHierarchy() {
+        if (base != this)
+            return base.getHierarchy();
+        HierarchicalGraph graph = hierarchy;
+        if (graph == null) {
+            synchronized (this) {
+                graph = hierarchy;
+                if (graph == null)
+                    hierarchy = graph = new HierarchicalGraph(this, HierarchicalGraph.CLUSTER_SIZE);
+            }
+        }
+        return graph;
+    }
+
+    // Content hash of the board as loaded (CellGrid.fingerprint), computed on first request.
+    // withEndpoints views share their base's: their start and goal tell them apart (ResultCache)
+    public String getFingerprint() {
+        if (base != this)
+            return base.getFingerprint();
+        String hash = fingerprint;
+        if (hash == null)
+            fingerprint = hash = grid.fingerprint();
+        return hash;
+    }
+
+    // Supply station positions {r, c}, scanned on first request (read-only)
+    public List<int[]> getSupplyStations() {
+        List<int[]> stations = supplyStations;
+        if (stations == null) {
+            synchronized (this) {
+                stations = supplyStations;
+                if (stations == null) {
+                    List<int[]> found = new ArrayList<>();
+                    for (int r = 0; r < rows; r++)
+                        for (int c = 0; c < cols; c++)
+                            if (grid.get(r, c) == '*')
+                                found.add(new int[] {r, c});
+                    supplyStations = stations = Collections.unmodifiableList(found);
                 }
             }
         }
-        return tunnels;
+        return stations;
     }
 
     public void displayBoard() {
+        StringBuilder line = new StringBuilder(cols * 2);
         for (int i = 0; i < rows; i++) {
+            line.setLength(0);
             for (int j = 0; j < cols; j++) {
-                System.out.print(grid[i][j] + " ");
+                line.append(grid.get(i, j)).append(' ');
             }
-            System.out.println();
+            System.out.println(line);
         }
     }
 }
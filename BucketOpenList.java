@@ -0,0 +1,116 @@
+import java.util.*;
+
+/**
+ * Dial-style bucket queue: one deque of node ids per integer f value. Edge costs and heuristic
+ * values are small integers, so push is O(1) and pop is O(1) amortized (the cursor only scans
+ * forward, except when an inconsistent heuristic pushes below it). Within a bucket nodes are in
+ * creation order, so "old-first" pops the front and "new-first" the back - the same order as the
+ * heap.
+ */
+public class BucketOpenList implements OpenList {
+
+  private final NodePool pool;
+  private final boolean newFirst;
+  private IntDeque[] buckets = new IntDeque[64];
+  private int cursor = 0; // no non-empty bucket below this f
+  private int size = 0;
+
+  public BucketOpenList(NodePool pool, boolean newFirst) {
+    this.pool = pool;
+    this.newFirst = newFirst;
+  }
+
+  @Override
+  public void add(int node) {
+    int f = (int) pool.f(node);
+    if (f >= buckets.length)
+      buckets = Arrays.copyOf(buckets, Math.max(f + 1, buckets.length << 1));
+    IntDeque bucket = buckets[f];
+    if (bucket == null)
+      buckets[f] = bucket = new IntDeque();
+    bucket.addLast(node);
+    if (f < cursor)
+      cursor = f;
+    size++;
+  }
+
+  @Override
+  public int poll() {
+    if (size == 0)
+      return NodePool.NONE;
+    while (buckets[cursor] == null || buckets[cursor].isEmpty())
+      cursor++;
+    size--;
+    return newFirst ? buckets[cursor].pollLast() : buckets[cursor].pollFirst();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean update(int oldNode, int node) {
+    return false;
+  }
+
+  @Override
+  public int[] snapshot() {
+    int[] nodes = new int[size];
+    int n = 0;
+    for (int f = cursor; f < buckets.length && n < size; f++) {
+      IntDeque bucket = buckets[f];
+      if (bucket == null)
+        continue;
+      for (int i = 0; i < bucket.size(); i++)
+        nodes[n++] = bucket.get(newFirst ? bucket.size() - 1 - i : i);
+    }
+    return nodes;
+  }
+
+  /** Growable ring buffer of ints. */
+  private static final class IntDeque {
+    private int[] items = new int[8];
+    private int head = 0;
+    private int size = 0;
+
+    void addLast(int value) {
+      if (size == items.length) {
+        int[] grown = new int[size << 1];
+        for (int i = 0; i < size; i++)
+          grown[i] = get(i);
+        items = grown;
+        head = 0;
+      }
+      items[(head + size++) & (items.length - 1)] = value;
+    }
+
+    int pollFirst() {
+      int value = items[head];
+      head = (head + 1) & (items.length - 1);
+      size--;
+      return value;
+    }
+
+    int pollLast() {
+      return items[(head + --size) & (items.length - 1)];
+    }
+
+    int get(int i) {
+      return items[(head + i) & (items.length - 1)];
+    }
+
+    int size() {
+      return size;
+    }
+
+    boolean isEmpty() {
+      return size == 0;
+    }
+  }
+}
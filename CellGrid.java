@@ -0,0 +1,167 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Flat byte-per-cell storage behind Board (cell r, c at index r * cols + c). Either a heap buffer
+ * filled by a parser or a read-only memory-mapped region of a binary map file, split into 1 GB
+ * chunks. Board caps a map at Board.MAX_CELLS, so every cell index fits an int.
+ */
+public class CellGrid {
+
+  private static final int CHUNK_BITS = 30;
+  private static final long CHUNK_MASK = (1L << CHUNK_BITS) - 1;
+
+  private final int rows;
+  private final int cols;
+  private final ByteBuffer[] chunks;
+  private final ByteBuffer single; // chunks[0] when everything fits in one buffer (fast path)
+  private final long[] patchIndex; // cells overridden by withPatches(), null for a plain grid
+  private final byte[] patchValue;
+
+  private CellGrid(int rows, int cols, ByteBuffer[] chunks) {
+    this(rows, cols, chunks, null, null);
+  }
+
+  private CellGrid(int rows, int cols, ByteBuffer[] chunks, long[] patchIndex, byte[] patchValue) {
+    this.rows = rows;
+    this.cols = cols;
+    this.chunks = chunks;
+    this.single = chunks.length == 1 ? chunks[0] : null;
+    this.patchIndex = patchIndex;
+    this.patchValue = patchValue;
+  }
+
+  /** Empty heap grid, to be filled with set(). */
+  public static CellGrid allocate(int rows, int cols) {
+    long cells = (long) rows * cols;
+    ByteBuffer[] chunks = new ByteBuffer[Math.max(1, (int) ((cells + CHUNK_MASK) >>> CHUNK_BITS))];
+    for (int i = 0; i < chunks.length; i++) {
+      long size = Math.min(cells - ((long) i << CHUNK_BITS), 1L << CHUNK_BITS);
+      chunks[i] = ByteBuffer.allocate((int) Math.max(0, size));
+    }
+    return new CellGrid(rows, cols, chunks);
+  }
+
+  /** Heap grid copied from rows of chars (the classic char[][] board). */
+  public static CellGrid of(int rows, int cols, char[][] grid) {
+    CellGrid cells = allocate(rows, cols);
+    for (int r = 0; r < rows; r++)
+      for (int c = 0; c < cols; c++)
+        cells.set(r, c, grid[r][c]);
+    return cells;
+  }
+
+  /** Read-only view of rows * cols cell bytes starting at offset in the file (zero-copy). */
+  public static CellGrid map(FileChannel channel, long offset, int rows, int cols)
+      throws IOException {
+    long cells = (long) rows * cols;
+    ByteBuffer[] chunks = new ByteBuffer[Math.max(1, (int) ((cells + CHUNK_MASK) >>> CHUNK_BITS))];
+    for (int i = 0; i < chunks.length; i++) {
+      long start = (long) i << CHUNK_BITS;
+      long size = Math.min(cells - start, 1L << CHUNK_BITS);
+      chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.max(0, size));
+    }
+    return new CellGrid(rows, cols, chunks);
+  }
+
+  public char get(int r, int c) {
+    long i = (long) r * cols + c;
+    if (patchIndex != null) {
+      for (int k = 0; k < patchIndex.length; k++)
+        if (patchIndex[k] == i)
+          return (char) (patchValue[k] & 0xFF);
+    }
+    if (single != null)
+      return (char) (single.get((int) i) & 0xFF);
+    return (char) (chunks[(int) (i >>> CHUNK_BITS)].get((int) (i & CHUNK_MASK)) & 0xFF);
+  }
+
+  public void set(int r, int c, char value) {
+    if (patchIndex != null)
+      throw new UnsupportedOperationException("Patched grids are read-only");
+    long i = (long) r * cols + c;
+    chunks[(int) (i >>> CHUNK_BITS)].put((int) (i & CHUNK_MASK), (byte) value);
+  }
+
+  /**
+   * View sharing this grid's storage with a few cells replaced (used for boards whose start and
+   * goal were moved). The replaced cells live in a tiny side table checked before the buffers;
+   * the first patch on a cell wins, and patches of this grid stay behind the new ones.
+   */
+  public CellGrid withPatches(int[] patchRows, int[] patchCols, char[] values) {
+    int inherited = patchIndex == null ? 0 : patchIndex.length;
+    long[] index = new long[values.length + inherited];
+    byte[] bytes = new byte[values.length + inherited];
+    for (int k = 0; k < values.length; k++) {
+      index[k] = (long) patchRows[k] * cols + patchCols[k];
+      bytes[k] = (byte) values[k];
+    }
+    if (inherited > 0) {
+      System.arraycopy(patchIndex, 0, index, values.length, inherited);
+      System.arraycopy(patchValue, 0, bytes, values.length, inherited);
+    }
+    return new CellGrid(rows, cols, chunks, index, bytes);
+  }
+
+  /** SHA-256 of the size and the cells as 32 hex digits (128 bits): equal grids, equal prints. */
+  public String fingerprint() {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required on every JVM", e);
+    }
+    digest.update(ByteBuffer.allocate(8).putInt(rows).putInt(cols).flip());
+    if (patchIndex != null) {
+      byte[] row = new byte[cols];
+      for (int r = 0; r < rows; r++) {
+        for (int c = 0; c < cols; c++)
+          row[c] = (byte) get(r, c);
+        digest.update(row);
+      }
+    } else {
+      for (ByteBuffer chunk : chunks) {
+        ByteBuffer view = chunk.duplicate();
+        view.clear();
+        digest.update(view);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest(), 0, 16);
+  }
+
+  /** Writes the raw cell bytes, row by row. */
+  public void writeTo(WritableByteChannel out) throws IOException {
+    if (patchIndex != null) {
+      // Rare (moved endpoints): stream cell by cell so the patches are included
+      ByteBuffer row = ByteBuffer.allocate(cols);
+      for (int r = 0; r < rows; r++) {
+        row.clear();
+        for (int c = 0; c < cols; c++)
+          row.put((byte) get(r, c));
+        row.flip();
+        while (row.hasRemaining())
+          out.write(row);
+      }
+      return;
+    }
+    for (ByteBuffer chunk : chunks) {
+      ByteBuffer view = chunk.duplicate();
+      view.clear();
+      while (view.hasRemaining())
+        out.write(view);
+    }
+  }
+
+  public int getRows() {
+    return rows;
+  }
+
+  public int getCols() {
+    return cols;
+  }
+}
@@ -0,0 +1,7 @@
+/**
+ * Told about every {@link Board#setCell} on a board it was added to, after the cell changed and
+ * the board's own index was updated. Used by LPAStar to repair its search.
+ */
+public interface CellListener {
+  void cellChanged(int row, int col, char oldValue, char newValue);
+}
@@ -0,0 +1,188 @@
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * SearchMetrics that keeps totals, per-iteration counts and a sampled time series of the
+ * frontier, and prints them as a report from toString(). Counters are LongAdders so
+ * ParallelAStar's workers can share one instance; peaks and samples are best effort across
+ * threads.
+ */
+public class CountingMetrics implements SearchMetrics {
+
+  private static final int SAMPLE_EVERY = 4096; // frontier() calls between two samples
+
+  private final LongAdder expansions = new LongAdder();
+  private final LongAdder generations = new LongAdder();
+  private final LongAdder duplicates = new LongAdder();
+  private final LongAdder reopenings = new LongAdder();
+  private final LongAdder heuristicEvaluations = new LongAdder();
+
+  private String engine = "?";
+  private long startNanos;
+  private long endNanos;
+  private boolean found;
+  private double cost;
+
+  private volatile int peakOpen;
+  private volatile int peakClosed;
+  private int sampleCountdown = SAMPLE_EVERY;
+  private final List<long[]> samples = new ArrayList<>(); // {nanos, expanded, open, closed}
+
+  // Current DFID/IDA* iteration and the totals when it started
+  private int iteration = 0;
+  private double threshold;
+  private long iterationExpansions;
+  private long iterationGenerations;
+  private final List<double[]> iterations = new ArrayList<>(); // {number, bound, expanded, generated}
+
+  @Override
+  public synchronized void searchStarted(String engine) {
+    this.engine = engine;
+    this.startNanos = System.nanoTime();
+  }
+
+  @Override
+  public void expanded() {
+    expansions.increment();
+  }
+
+  @Override
+  public void generated() {
+    generations.increment();
+  }
+
+  @Override
+  public void duplicatePruned() {
+    duplicates.increment();
+  }
+
+  @Override
+  public void reopened() {
+    reopenings.increment();
+  }
+
+  @Override
+  public void heuristicEvaluated() {
+    heuristicEvaluations.increment();
+  }
+
+  @Override
+  public void frontier(int open, int closed) {
+    if (open > peakOpen)
+      peakOpen = open;
+    if (closed > peakClosed)
+      peakClosed = closed;
+    if (--sampleCountdown <= 0) {
+      sampleCountdown = SAMPLE_EVERY;
+      long expanded = expansions.sum();
+      synchronized (this) {
+        samples.add(new long[] {System.nanoTime() - startNanos, expanded, open, closed});
+      }
+      onSample(expanded, open, closed);
+    }
+  }
+
+  @Override
+  public synchronized void iteration(int iteration, double threshold) {
+    endIteration();
+    this.iteration = iteration;
+    this.threshold = threshold;
+    this.iterationExpansions = expansions.sum();
+    this.iterationGenerations = generations.sum();
+    onIterationStart(iteration, threshold);
+  }
+
+  private void endIteration() {
+    if (iteration == 0)
+      return;
+    long expanded = expansions.sum() - iterationExpansions;
+    long generated = generations.sum() - iterationGenerations;
+    iterations.add(new double[] {iteration, threshold, expanded, generated});
+    onIterationEnd(iteration, threshold, expanded, generated);
+    iteration = 0;
+  }
+
+  @Override
+  public synchronized void searchFinished(boolean found, double cost) {
+    endIteration();
+    this.endNanos = System.nanoTime();
+    this.found = found;
+    this.cost = cost;
+    onFinished(found, cost);
+  }
+
+  // Hooks for JfrMetrics
+
+  protected void onSample(long expanded, int open, int closed) {}
+
+  protected void onIterationStart(int iteration, double threshold) {}
+
+  protected void onIterationEnd(int iteration, double threshold, long expanded, long generated) {}
+
+  protected void onFinished(boolean found, double cost) {}
+
+  public String getEngine() {
+    return engine;
+  }
+
+  public long getExpansions() {
+    return expansions.sum();
+  }
+
+  public long getGenerations() {
+    return generations.sum();
+  }
+
+  public long getDuplicatesPruned() {
+    return duplicates.sum();
+  }
+
+  public long getReopenings() {
+    return reopenings.sum();
+  }
+
+  public long getHeuristicEvaluations() {
+    return heuristicEvaluations.sum();
+  }
+
+  public int getPeakOpen() {
+    return peakOpen;
+  }
+
+  public int getPeakClosed() {
+    return peakClosed;
+  }
+
+  public synchronized int getIterations() {
+    return iterations.size() + (iteration > 0 ? 1 : 0);
+  }
+
+  public synchronized double getSeconds() {
+    return ((endNanos != 0 ? endNanos : System.nanoTime()) - startNanos) / 1e9;
+  }
+
+  /** Generated nodes per second of search time. */
+  public double getNodesPerSecond() {
+    double seconds = getSeconds();
+    return seconds > 0 ? getGenerations() / seconds : 0;
+  }
+
+  @Override
+  public synchronized String toString() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("metrics: ").append(engine).append(found ? " found cost " + cost : " no path")
+        .append(String.format(" in %.3f ms%n", getSeconds() * 1e3));
+    sb.append(String.format(
+        "  expanded %d, generated %d (%.0f nodes/s), duplicates pruned %d, reopened %d, h evaluations %d%n",
+        getExpansions(), getGenerations(), getNodesPerSecond(), getDuplicatesPruned(),
+        getReopenings(), getHeuristicEvaluations()));
+    sb.append(String.format("  peak open %d, peak closed %d%n", peakOpen, peakClosed));
+    for (double[] it : iterations)
+      sb.append(String.format("  iteration %d: bound %s, expanded %d, generated %d%n", (int) it[0],
+          it[1], (long) it[2], (long) it[3]));
+    for (long[] s : samples)
+      sb.append(String.format("  at %.3f ms: expanded %d, open %d, closed %d%n", s[0] / 1e6, s[1],
+          s[2], s[3]));
+    return sb.toString().trim();
+  }
+}
@@ -1,3 +1,262 @@
-public class DFBnB {
+import java.util.*;
 
+public class DFBnB implements Algorithm {
+
+  private final boolean clockwise;
+  private final boolean withOpen;
+  private final boolean newFirst; // tie-breaking between children with equal f
+
+  // Statistics
+  private int generatedNodesCount = 0;
+  private int maxSpace = 0;
+  private int creationCounter = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  public DFBnB(String order, boolean withOpen, String tieBreaker) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.withOpen = withOpen;
+    this.newFirst = "new-first".equals(tieBreaker); // default is old-first, as in AStar
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("DFBnB");
+    State start = board.getStart();
+    // Pruning at f >= t needs a lower bound; HeuristicTable overestimates on chained tunnels
+    Heuristic heuristic = new PortalHeuristic(board, board.getGoalRow(), board.getGoalCol());
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+    Comparator<State> byF = OpenList.comparator(newFirst);
+
+    // Initial upper bound: a greedy depth-first dive. Its path is kept as the answer until
+    // the branch and bound finds something cheaper.
+    State result = greedy(start, board, heuristic, dirs);
+    double t = result != null ? result.getG() : Double.MAX_VALUE;
+
+    // 1. L <- make_stack and H <- make_hash_table, insert start
+    SearchStack L = new SearchStack();
+    LongObjectMap<SearchStack.Entry> H = new LongObjectMap<>();
+    start.setH(heuristic.get(start));
+    SearchStack.Entry startEntry = new SearchStack.Entry(start);
+    L.push(startEntry);
+    H.put(start.getKey(), startEntry);
+
+    List<State> children = new ArrayList<>(dirs.length);
+
+    // 2. While L is not empty
+    while (!L.isEmpty()) {
+
+      if (withOpen) {
+        printStack(L);
+      }
+
+      maxSpace = Math.max(maxSpace, L.size() + H.size());
+
+      // 1. n <- L.remove_front()
+      SearchStack.Entry top = L.pop();
+      State n = top.state;
+
+      // 2. If n is marked as "out": backtrack
+      if (top.out) {
+        H.remove(n.getKey());
+        continue;
+      }
+
+      // 3. Else mark n as "out" and L.insert(n)
+      top.out = true;
+      L.push(top);
+      metrics.expanded();
+      metrics.frontier(L.size(), H.size());
+
+      // 4. N <- apply all of the allowed operators on n, sorted by f
+      children.clear();
+      for (Direction dir : dirs) {
+        int newR, newC;
+
+        // Tunnel logic
+        if (dir == Direction.Ent) {
+          int exit = board.isTunnel(n.row, n.col)
+              ? board.getTunnelExitIndex(n.row, n.col) : -1;
+          if (exit < 0)
+            continue; // not a tunnel, or its other end is gone
+          newR = exit / board.getCols();
+          newC = exit % board.getCols();
+        } else {
+          newR = n.row + dir.dr;
+          newC = n.col + dir.dc;
+        }
+
+        if (board.isLegal(newR, newC, n.SupplyStation, n.parent)) {
+          double newG = n.getG() + board.getPositionValue(newR, newC, dir);
+          State g = new State(newR, newC, newG, 0, n, dir.name(), board);
+          generatedNodesCount++;
+          metrics.generated();
+          g.setCreationTime(++creationCounter);
+          g.setH(heuristic.get(g));
+          metrics.heuristicEvaluated();
+          children.add(g);
+        }
+      }
+      children.sort(byF);
+
+      // 5. For each g in N (cheapest f first)
+      int keep = 0;
+      for (State g : children) {
+        // 1. If f(g) >= t: g and everything after it can't beat the current solution
+        if (g.getF() >= t)
+          break;
+
+        long gKey = g.getKey();
+        SearchStack.Entry gPrime = H.get(gKey);
+
+        // 2. If H contains g' and g' is "out": loop on the current path
+        if (gPrime != null && gPrime.out) {
+          metrics.duplicatePruned();
+          continue;
+        }
+
+        // 3. If H contains g' and g' is not "out": keep the cheaper one
+        if (gPrime != null) {
+          if (gPrime.state.getF() <= g.getF()) {
+            metrics.duplicatePruned();
+            continue;
+          }
+          L.remove(gPrime);
+          H.remove(gKey);
+          metrics.reopened();
+        }
+
+        // 4. If goal(g): new upper bound, drop g and everything after it
+        if (g.onGoal) {
+          t = g.getF();
+          result = g;
+          break;
+        }
+
+        children.set(keep++, g);
+      }
+
+      // 6. Insert N in reverse order to L and H (so the cheapest child is popped first)
+      for (int i = keep - 1; i >= 0; i--) {
+        State g = children.get(i);
+        SearchStack.Entry entry = new SearchStack.Entry(g);
+        L.push(entry);
+        H.put(g.getKey(), entry);
+      }
+    }
+
+    if (result == null) {
+      metrics.searchFinished(false, 0);
+      return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace + "\nCost: inf";
+    }
+    return returnResult(result);
+  }
+
+  /**
+   * Greedy depth-first dive: steps to the child with the lowest f, then h, that is not on the
+   * current path and backtracks out of dead ends. Only the path and its untried children are kept, so the bound
+   * costs linear memory like the branch and bound itself. Without a closed list a maze could make
+   * the dive exponential, so it gives up after one expansion per board cell and the branch and
+   * bound starts without a bound. Returns the goal state or null.
+   */
+  private State greedy(State start, Board board, Heuristic heuristic, Direction[] dirs) {
+    Comparator<State> byFThenH = Comparator.comparingDouble(State::getF)
+        .thenComparingDouble(State::getH).thenComparingInt(State::getCreationTime);
+    int budget = board.getRows() * board.getCols();
+    LongSet onPath = new LongSet();
+    Deque<State> path = new ArrayDeque<>();
+    Deque<Deque<State>> untried = new ArrayDeque<>(); // per path state, best child first
+    List<State> children = new ArrayList<>(dirs.length);
+    int held = 0; // untried children over the whole path
+
+    State current = new State(start.row, start.col, 0, heuristic.get(start), null, null, board);
+    while (true) {
+      // Expand current, which is now the end of the path
+      if (budget-- == 0)
+        return null;
+      onPath.add(current.getKey());
+      path.push(current);
+      metrics.expanded();
+      children.clear();
+      for (Direction dir : dirs) {
+        int newR, newC;
+        if (dir == Direction.Ent) {
+          int exit = board.isTunnel(current.row, current.col)
+              ? board.getTunnelExitIndex(current.row, current.col) : -1;
+          if (exit < 0)
+            continue;
+          newR = exit / board.getCols();
+          newC = exit % board.getCols();
+        } else {
+          newR = current.row + dir.dr;
+          newC = current.col + dir.dc;
+        }
+
+        if (board.isLegal(newR, newC, current.SupplyStation, current.parent)) {
+          State next = new State(newR, newC,
+              current.getG() + board.getPositionValue(newR, newC, dir), 0, current, dir.name(),
+              board);
+          generatedNodesCount++;
+          metrics.generated();
+          if (next.onGoal)
+            return next;
+          if (onPath.contains(next.getKey())) {
+            metrics.duplicatePruned(); // loop on the current path
+            continue;
+          }
+          next.setH(heuristic.get(next));
+          metrics.heuristicEvaluated();
+          next.setCreationTime(++creationCounter);
+          children.add(next);
+        }
+      }
+      children.sort(byFThenH);
+      untried.push(new ArrayDeque<>(children));
+      held += children.size();
+      maxSpace = Math.max(maxSpace, onPath.size() + held);
+      metrics.frontier(held, onPath.size());
+
+      // Descend into the best untried child, backtracking out of exhausted path states
+      current = null;
+      while (current == null && !untried.isEmpty()) {
+        current = untried.peek().poll();
+        if (current != null) {
+          held--;
+        } else {
+          untried.pop();
+          onPath.remove(path.pop().getKey());
+        }
+      }
+      if (current == null)
+        return null;
+    }
+  }
+
+  // Print stack for debugging
+  private void printStack(SearchStack stack) {
+    System.out.println("Stack: " + stack.toString());
+  }
+
+  @Override
+  public String returnResult(State next) {
+    metrics.searchFinished(true, next.getG());
+    return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
 }
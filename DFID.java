@@ -9,6 +9,7 @@ public class DFID implements Algorithm {
   private int visitedNodes = 0;
   // For DFID, maxSpace represents the maximum depth reached (O(d))
   private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
 
   // Helper signals to distinguish between "hit depth limit" and "dead end"
   private static final String CUTOFF = "cutoff";
@@ -19,8 +20,14 @@ public class DFID implements Algorithm {
     this.withOpen = withOpen;
   }
 
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public String solve(Board board) {
+    metrics.searchStarted("DFID");
     State start = board.getStart();
 
     // Iterative Deepening Loop
@@ -28,10 +35,11 @@ public class DFID implements Algorithm {
     for (int limit = 1; limit < Integer.MAX_VALUE; limit++) {
 
       // Loop avoidance set: tracks only nodes on the CURRENT recursion stack
-      Set<String> currentPath = new LinkedHashSet<>(); // !!!!
+      LongSet currentPath = new LongSet();
 
       // Update maxSpace (in DFID this tracks the depth)
       maxSpace = Math.max(maxSpace, limit);
+      metrics.iteration(limit, limit);
 
       String result = limitedDFS(start, limit, currentPath, board);
 
@@ -42,16 +50,18 @@ public class DFID implements Algorithm {
       // If we searched the whole tree (FAIL) and didn't hit a cutoff,
       // the goal is unreachable.
       if (result.equals(FAIL)) {
+        metrics.searchFinished(false, 0);
         return "no path";
       }
 
       // If result was CUTOFF, the loop continues with limit++
     }
+    metrics.searchFinished(false, 0);
     return "no path";
   }
 
   // Recursive function
-  private String limitedDFS(State current, int limit, Set<String> path, Board board) {
+  private String limitedDFS(State current, int limit, LongSet path, Board board) {
 
     // 1. Check Goal
     if (current.onGoal) {
@@ -65,10 +75,12 @@ public class DFID implements Algorithm {
 
     // 3. Loop Avoidance Logic
     // Add current to path to prevent children from looping back to here
-    path.add(current.getId());
+    path.add(current.getKey());
+    metrics.expanded();
+    metrics.frontier(path.size(), 0);
 
     if (withOpen) {
-      printOpenSet(path);
+      printOpenSet(current);
     }
 
     boolean cutoffOccurred = false;
@@ -78,12 +90,13 @@ public class DFID implements Algorithm {
       int newR, newC;
 
       // --- Tunnel and Move Logic (Same as BFS) ---
-      if (board.isTunnel(current.row, current.col) && dir == Direction.Ent) {
-        int[] exit = board.getTunnelExit(current.row, current.col);
-        newR = exit[0];
-        newC = exit[1];
-      } else if (dir == Direction.Ent) {
-        continue;
+      if (dir == Direction.Ent) {
+        int exit = board.isTunnel(current.row, current.col)
+            ? board.getTunnelExitIndex(current.row, current.col) : -1;
+        if (exit < 0)
+          continue; // not a tunnel, or its other end is gone
+        newR = exit / board.getCols();
+        newC = exit % board.getCols();
       } else {
         newR = current.row + dir.dr;
         newC = current.col + dir.dc;
@@ -96,9 +109,10 @@ public class DFID implements Algorithm {
 
         // LOOP AVOIDANCE CHECK:
         // Only visit if 'next' is NOT currently in our ancestors list
-        if (!path.contains(next.getId())) {
+        if (!path.contains(next.getKey())) {
 
           visitedNodes++; // Count generation
+          metrics.generated();
 
           // RECURSIVE CALL
           String result = limitedDFS(next, limit - 1, path, board);
@@ -108,13 +122,15 @@ public class DFID implements Algorithm {
           } else if (!result.equals(FAIL)) {
             return result; // We found the goal, bubble it up
           }
+        } else {
+          metrics.duplicatePruned(); // already on the current path
         }
       }
     }
 
     // 4. Backtracking (Crucial for "No Closed List")
     // Remove current from path so it can be visited via other routes in the future
-    path.remove(current.getId());
+    path.remove(current.getKey());
 
     // If we hit a limit anywhere below, return CUTOFF. Otherwise, it's a dead end (FAIL).
     return cutoffOccurred ? CUTOFF : FAIL;
@@ -134,13 +150,18 @@ public class DFID implements Algorithm {
 
   @Override
   public String returnResult(State next) {
+    metrics.searchFinished(true, next.getG());
     return buildPath(next) + "\n" + "Num: " + visitedNodes + "\n" + "Max space: " + maxSpace + "\n"
         + "Cost: " + next.getG();
   }
 
-  private void printOpenSet(Set<String> path) {
-    // In DFS, the "Open Set" is visually the current recursion stack
-    String content = String.join(" -> ", path);
+  private void printOpenSet(State current) {
+    // In DFS, the "Open Set" is visually the current recursion stack (root first)
+    List<String> ids = new ArrayList<>();
+    for (State s = current; s != null; s = s.parent)
+      ids.add(s.getId());
+    Collections.reverse(ids);
+    String content = String.join(" -> ", ids);
     System.out.println("Current Path: [" + content + "]");
   }
 }
@@ -0,0 +1,119 @@
+import java.util.*;
+
+/**
+ * Exact cost-to-goal for every state of a board, from one backward Dijkstra run out of the goal.
+ *
+ * <p>The search runs over the two-layer graph (cell, has supply): a move into cell w in direction
+ * d costs board.getPositionValue(w, d), '~' can only be entered with supply, stepping on '*' moves
+ * to the supply layer for good, and a tunnel jump costs the Ent price. Edges are walked in reverse,
+ * so one run answers every start query on the board in O(1). Used as a perfect heuristic by AStar
+ * and IDAStar ("exact" option) and to rebuild optimal paths by descent.
+ */
+public class DistanceField implements Heuristic {
+
+  public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+  private final Board board;
+  private final int rows;
+  private final int cols;
+  private final int[] dist; // node = (r * cols + c) << 1 | supply bit
+
+  public DistanceField(Board board) {
+    this.board = board;
+    this.rows = board.getRows();
+    this.cols = board.getCols();
+    this.dist = new int[rows * cols * 2];
+    Arrays.fill(dist, UNREACHABLE);
+    if (board.getGoalRow() >= 0)
+      run();
+  }
+
+  private void run() {
+    ReverseMoves reverse = new ReverseMoves(board);
+    LongHeap heap = new LongHeap();
+    int goal = board.getGoalRow() * cols + board.getGoalCol();
+    for (int s = 0; s <= 1; s++) {
+      dist[goal << 1 | s] = 0;
+      heap.push(goal << 1 | s, 0);
+    }
+
+    while (!heap.isEmpty()) {
+      long top = heap.pop();
+      int node = (int) top;
+      int d = (int) (top >>> 32);
+      if (d != dist[node])
+        continue; // stale entry
+
+      int cell = node >> 1;
+      reverse.forEach(cell / cols, cell % cols, (node & 1) != 0, Direction.CLOCKWISE,
+          (pr, pc, prevSupply, cost, dir) -> relax(heap,
+              (pr * cols + pc) << 1 | (prevSupply ? 1 : 0), d + cost));
+    }
+  }
+
+  private void relax(LongHeap heap, int node, int d) {
+    if (d < dist[node]) {
+      dist[node] = d;
+      heap.push(node, d);
+    }
+  }
+
+  /** Exact cost from (r, c) with the given supply flag to the goal, or UNREACHABLE. */
+  public int cost(int r, int c, boolean supply) {
+    return dist[(r * cols + c) << 1 | (supply ? 1 : 0)];
+  }
+
+  public boolean isReachable(int r, int c, boolean supply) {
+    return cost(r, c, supply) != UNREACHABLE;
+  }
+
+  @Override
+  public double get(int r, int c, boolean supply) {
+    int d = cost(r, c, supply);
+    return d == UNREACHABLE ? Double.MAX_VALUE : d;
+  }
+
+  /**
+   * Optimal move sequence from (r, c) to the goal, found by always stepping to a successor whose
+   * edge cost plus remaining distance equals the current distance. The first such move in the
+   * given direction order wins. Returns null if the goal is unreachable.
+   */
+  public List<String> path(int r, int c, boolean supply, Direction[] dirs) {
+    if (!isReachable(r, c, supply))
+      return null;
+    List<String> moves = new ArrayList<>();
+    while (!board.isGoal(r, c)) {
+      int here = cost(r, c, supply);
+      boolean stepped = false;
+      for (Direction dir : dirs) {
+        int nr;
+        int nc;
+        if (dir == Direction.Ent) {
+          int exit = board.isTunnel(r, c) ? board.getTunnelExitIndex(r, c) : -1;
+          if (exit < 0)
+            continue;
+          nr = exit / cols;
+          nc = exit % cols;
+        } else {
+          nr = r + dir.dr;
+          nc = c + dir.dc;
+        }
+        if (!board.isLegal(nr, nc, supply, null))
+          continue;
+        boolean nextSupply = supply || board.isSupplyStation(nr, nc);
+        int rest = cost(nr, nc, nextSupply);
+        if (rest != UNREACHABLE && board.getPositionValue(nr, nc, dir) + rest == here) {
+          moves.add(dir.name());
+          r = nr;
+          c = nc;
+          supply = nextSupply;
+          stepped = true;
+          break;
+        }
+      }
+      if (!stepped)
+        return null; // cannot happen on a consistent field
+    }
+    return moves;
+  }
+}
@@ -1,61 +1,143 @@
 import java.nio.file.*;
-import java.io.IOException;
-import java.io.PrintWriter;
+import java.io.*;
+import java.util.*;
 
 public class Ex1 {
     public static void main(String[] args) throws IOException {
-        // Board board = new Board("input.txt");
-        String[] lines = Files.readAllLines(Path.of("input.txt")).toArray(new String[0]);
+        // Batch mode: java Ex1 --batch queries.txt [results.txt]
+        if (args.length >= 2 && args[0].equals("--batch")) {
+            BatchSolver.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
 
-        String algorithm = lines[0]; // first line: algorithm
-        String[] line2_split = lines[1].split(" ");
-        String order = line2_split[0]; // second line: order
-        String tieBreaking = (line2_split.length > 1) ? line2_split[1] : null; // second line:
-                                                                               // tie-breaking
-        boolean withTime = lines[2].equals("with time"); // third line: with time
-        boolean withOpen = lines[3].equals("with open"); // fourth line: with open
+        // The board and "with open" printouts go through one buffered stream instead of a write
+        // per println; flushed before exit
+        PrintStream stdout = new PrintStream(
+                new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), 1 << 16), false);
+        System.setOut(stdout);
+        try {
+            // Streams the map straight into the board's cell grid (see MapLoader)
+            MapLoader.Loaded input = MapLoader.load(Path.of("input.txt"));
+            String[] lines = input.header;
+
+            boolean withTime = lines[2].equals("with time"); // third line: with time
+            boolean withOpen = lines[3].equals("with open"); // fourth line: with open
 
-        // parse grid size
-        String[] sizeSplit = lines[4].split("x");
-        int N = Integer.parseInt(sizeSplit[0]); // rows
-        int M = Integer.parseInt(sizeSplit[1]); // columns
+            Board board = input.board;
+            board.displayBoard();
 
-        // parse grid
-        char[][] grid = new char[N][M];
-        for (int i = 0; i < N; i++) {
-            grid[i] = lines[5 + i].toCharArray();
+            // -Dsearch.metrics=counting|jfr reports the search to stderr (and JFR)
+            SearchMetrics metrics = SearchMetrics.fromSystemProperty();
+            Algorithm solver = createSolver(lines[0], lines[1], withOpen, metrics);
+
+            // -Dsearch.cache / -Dsearch.cache.dir: repeated queries skip the solve (not with open,
+            // whose printout is part of the run)
+            ResultCache cache = withOpen ? null : ResultCache.fromSystemProperty();
+
+            long startTime = System.nanoTime();
+            String result = cache != null
+                    ? cache.solve(board, lines[0], lines[1], () -> solver.solve(board))
+                    : solver.solve(board);
+            double timeSec = (System.nanoTime() - startTime) / 1e9;
+            if (metrics != SearchMetrics.NONE)
+                System.err.println(metrics);
+            if (cache != null)
+                System.err.println(cache);
+
+            writeToOutput(result, withTime ? timeSec : -1, withOpen);
+        } finally {
+            stdout.flush();
         }
+    }
 
-        Board board = new Board(N, M, grid);
-        board.displayBoard();
+    /**
+     * Builds the engine from the first two input lines: the algorithm, optionally followed by
+     * engine options (e.g. "A* exact"), and the order with optional tie-breaking.
+     */
+    public static Algorithm createSolver(String algorithmLine, String orderLine, boolean withOpen) {
+        return createSolver(algorithmLine, orderLine, withOpen, SearchMetrics.NONE);
+    }
+
+    public static Algorithm createSolver(String algorithmLine, String orderLine, boolean withOpen,
+            SearchMetrics metrics) {
+        String[] line1_split = algorithmLine.trim().split("\\s+");
+        String algorithm = line1_split[0];
+        Set<String> options = new HashSet<>(Arrays.asList(line1_split).subList(1, line1_split.length));
+        String[] line2_split = orderLine.split(" ");
+        String order = line2_split[0]; // second line: order
+        String tieBreaking = (line2_split.length > 1) ? line2_split[1] : null; // second line:
+                                                                               // tie-breaking
 
         Algorithm solver = null;
         switch (algorithm) {
             case "BFS":
-                solver = new BFS(order, withOpen);
+                if (options.contains("bidirectional"))
+                    solver = new BidirectionalBFS(order, withOpen);
+                else if (options.contains("external"))
+                    solver = new ExternalSearch(order, null, true, (int) longOption(options,
+                            "records=", ExternalSearch.DEFAULT_BUFFER_RECORDS));
+                else
+                    solver = new BFS(order, withOpen);
                 break;
             case "A*":
-                solver = new AStar(order, withOpen, tieBreaking);
+                String openList = options.contains("buckets") ? "buckets"
+                        : options.contains("indexed") ? "indexed" : "heap";
+                if (options.contains("bidirectional"))
+                    solver = new BidirectionalAStar(order, withOpen, tieBreaking);
+                else if (options.contains("lpa"))
+                    solver = new LPAStar(order);
+                else if (options.contains("hpa"))
+                    solver = new HierarchicalAStar(order, tieBreaking, options.contains("exact"));
+                else if (options.contains("anytime"))
+                    solver = new AnytimeAStar(order, tieBreaking, longOption(options, "ms=", 0));
+                else if (options.contains("sma"))
+                    solver = new SMAStar(order,
+                            (int) longOption(options, "nodes=", SMAStar.DEFAULT_MAX_NODES));
+                else if (options.contains("frontier"))
+                    solver = new FrontierSearch(order);
+                else if (options.contains("external"))
+                    solver = new ExternalSearch(order, tieBreaking, false, (int) longOption(options,
+                            "records=", ExternalSearch.DEFAULT_BUFFER_RECORDS));
+                else if (options.contains("jps"))
+                    solver = new JumpPointSearch(order, withOpen, tieBreaking);
+                else if (options.contains("parallel"))
+                    solver = new ParallelAStar(order, tieBreaking,
+                            Runtime.getRuntime().availableProcessors());
+                else
+                    solver = new AStar(order, withOpen, tieBreaking, options.contains("exact"), openList);
                 break;
             case "DFID":
-                solver = new DFID(order, withOpen);
+                if (options.contains("parallel"))
+                    solver = new ParallelDFID(order, Runtime.getRuntime().availableProcessors());
+                else
+                    solver = new DFID(order, withOpen);
                 break;
             case "IDA*":
-                solver = new IDAStar(order, withOpen);
+                if (options.contains("parallel"))
+                    solver = new ParallelIDAStar(order, options.contains("exact"),
+                            Runtime.getRuntime().availableProcessors());
+                else
+                    solver = new IDAStar(order, withOpen, options.contains("exact"),
+                            options.contains("tt") ? 1 << 20 : 0,
+                            options.contains("cr") ? IDAStar.THRESHOLD_CR : IDAStar.THRESHOLD_MIN_F);
+                break;
+            case "DFBnB":
+                solver = new DFBnB(order, withOpen, tieBreaking);
                 break;
-            // case "DFBnB":
-            // solver = new DFBnB(board, order, tieBreaking, withOpen);
-            // break;
             default:
                 throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
         }
+        solver.setMetrics(metrics);
+        return solver;
+    }
 
-        long startTime = System.nanoTime();
-        String result = solver.solve(board);
-        double timeSec = (System.nanoTime() - startTime) / 1e9;
-
-        writeToOutput(result, withTime ? timeSec : -1, withOpen);
-
+    // Numeric engine option such as "ms=N" (anytime time budget), "nodes=N" (SMA* node cap) or
+    // "records=N" (external search memory buffer)
+    private static long longOption(Set<String> options, String prefix, long defaultValue) {
+        for (String option : options)
+            if (option.startsWith(prefix))
+                return Long.parseLong(option.substring(prefix.length()));
+        return defaultValue;
     }
 
     public static void writeToOutput(String path, double timeSec, boolean withOpen) {
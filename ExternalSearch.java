@@ -0,0 +1,531 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * External-memory BFS and A* ("BFS external", "A* external") for searches whose visited states do
+ * not fit in RAM. Open states wait in buckets by priority (depth for BFS, f for A*). Closed states
+ * go to sorted runs of SpillFile records on local disk once the in-memory part of the budget is
+ * full. Duplicates are found late and in bulk: a bucket is loaded by merging its key-sorted runs,
+ * keeping the first generated copy of each state, and galloping through the closed runs to drop
+ * states already expanded. Closed runs are merged as they pile up so a lookup touches O(log n)
+ * runs.
+ *
+ * <p>Only one layer (the nodes of one priority) is held in memory, where it is expanded exactly as
+ * the in-memory engines would: in the order of (priority, generation sequence), which is AStar's
+ * (f, node id) order and BFS's FIFO order. Children at or below the layer's priority (AStar's
+ * heuristic is not always consistent) join the layer at once, as AStar would queue them. Path,
+ * Cost and Num therefore match BFS and AStar; "Max space" is the most records held in memory at
+ * once. Spill files go to -Dsearch.spill (default java.io.tmpdir).
+ */
+public class ExternalSearch implements Algorithm {
+
+  public static final int DEFAULT_BUFFER_RECORDS = 1 << 20; // about 64 MB
+  private static final long NO_STATE = -1;
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final boolean clockwise;
+  private final boolean newFirst;
+  private final boolean breadthFirst;
+  private final int bufferRecords; // open and closed records kept in memory, half each
+
+  private Board board;
+  private Heuristic heuristic;
+  private Path spillDirectory;
+  private TreeMap<Integer, Bucket> buckets; // open records by priority
+  private int buffered; // open records still in bucket buffers
+  private Buffer closed; // closed records not yet in a run
+  private List<SpillFile> closedRuns; // sorted by key, each more than twice the size of the next
+  private long expansions;
+
+  // The layer being expanded: its nodes and what NodePool does not keep
+  private NodePool pool;
+  private long[] parentKey;
+  private long[] nodeSeq;
+
+  private int generatedNodesCount = 0;
+  private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  public ExternalSearch(String order, String tieBreaker, boolean breadthFirst, int bufferRecords) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.newFirst = "new-first".equals(tieBreaker);
+    this.breadthFirst = breadthFirst;
+    this.bufferRecords = Math.max(2, bufferRecords);
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /** Directory for spill files (created if missing): -Dsearch.spill, else java.io.tmpdir. */
+  public static Path spillDirectory() {
+    Path directory = Path.of(System.getProperty("search.spill",
+        System.getProperty("java.io.tmpdir")));
+    try {
+      return Files.createDirectories(directory);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot create spill directory " + directory, e);
+    }
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted(breadthFirst ? "BFS external" : "A* external");
+    this.board = board;
+    this.heuristic = breadthFirst ? null : board.getHeuristicTable();
+    this.spillDirectory = spillDirectory();
+    buckets = new TreeMap<>();
+    closed = new Buffer();
+    closedRuns = new ArrayList<>();
+    expansions = 0;
+    generatedNodesCount = 0;
+    maxSpace = 0;
+
+    int startRow = board.getStartRow();
+    int startCol = board.getStartCol();
+    boolean startSupply = board.isSupplyStation(startRow, startCol);
+    int startPriority = breadthFirst ? 0 : h(startRow, startCol, startSupply);
+    if (!breadthFirst)
+      metrics.heuristicEvaluated();
+    bucket(startPriority).buffer.add(State.key(startRow, startCol, startSupply), NO_STATE, 0, 0,
+        SpillFile.NO_MOVE);
+    buffered = 1;
+
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+    int layers = 0;
+    while (!buckets.isEmpty()) {
+      Map.Entry<Integer, Bucket> next = buckets.pollFirstEntry();
+      metrics.iteration(++layers, next.getKey());
+      String result = expandLayer(next.getKey(), next.getValue(), dirs);
+      if (result != null)
+        return result;
+    }
+    metrics.searchFinished(false, 0);
+    if (breadthFirst)
+      return "no path";
+    return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace + "\nCost: inf";
+  }
+
+  // Loads a bucket and expands it with everything it reaches at or below its priority; returns
+  // the result once the goal is generated
+  private String expandLayer(int priority, Bucket bucket, Direction[] dirs) {
+    pool = new NodePool(board.getCols());
+    parentKey = new long[64];
+    nodeSeq = new long[64];
+    OpenList openList = OpenList.create("heap", pool, newFirst);
+    LongIntMap openMap = new LongIntMap();
+    load(priority, bucket, openList, openMap);
+
+    while (!openList.isEmpty()) {
+      int current = openList.poll();
+      long currentKey = pool.key(current);
+      openMap.remove(currentKey);
+      if (closed.indexOf(currentKey) >= 0)
+        continue; // superseded by a cheaper copy
+      Direction currentMove = pool.move(current);
+      int g = pool.g(current);
+      closed.add(currentKey, parentKey[current], nodeSeq[current], g,
+          currentMove == null ? SpillFile.NO_MOVE : currentMove.ordinal());
+      expansions++;
+      metrics.expanded();
+      metrics.frontier(openList.size() + buffered,
+          (int) Math.min(Integer.MAX_VALUE, closed.size + closedSize()));
+
+      int row = pool.row(current);
+      int col = pool.col(current);
+      boolean supply = pool.supply(current);
+      long parent = parentKey[current];
+      int parentRow = parent == NO_STATE ? -1 : State.keyRow(parent);
+      int parentCol = parent == NO_STATE ? -1 : State.keyCol(parent);
+      boolean parentSupply = parent != NO_STATE && State.keySupply(parent);
+
+      for (int i = 0; i < dirs.length; i++) {
+        Direction dir = dirs[i];
+        int newR, newC;
+        if (dir == Direction.Ent) {
+          int exit = board.isTunnel(row, col) ? board.getTunnelExitIndex(row, col) : -1;
+          if (exit < 0)
+            continue;
+          newR = exit / board.getCols();
+          newC = exit % board.getCols();
+        } else {
+          newR = row + dir.dr;
+          newC = col + dir.dc;
+        }
+        if (!board.isLegal(newR, newC, supply, parentRow, parentCol, parentSupply))
+          continue;
+        int newG = g + board.getPositionValue(newR, newC, dir);
+        boolean newSupply = supply || board.isSupplyStation(newR, newC);
+
+        // BFS counts the goal move, AStar does not
+        if (breadthFirst)
+          generatedNodesCount++;
+        metrics.generated();
+        if (board.isGoal(newR, newC))
+          return result(currentKey, dir, newG);
+
+        int newPriority;
+        if (breadthFirst) {
+          newPriority = priority + 1;
+        } else {
+          newPriority = newG + h(newR, newC, newSupply);
+          metrics.heuristicEvaluated();
+          generatedNodesCount++;
+        }
+        long nextKey = State.key(newR, newC, newSupply);
+        long seq = expansions * dirs.length + i; // generation order, AStar's node id order
+
+        if (newPriority > priority) {
+          // Checked against the closed states when its bucket is loaded
+          if (bucket(newPriority).buffer.add(nextKey, currentKey, seq, newG, dir.ordinal())) {
+            if (++buffered >= bufferRecords / 2)
+              spillOpen();
+          } else {
+            metrics.duplicatePruned();
+          }
+          continue;
+        }
+
+        // Not above this layer (the heuristic is not consistent): queued at once, as AStar does
+        if (closed.indexOf(nextKey) >= 0 || closedRunIndex(nextKey) != null) {
+          metrics.duplicatePruned();
+          continue;
+        }
+        int existing = openMap.get(nextKey, NodePool.NONE);
+        if (existing != NodePool.NONE && newG >= pool.g(existing)) {
+          metrics.duplicatePruned();
+          continue;
+        }
+        int next = addNode(nextKey, currentKey, seq, newG, newPriority - newG, dir.ordinal());
+        openList.add(next);
+        openMap.put(nextKey, next);
+        if (existing != NodePool.NONE)
+          metrics.reopened();
+      }
+    }
+
+    if (closed.size >= bufferRecords / 2)
+      flushClosed();
+    return null;
+  }
+
+  // Merges the bucket's runs and buffer by state into the layer, first generated copy first
+  private void load(int priority, Bucket bucket, OpenList openList, LongIntMap openMap) {
+    buffered -= bucket.buffer.size;
+    PriorityQueue<Cursor> inputs = new PriorityQueue<>();
+    for (Segment segment : bucket.segments) {
+      Cursor cursor = new Cursor(segment.run, segment.from, segment.to, null);
+      if (cursor.next())
+        inputs.add(cursor);
+    }
+    Cursor memory = new Cursor(null, 0, 0, bucket.buffer);
+    if (memory.next())
+      inputs.add(memory);
+
+    // Delayed duplicate detection: one sorted sweep over the closed runs
+    Buffer layer = new Buffer();
+    long[] runPosition = new long[closedRuns.size()];
+    long previous = NO_STATE;
+    while (!inputs.isEmpty()) {
+      Cursor cursor = inputs.poll();
+      long key = cursor.key;
+      if (key == previous || closed.indexOf(key) >= 0 || inClosedRuns(key, runPosition))
+        metrics.duplicatePruned();
+      else
+        layer.add(key, cursor.parent, cursor.seq, cursor.g, cursor.move);
+      previous = key;
+      if (cursor.next())
+        inputs.add(cursor);
+    }
+
+    // Node ids in generation order, so the open list breaks f ties as AStar's ids do
+    for (int i : order(layer.seq, layer.size)) {
+      int node = addNode(layer.key[i], layer.parent[i], layer.seq[i], layer.g[i],
+          priority - layer.g[i], layer.move[i]);
+      openList.add(node);
+      openMap.put(layer.key[i], node);
+    }
+  }
+
+  private int addNode(long key, long parent, long seq, int g, int h, int move) {
+    int node = pool.add(State.keyRow(key), State.keyCol(key), State.keySupply(key), g, h,
+        NodePool.NONE, move == SpillFile.NO_MOVE ? null : DIRECTIONS[move]);
+    if (node == parentKey.length) {
+      parentKey = Arrays.copyOf(parentKey, node << 1);
+      nodeSeq = Arrays.copyOf(nodeSeq, node << 1);
+    }
+    parentKey[node] = parent;
+    nodeSeq[node] = seq;
+    maxSpace = Math.max(maxSpace, pool.size() + buffered + closed.size);
+    return node;
+  }
+
+  private Bucket bucket(int priority) {
+    return buckets.computeIfAbsent(priority, p -> new Bucket());
+  }
+
+  private int h(int r, int c, boolean supply) {
+    return (int) heuristic.get(r, c, supply);
+  }
+
+  // --- Spilling ---
+
+  // Writes every bucket buffer to one run, each bucket's records as a segment sorted by key
+  private void spillOpen() {
+    SpillFile.Writer writer = new SpillFile.Writer(spillDirectory);
+    List<Bucket> spilled = new ArrayList<>();
+    List<Long> bounds = new ArrayList<>();
+    for (Bucket bucket : buckets.values()) {
+      if (bucket.buffer.size == 0)
+        continue;
+      spilled.add(bucket);
+      bounds.add(writer.size());
+      bucket.buffer.writeSorted(writer);
+      bucket.buffer.clear();
+    }
+    bounds.add(writer.size());
+    SpillFile run = writer.finish();
+    for (int i = 0; i < spilled.size(); i++)
+      spilled.get(i).segments.add(new Segment(run, bounds.get(i), bounds.get(i + 1)));
+    buffered = 0;
+  }
+
+  // Writes the closed buffer as a run, then merges runs until each is more than twice the next
+  private void flushClosed() {
+    SpillFile.Writer writer = new SpillFile.Writer(spillDirectory);
+    closed.writeSorted(writer);
+    closed.clear();
+    closedRuns.add(writer.finish());
+    int n;
+    while ((n = closedRuns.size()) > 1
+        && closedRuns.get(n - 2).size() <= 2 * closedRuns.get(n - 1).size()) {
+      SpillFile merged = merge(closedRuns.get(n - 2), closedRuns.get(n - 1));
+      closedRuns.remove(n - 1);
+      closedRuns.set(n - 2, merged);
+    }
+  }
+
+  // Two closed runs with no state in common, merged by key
+  private SpillFile merge(SpillFile a, SpillFile b) {
+    SpillFile.Writer writer = new SpillFile.Writer(spillDirectory);
+    long i = 0, j = 0;
+    while (i < a.size() || j < b.size()) {
+      if (j == b.size() || (i < a.size() && a.key(i) < b.key(j)))
+        writer.append(a, i++);
+      else
+        writer.append(b, j++);
+    }
+    return writer.finish();
+  }
+
+  // Membership during a sweep in increasing key order; positions advance monotonically
+  private boolean inClosedRuns(long key, long[] positions) {
+    for (int r = 0; r < positions.length; r++) {
+      SpillFile run = closedRuns.get(r);
+      positions[r] = run.seek(positions[r], key);
+      if (positions[r] < run.size() && run.key(positions[r]) == key)
+        return true;
+    }
+    return false;
+  }
+
+  // The closed run holding a state and its index there, or null
+  private long[] closedRunIndex(long key) {
+    for (int r = 0; r < closedRuns.size(); r++) {
+      long i = closedRuns.get(r).find(key);
+      if (i >= 0)
+        return new long[] {r, i};
+    }
+    return null;
+  }
+
+  private long closedSize() {
+    long size = 0;
+    for (SpillFile run : closedRuns)
+      size += run.size();
+    return size;
+  }
+
+  // --- Result ---
+
+  // Walks parent keys back from the goal's parent through the closed records
+  private String result(long parent, Direction last, int cost) {
+    Deque<String> moves = new ArrayDeque<>();
+    moves.push(last.name());
+    for (long state = parent; ; ) {
+      int move;
+      int i = closed.indexOf(state);
+      if (i >= 0) {
+        move = closed.move[i];
+        state = closed.parent[i];
+      } else {
+        long[] at = closedRunIndex(state);
+        if (at == null)
+          throw new IllegalStateException("Closed state lost: " + State.keyToId(state));
+        SpillFile run = closedRuns.get((int) at[0]);
+        move = run.move(at[1]);
+        state = run.parent(at[1]);
+      }
+      if (move == SpillFile.NO_MOVE)
+        break;
+      moves.push(DIRECTIONS[move].name());
+    }
+    metrics.searchFinished(true, cost);
+    String path = String.join("-", moves);
+    if (breadthFirst)
+      return path + "\n" + "Num: " + generatedNodesCount + "\n" + "Max space: " + maxSpace + "\n"
+          + "Cost: " + (double) cost;
+    return path + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace + "\nCost: " + cost;
+  }
+
+  // Positions 0..size-1 ordered by their values, which are distinct
+  private static int[] order(long[] values, int size) {
+    long[] sorted = Arrays.copyOf(values, size);
+    Arrays.sort(sorted);
+    LongIntMap position = new LongIntMap(size);
+    for (int i = 0; i < size; i++)
+      position.put(values[i], i);
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++)
+      order[i] = position.get(sorted[i], -1);
+    return order;
+  }
+
+  // --- Records ---
+
+  /** Open records of one priority: spilled segments plus a buffer. */
+  private static final class Bucket {
+    final List<Segment> segments = new ArrayList<>();
+    final Buffer buffer = new Buffer();
+  }
+
+  private static final class Segment {
+    final SpillFile run;
+    final long from;
+    final long to;
+
+    Segment(SpillFile run, long from, long to) {
+      this.run = run;
+      this.from = from;
+      this.to = to;
+    }
+  }
+
+  /** Records in memory, at most one per state: the first one added, the earliest generated. */
+  private static final class Buffer {
+    long[] key = new long[16];
+    long[] parent = new long[16];
+    long[] seq = new long[16];
+    int[] g = new int[16];
+    byte[] move = new byte[16];
+    int size = 0;
+    private LongIntMap index = new LongIntMap();
+
+    boolean add(long k, long p, long s, int gValue, int m) {
+      if (index.containsKey(k))
+        return false;
+      if (size == key.length) {
+        key = Arrays.copyOf(key, size << 1);
+        parent = Arrays.copyOf(parent, size << 1);
+        seq = Arrays.copyOf(seq, size << 1);
+        g = Arrays.copyOf(g, size << 1);
+        move = Arrays.copyOf(move, size << 1);
+      }
+      key[size] = k;
+      parent[size] = p;
+      seq[size] = s;
+      g[size] = gValue;
+      move[size] = (byte) m;
+      index.put(k, size++);
+      return true;
+    }
+
+    int indexOf(long k) {
+      return index.get(k, -1);
+    }
+
+    void writeSorted(SpillFile.Writer writer) {
+      for (int i : order(key, size))
+        writer.append(key[i], parent[i], seq[i], g[i], move[i]);
+    }
+
+    // Drops the records and gives the memory back
+    void clear() {
+      key = new long[16];
+      parent = new long[16];
+      seq = new long[16];
+      g = new int[16];
+      move = new byte[16];
+      size = 0;
+      index = new LongIntMap();
+    }
+  }
+
+  /** Merge input over a run segment or a buffer in key order, holding its current record. */
+  private static final class Cursor implements Comparable<Cursor> {
+    private final SpillFile run;
+    private long position;
+    private final long end;
+    private final int[] order; // buffer positions by key
+    private final Buffer buffer;
+    long key, parent, seq;
+    int g, move;
+
+    Cursor(SpillFile run, long from, long to, Buffer buffer) {
+      this.run = run;
+      this.position = from;
+      this.end = buffer == null ? to : buffer.size;
+      this.buffer = buffer;
+      this.order = buffer == null ? null : order(buffer.key, buffer.size);
+    }
+
+    boolean next() {
+      if (position == end)
+        return false;
+      if (run != null) {
+        key = run.key(position);
+        parent = run.parent(position);
+        seq = run.seq(position);
+        g = run.g(position);
+        move = run.move(position);
+      } else {
+        int i = order[(int) position];
+        key = buffer.key[i];
+        parent = buffer.parent[i];
+        seq = buffer.seq[i];
+        g = buffer.g[i];
+        move = buffer.move[i];
+      }
+      position++;
+      return true;
+    }
+
+    // By state, then earliest generated
+    @Override
+    public int compareTo(Cursor other) {
+      return key != other.key ? Long.compare(key, other.key) : Long.compare(seq, other.seq);
+    }
+  }
+
+  @Override
+  public String returnResult(State next) {
+    return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
@@ -0,0 +1,361 @@
+import java.util.*;
+
+/**
+ * Frontier A* ("A* frontier"): A* that keeps no closed list, only the open nodes. Each open node
+ * remembers which of its moves lead back into the expanded interior (used-operator bits, set when
+ * a neighbour generates it), so the interior is never regenerated and can be dropped as soon as a
+ * node is expanded. Peak memory follows the width of the frontier instead of the explored area.
+ *
+ * <p>Without parent pointers the path is rebuilt by divide and conquer: every node carries one
+ * relay state, the first state on its path past half the estimated cost. When the goal is reached
+ * its relay splits the problem into start -> relay and relay -> goal, each solved the same way
+ * with its exact cost as a bound, until segments are a single move. The heuristic is
+ * PortalHeuristic, whose consistency means an expanded state is never reached more cheaply later.
+ *
+ * <p>Steps within a supply layer can be undone, so the used bits cover them. A tunnel can be
+ * undone only when its exit leads back: a digit on three or more cells pairs later ends with the
+ * first, which exits to the second, so an Ent into the first end sets no bit. Picking up supply is
+ * one-way, so the few supplied supply-station states are kept in a small closed set. Cost matches
+ * AStar's; "Num" counts generated nodes over all segment searches, "Max space" the largest
+ * frontier.
+ */
+public class FrontierSearch implements Algorithm {
+
+  private static final int INF = Integer.MAX_VALUE;
+  private static final int NONE = -1;
+  private static final long NO_STATE = -1;
+  private static final Direction[] DIRECTIONS = Direction.values();
+
+  private final boolean clockwise;
+
+  // Frontier nodes, one slot each; slots are freed on expansion and reused
+  private long[] key, relay;
+  private int[] g, f, relayG, heap, heapPos;
+  private short[] used; // bit per direction leading back into the interior
+  private byte[] move; // direction of the last move, -1 for the segment start
+  private int[] free;
+  private int freeCount, allocated, heapSize;
+  private final LongIntMap slots = new LongIntMap(); // state -> frontier slot
+
+  private Board board;
+  private int generatedNodesCount = 0;
+  private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  public FrontierSearch(String order) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("A* frontier");
+    this.board = board;
+    generatedNodesCount = 0;
+    maxSpace = 0;
+    init(256);
+
+    int startRow = board.getStartRow();
+    int startCol = board.getStartCol();
+    long start = State.key(startRow, startCol, board.isSupplyStation(startRow, startCol));
+    Segment whole = search(start, board.getGoalRow(), board.getGoalCol(), NO_STATE, INF);
+    if (whole == null) {
+      metrics.searchFinished(false, 0);
+      return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+          + "\nCost: inf";
+    }
+    List<String> moves = new ArrayList<>();
+    rebuild(start, whole, moves);
+    metrics.searchFinished(true, whole.cost);
+    return String.join("-", moves) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + whole.cost;
+  }
+
+  /** Result of one segment search: its cost and how to split it. */
+  private static final class Segment {
+    final int cost;
+    final long target; // the state reached
+    final long relay; // NO_STATE if the segment is a single move
+    final int relayG;
+    final Direction lastMove;
+
+    Segment(int cost, long target, long relay, int relayG, Direction lastMove) {
+      this.cost = cost;
+      this.target = target;
+      this.relay = relay;
+      this.relayG = relayG;
+      this.lastMove = lastMove;
+    }
+  }
+
+  // Appends the moves of an already searched segment, splitting it at its relay
+  private void rebuild(long from, Segment segment, List<String> moves) {
+    if (segment.relay == NO_STATE) {
+      moves.add(segment.lastMove.name());
+      return;
+    }
+    long relay = segment.relay;
+    Segment first = search(from, State.keyRow(relay), State.keyCol(relay), relay, segment.relayG);
+    Segment second = search(relay, State.keyRow(segment.target), State.keyCol(segment.target),
+        segment.target, segment.cost - segment.relayG);
+    if (first == null || second == null)
+      throw new IllegalStateException("Segment lost its path while rebuilding"); // not reachable
+    rebuild(from, first, moves);
+    rebuild(relay, second, moves);
+  }
+
+  /**
+   * Frontier A* from one state to a target cell (in the given supply layer, or either layer when
+   * targetState is NO_STATE); bound is the known cost or INF. Null if the target is unreachable.
+   */
+  private Segment search(long from, int targetRow, int targetCol, long targetState, int bound) {
+    clear();
+    PortalHeuristic heuristic = new PortalHeuristic(board, targetRow, targetCol);
+    LongSet closedStations = new LongSet(); // supplied supply stations already expanded
+    int fromRow = State.keyRow(from);
+    int fromCol = State.keyCol(from);
+    // Relays are chosen past half the cost: exact for inner segments, estimated for the whole
+    int half = (bound != INF ? bound : heuristic.cost(fromRow, fromCol)) / 2;
+
+    int s = allocate();
+    set(s, from, 0, heuristic.cost(fromRow, fromCol), NO_STATE, 0, -1);
+    used[s] = 0;
+    slots.put(from, s);
+    push(s);
+    metrics.heuristicEvaluated();
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+
+    // Nodes past the bound still go in the frontier so their used bits are kept, but are never
+    // expanded: a dropped node could later come back without them and reopen the interior
+    while (heapSize > 0 && f[heap[0]] <= bound) {
+      int u = pop();
+      long uKey = key[u];
+      int row = State.keyRow(uKey);
+      int col = State.keyCol(uKey);
+      boolean supply = State.keySupply(uKey);
+      if (isTarget(row, col, supply, targetRow, targetCol, targetState)) {
+        Segment found = new Segment(g[u], uKey, relay[u], relayG[u],
+            move[u] < 0 ? null : DIRECTIONS[move[u]]);
+        clear();
+        return found;
+      }
+      metrics.expanded();
+      metrics.frontier(heapSize, 0);
+      int gu = g[u];
+      long uRelay = relay[u];
+      int uRelayG = relayG[u];
+      short uUsed = used[u];
+      slots.remove(uKey);
+      release(u);
+      if (supply && board.isSupplyStation(row, col))
+        closedStations.add(uKey);
+
+      for (Direction dir : dirs) {
+        if ((uUsed & 1 << dir.ordinal()) != 0)
+          continue; // leads back into the interior
+        int newR, newC;
+        if (dir == Direction.Ent) {
+          int exit = board.isTunnel(row, col) ? board.getTunnelExitIndex(row, col) : -1;
+          if (exit < 0)
+            continue;
+          newR = exit / board.getCols();
+          newC = exit % board.getCols();
+        } else {
+          newR = row + dir.dr;
+          newC = col + dir.dc;
+        }
+        if (!board.isLegal(newR, newC, supply, -1, -1, false))
+          continue;
+        boolean newSupply = supply || board.isSupplyStation(newR, newC);
+        boolean target = isTarget(newR, newC, newSupply, targetRow, targetCol, targetState);
+        if (!target && board.isGoal(newR, newC))
+          continue; // the goal ends every path, it is never passed through
+        long newKey = State.key(newR, newC, newSupply);
+        if (newSupply && !supply && closedStations.contains(newKey)) {
+          metrics.duplicatePruned();
+          continue; // one-way move into an expanded state
+        }
+        int newG = gu + board.getPositionValue(newR, newC, dir);
+        int newF = newG + (target ? 0 : heuristic.cost(newR, newC));
+        generatedNodesCount++;
+        metrics.generated();
+        metrics.heuristicEvaluated();
+
+        // The relay is the first state past half the cost; a target never relays itself
+        long newRelay = uRelay;
+        int newRelayG = uRelayG;
+        if (newRelay == NO_STATE && (target ? gu > 0 : newG >= half)) {
+          newRelay = target ? uKey : newKey;
+          newRelayG = target ? gu : newG;
+        }
+        // The step back into u, if v has one: a tunnel end may exit to a third end instead
+        int back = 0;
+        if (newSupply == supply && dir != Direction.Ent)
+          back = 1 << (dir.ordinal() + 4) % 8;
+        else if (newSupply == supply
+            && board.getTunnelExitIndex(newR, newC) == row * board.getCols() + col)
+          back = 1 << dir.ordinal();
+
+        int existing = slots.get(newKey, NONE);
+        if (existing == NONE) {
+          int v = allocate();
+          set(v, newKey, newG, newF, newRelay, newRelayG, dir.ordinal());
+          used[v] = (short) back;
+          slots.put(newKey, v);
+          push(v);
+          maxSpace = Math.max(maxSpace, heapSize);
+        } else {
+          used[existing] |= back;
+          if (newG < g[existing]) {
+            set(existing, newKey, newG, newF, newRelay, newRelayG, dir.ordinal());
+            siftUp(heapPos[existing]);
+            metrics.reopened();
+          } else {
+            metrics.duplicatePruned();
+          }
+        }
+      }
+    }
+    clear();
+    return null;
+  }
+
+  private static boolean isTarget(int r, int c, boolean supply, int targetRow, int targetCol,
+      long targetState) {
+    return r == targetRow && c == targetCol
+        && (targetState == NO_STATE || State.key(r, c, supply) == targetState);
+  }
+
+  // --- Frontier storage ---
+
+  private void init(int capacity) {
+    key = new long[capacity];
+    relay = new long[capacity];
+    g = new int[capacity];
+    f = new int[capacity];
+    relayG = new int[capacity];
+    heap = new int[capacity];
+    heapPos = new int[capacity];
+    used = new short[capacity];
+    move = new byte[capacity];
+    free = new int[capacity];
+    clear();
+  }
+
+  private void clear() {
+    freeCount = 0;
+    allocated = 0;
+    heapSize = 0;
+    slots.clear();
+  }
+
+  private int allocate() {
+    if (freeCount > 0)
+      return free[--freeCount];
+    if (allocated == key.length) {
+      int capacity = key.length << 1;
+      key = Arrays.copyOf(key, capacity);
+      relay = Arrays.copyOf(relay, capacity);
+      g = Arrays.copyOf(g, capacity);
+      f = Arrays.copyOf(f, capacity);
+      relayG = Arrays.copyOf(relayG, capacity);
+      heap = Arrays.copyOf(heap, capacity);
+      heapPos = Arrays.copyOf(heapPos, capacity);
+      used = Arrays.copyOf(used, capacity);
+      move = Arrays.copyOf(move, capacity);
+      free = Arrays.copyOf(free, capacity);
+    }
+    return allocated++;
+  }
+
+  private void release(int slot) {
+    free[freeCount++] = slot;
+  }
+
+  private void set(int slot, long state, int gValue, int fValue, long relayState, int relayCost,
+      int dir) {
+    key[slot] = state;
+    g[slot] = gValue;
+    f[slot] = fValue;
+    relay[slot] = relayState;
+    relayG[slot] = relayCost;
+    move[slot] = (byte) dir;
+  }
+
+  // --- Indexed binary heap by (f, larger g first) ---
+
+  private boolean before(int a, int b) {
+    return f[a] != f[b] ? f[a] < f[b] : g[a] > g[b];
+  }
+
+  private void push(int slot) {
+    heap[heapSize] = slot;
+    heapPos[slot] = heapSize;
+    siftUp(heapSize++);
+  }
+
+  private int pop() {
+    int top = heap[0];
+    int last = heap[--heapSize];
+    if (heapSize > 0) {
+      heap[0] = last;
+      heapPos[last] = 0;
+      siftDown(0);
+    }
+    return top;
+  }
+
+  private void siftUp(int i) {
+    int slot = heap[i];
+    while (i > 0) {
+      int p = (i - 1) >>> 1;
+      if (!before(slot, heap[p]))
+        break;
+      heap[i] = heap[p];
+      heapPos[heap[i]] = i;
+      i = p;
+    }
+    heap[i] = slot;
+    heapPos[slot] = i;
+  }
+
+  private void siftDown(int i) {
+    int slot = heap[i];
+    while (true) {
+      int c = 2 * i + 1;
+      if (c >= heapSize)
+        break;
+      if (c + 1 < heapSize && before(heap[c + 1], heap[c]))
+        c++;
+      if (!before(heap[c], slot))
+        break;
+      heap[i] = heap[c];
+      heapPos[heap[i]] = i;
+      i = c;
+    }
+    heap[i] = slot;
+    heapPos[slot] = i;
+  }
+
+  @Override
+  public String returnResult(State next) {
+    return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
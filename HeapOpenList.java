@@ -0,0 +1,83 @@
+import java.util.*;
+
+/** OpenList over a binary heap of node ids; improved nodes are re-added (lazy deletion). */
+public class HeapOpenList implements OpenList {
+
+  private final NodePool pool;
+  private final boolean newFirst;
+  private int[] heap = new int[64];
+  private int size = 0;
+
+  public HeapOpenList(NodePool pool, boolean newFirst) {
+    this.pool = pool;
+    this.newFirst = newFirst;
+  }
+
+  @Override
+  public void add(int node) {
+    if (size == heap.length)
+      heap = Arrays.copyOf(heap, size << 1);
+    int i = size++;
+    while (i > 0) {
+      int p = (i - 1) >>> 1;
+      if (pool.compare(heap[p], node, newFirst) <= 0)
+        break;
+      heap[i] = heap[p];
+      i = p;
+    }
+    heap[i] = node;
+  }
+
+  @Override
+  public int poll() {
+    if (size == 0)
+      return NodePool.NONE;
+    int top = heap[0];
+    int last = heap[--size];
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && pool.compare(heap[child + 1], heap[child], newFirst) < 0)
+        child++;
+      if (pool.compare(last, heap[child], newFirst) <= 0)
+        break;
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = last;
+    return top;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean update(int oldNode, int node) {
+    return false;
+  }
+
+  @Override
+  public int[] snapshot() {
+    return sorted(pool, heap, size, newFirst);
+  }
+
+  // Copy of the first size ids sorted into pop order
+  static int[] sorted(NodePool pool, int[] nodes, int size, boolean newFirst) {
+    Integer[] boxed = new Integer[size];
+    for (int i = 0; i < size; i++)
+      boxed[i] = nodes[i];
+    Arrays.sort(boxed, (a, b) -> pool.compare(a, b, newFirst));
+    int[] order = new int[size];
+    for (int i = 0; i < size; i++)
+      order[i] = boxed[i];
+    return order;
+  }
+}
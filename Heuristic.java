@@ -0,0 +1,12 @@
+/**
+ * Estimate of the remaining cost from a state to the goal, as used by AStar and IDAStar.
+ * Implementations: HeuristicTable (tunnel-aware Chebyshev, may overestimate when tunnels chain),
+ * PortalHeuristic (consistent lower bound) and DistanceField (exact).
+ */
+public interface Heuristic {
+  double get(int r, int c, boolean supply);
+
+  default double get(State s) {
+    return get(s.row, s.col, s.SupplyStation);
+  }
+}
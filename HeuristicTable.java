@@ -0,0 +1,72 @@
+import java.util.List;
+
+/**
+ * Tunnel-aware Chebyshev estimate h(n) for every cell of a board, computed once into a flat array
+ * (index r * cols + c) so AStar and IDAStar look it up in O(1).
+ *
+ * <p>h(n) = min(Chebyshev(n, goal), Chebyshev(n, tunnel_in) + 2 + Chebyshev(tunnel_out, goal))
+ * over every tunnel pair, taken in both directions since tunnels can be entered from either end.
+ * Built lazily through {@link Board#getHeuristicTable()} and reused by every solve on that board.
+ *
+ * <p>Only one tunnel is taken per path, so h(n) is a lower bound only while tunnels do not chain.
+ * When a tunnel's exit is near another tunnel's entrance, the real cost through both can be below
+ * h(n), and AStar / IDAStar may return a Cost above the optimum. Engines that need a guaranteed
+ * lower bound use PortalHeuristic, which follows chains, or the exact DistanceField.
+ */
+public class HeuristicTable implements Heuristic {
+
+  private static final int ENTER_TUNNEL_COST = 2;
+
+  private final int cols;
+  private final int[] h;
+
+  public HeuristicTable(Board board) {
+    this(board, board.getGoalRow(), board.getGoalCol());
+  }
+
+  public HeuristicTable(Board board, int goalRow, int goalCol) {
+    int rows = board.getRows();
+    this.cols = board.getCols();
+    this.h = new int[rows * cols];
+
+    // Each tunnel end contributes (its position, cost of going through it and on to the goal)
+    List<int[]> tunnels = board.getAllTunnels();
+    int[] endR = new int[tunnels.size() * 2];
+    int[] endC = new int[endR.length];
+    int[] via = new int[endR.length];
+    int ends = 0;
+    for (int[] t : tunnels) {
+      endR[ends] = t[0];
+      endC[ends] = t[1];
+      via[ends++] = ENTER_TUNNEL_COST + chebyshev(t[2], t[3], goalRow, goalCol);
+      endR[ends] = t[2];
+      endC[ends] = t[3];
+      via[ends++] = ENTER_TUNNEL_COST + chebyshev(t[0], t[1], goalRow, goalCol);
+    }
+
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < cols; c++) {
+        int best = chebyshev(r, c, goalRow, goalCol);
+        for (int e = 0; e < ends; e++) {
+          int viaTunnel = chebyshev(r, c, endR[e], endC[e]) + via[e];
+          if (viaTunnel < best)
+            best = viaTunnel;
+        }
+        h[r * cols + c] = best;
+      }
+    }
+  }
+
+  public double get(int r, int c) {
+    return h[r * cols + c];
+  }
+
+  @Override
+  public double get(int r, int c, boolean supply) {
+    return h[r * cols + c];
+  }
+
+  private static int chebyshev(int r1, int c1, int r2, int c2) {
+    return Math.max(Math.abs(r1 - r2), Math.abs(c1 - c2));
+  }
+}
@@ -0,0 +1,344 @@
+import java.util.*;
+
+/**
+ * Hierarchical A* (HPA*, "A* hpa") over the board's cached {@link HierarchicalGraph}. A query links
+ * the start and goal to the abstract nodes of their clusters, runs A* on the small abstract graph,
+ * then refines each abstract edge into single moves (intra-cluster paths are recomputed inside
+ * their cluster). The abstraction is built once per map and reused by every query on it.
+ *
+ * <p>The default mode is fast and near-optimal: paths are restricted to the chosen entrances.
+ * "A* hpa exact" then runs A* on the full board, pruning every node whose f is not below the
+ * refined path's cost, so it returns an optimal Cost while the bound keeps the open list small.
+ * Both searches use PortalHeuristic, a consistent lower bound also when tunnels chain, which
+ * the cut against the bound needs.
+ * "Num" counts abstract nodes generated (plus full-board nodes in exact mode).
+ */
+public class HierarchicalAStar implements Algorithm {
+
+  private final boolean clockwise;
+  private final boolean newFirst;
+  private final boolean exact;
+
+  private int generatedNodesCount = 0;
+  private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  public HierarchicalAStar(String order, String tieBreaker, boolean exact) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.newFirst = "new-first".equals(tieBreaker);
+    this.exact = exact;
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted(exact ? "A* hpa exact" : "A* hpa");
+    HierarchicalGraph graph = board.getHierarchy();
+    Heuristic heuristic = new PortalHeuristic(board, board.getGoalRow(), board.getGoalCol());
+    int cols = board.getCols();
+    int startCell = board.getStartRow() * cols + board.getStartCol();
+    int goalCell = board.getGoalRow() * cols + board.getGoalCol();
+    HierarchicalGraph.ClusterSearch search = graph.newSearch(goalCell);
+
+    // Abstract nodes 0..n-1, then the start and the goal of this query
+    int n = graph.nodeCount();
+    int start = n;
+    int goal = n + 1;
+
+    // Start: every abstract node of its cluster, and the goal if it is in the same cluster
+    int[] startNodes = graph.clusterNodes(graph.clusterOf(startCell));
+    int[] startCost = new int[startNodes.length];
+    search.run(startCell, false);
+    for (int i = 0; i < startNodes.length; i++)
+      startCost[i] = search.dist(graph.cell(startNodes[i]), graph.supply(startNodes[i]));
+    int startToGoal = graph.clusterOf(startCell) == graph.clusterOf(goalCell)
+        ? goalDistance(search, goalCell) : Integer.MAX_VALUE;
+
+    // Goal: from every abstract node of its cluster
+    int goalCluster = graph.clusterOf(goalCell);
+    LongIntMap toGoal = new LongIntMap(); // node -> cost to the goal
+    for (int u : graph.clusterNodes(goalCluster)) {
+      search.run(graph.cell(u), graph.supply(u));
+      int d = goalDistance(search, goalCell);
+      if (d != Integer.MAX_VALUE)
+        toGoal.put(u, d);
+    }
+
+    // A* on the abstract graph, keyed by f then creation order per the tie-break
+    int[] g = new int[n + 2];
+    Arrays.fill(g, Integer.MAX_VALUE);
+    int[] parent = new int[n + 2];
+    int[] via = new int[n + 2]; // move of the edge into the node, HierarchicalGraph.INTRA for paths
+    boolean[] closed = new boolean[n + 2];
+    PriorityQueue<long[]> open = new PriorityQueue<>((a, b) -> a[0] != b[0]
+        ? Long.compare(a[0], b[0]) : newFirst ? Long.compare(b[1], a[1]) : Long.compare(a[1], b[1]));
+    long created = 0;
+    g[start] = 0;
+    parent[start] = -1;
+    open.add(new long[] {h(heuristic, startCell, false, cols), created++, start});
+    maxSpace = 1;
+
+    while (!open.isEmpty()) {
+      int u = (int) open.poll()[2];
+      if (closed[u])
+        continue;
+      closed[u] = true;
+      metrics.expanded();
+      metrics.frontier(open.size(), 0);
+      if (u == goal)
+        break;
+
+      if (u == start) {
+        for (int i = 0; i < startNodes.length; i++)
+          if (startCost[i] != Integer.MAX_VALUE)
+            created = relax(open, g, parent, via, u, startNodes[i], startCost[i],
+                HierarchicalGraph.INTRA, graph, heuristic, cols, created);
+        if (startToGoal != Integer.MAX_VALUE)
+          created = relax(open, g, parent, via, u, goal, startToGoal, HierarchicalGraph.INTRA,
+              graph, heuristic, cols, created);
+        continue;
+      }
+      for (int e = graph.edgeStart(u); e < graph.edgeEnd(u); e++)
+        created = relax(open, g, parent, via, u, graph.edgeTo(e), graph.edgeCost(e),
+            graph.edgeMove(e), graph, heuristic, cols, created);
+      int d = toGoal.get(u, -1);
+      if (d >= 0)
+        created = relax(open, g, parent, via, u, goal, d, HierarchicalGraph.INTRA, graph,
+            heuristic, cols, created);
+    }
+
+    if (g[goal] == Integer.MAX_VALUE) {
+      // No abstract path. Exact mode still searches the board
+      if (exact)
+        return boundedSearch(board, heuristic, Integer.MAX_VALUE, null);
+      metrics.searchFinished(false, 0);
+      return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+          + "\nCost: inf";
+    }
+
+    // Refine: unroll every abstract edge into single moves
+    LinkedList<Direction> moves = new LinkedList<>();
+    for (int v = goal; v != start; v = parent[v]) {
+      int u = parent[v];
+      if (via[v] != HierarchicalGraph.INTRA) {
+        moves.addFirst(Direction.values()[via[v]]);
+        continue;
+      }
+      int fromCell = u == start ? startCell : graph.cell(u);
+      search.run(fromCell, u != start && graph.supply(u));
+      if (v == goal) {
+        moves.addAll(0, search.path(goalCell, goalSupply(search, goalCell)));
+      } else {
+        moves.addAll(0, search.path(graph.cell(v), graph.supply(v)));
+      }
+    }
+    List<Direction> path = trimAtGoal(board, moves);
+    int cost = replayCost(board, path);
+
+    if (exact)
+      return boundedSearch(board, heuristic, cost, path);
+    metrics.searchFinished(true, cost);
+    return join(path) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + cost;
+  }
+
+  private long relax(PriorityQueue<long[]> open, int[] g, int[] parent, int[] via, int u, int v,
+      int cost, int move, HierarchicalGraph graph, Heuristic heuristic, int cols, long created) {
+    generatedNodesCount++;
+    metrics.generated();
+    int newG = g[u] + cost;
+    if (newG >= g[v]) {
+      metrics.duplicatePruned();
+      return created;
+    }
+    if (g[v] != Integer.MAX_VALUE)
+      metrics.reopened();
+    g[v] = newG;
+    parent[v] = u;
+    via[v] = move;
+    long h = v < graph.nodeCount() ? h(heuristic, graph.cell(v), graph.supply(v), cols) : 0;
+    metrics.heuristicEvaluated();
+    open.add(new long[] {newG + h, created, v});
+    maxSpace = Math.max(maxSpace, open.size());
+    return created + 1;
+  }
+
+  private static long h(Heuristic heuristic, int cell, boolean supply, int cols) {
+    return (long) heuristic.get(cell / cols, cell % cols, supply);
+  }
+
+  // Cheaper of the two layers at the goal cell
+  private static int goalDistance(HierarchicalGraph.ClusterSearch search, int goalCell) {
+    return Math.min(search.dist(goalCell, false), search.dist(goalCell, true));
+  }
+
+  private static boolean goalSupply(HierarchicalGraph.ClusterSearch search, int goalCell) {
+    return search.dist(goalCell, true) < search.dist(goalCell, false);
+  }
+
+  // The abstraction prices 'G' as floor, so a refined path may cross the goal before its end
+  private static List<Direction> trimAtGoal(Board board, List<Direction> moves) {
+    int r = board.getStartRow();
+    int c = board.getStartCol();
+    List<Direction> path = new ArrayList<>();
+    for (Direction dir : moves) {
+      if (dir == Direction.Ent) {
+        int exit = board.getTunnelExitIndex(r, c);
+        r = exit / board.getCols();
+        c = exit % board.getCols();
+      } else {
+        r += dir.dr;
+        c += dir.dc;
+      }
+      path.add(dir);
+      if (board.isGoal(r, c))
+        break;
+    }
+    return path;
+  }
+
+  // Cost of a path on the query board itself
+  private static int replayCost(Board board, List<Direction> path) {
+    int r = board.getStartRow();
+    int c = board.getStartCol();
+    int cost = 0;
+    for (Direction dir : path) {
+      if (dir == Direction.Ent) {
+        int exit = board.getTunnelExitIndex(r, c);
+        r = exit / board.getCols();
+        c = exit % board.getCols();
+      } else {
+        r += dir.dr;
+        c += dir.dc;
+      }
+      cost += board.getPositionValue(r, c, dir);
+    }
+    return cost;
+  }
+
+  /**
+   * Exact mode: A* on the board that only keeps nodes with f below the best cost found so far,
+   * starting from the refined abstract path (bound = its cost, null and MAX_VALUE if none).
+   */
+  private String boundedSearch(Board board, Heuristic heuristic, int bound,
+      List<Direction> boundPath) {
+    NodePool pool = new NodePool(board.getCols());
+    OpenList openList = OpenList.create("heap", pool, newFirst);
+    LongIntMap openMap = new LongIntMap();
+    LongIntMap closedG = new LongIntMap(); // reopened if reached cheaper: the result must be exact
+    int best = NodePool.NONE;
+
+    int startRow = board.getStartRow();
+    int startCol = board.getStartCol();
+    int start = pool.add(startRow, startCol, false, 0,
+        (int) heuristic.get(startRow, startCol, false), NodePool.NONE, null);
+    openList.add(start);
+    openMap.put(pool.key(start), start);
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+
+    while (!openList.isEmpty()) {
+      int current = openList.poll();
+      if (pool.f(current) >= bound)
+        break; // nothing left can beat the incumbent
+      long currentKey = pool.key(current);
+      if (openMap.get(currentKey, NodePool.NONE) != current)
+        continue; // superseded by a cheaper copy
+      openMap.remove(currentKey);
+      closedG.put(currentKey, pool.g(current));
+      metrics.expanded();
+      metrics.frontier(openList.size(), closedG.size());
+
+      int row = pool.row(current);
+      int col = pool.col(current);
+      boolean supply = pool.supply(current);
+      for (Direction dir : dirs) {
+        int newR, newC;
+        if (dir == Direction.Ent) {
+          int exit = board.isTunnel(row, col) ? board.getTunnelExitIndex(row, col) : -1;
+          if (exit < 0)
+            continue;
+          newR = exit / board.getCols();
+          newC = exit % board.getCols();
+        } else {
+          newR = row + dir.dr;
+          newC = col + dir.dc;
+        }
+        if (!board.isLegal(newR, newC, supply, -1, -1, false))
+          continue;
+        int newG = pool.g(current) + board.getPositionValue(newR, newC, dir);
+        boolean newSupply = supply || board.isSupplyStation(newR, newC);
+        generatedNodesCount++;
+        metrics.generated();
+        if (board.isGoal(newR, newC)) {
+          if (newG < bound) {
+            bound = newG;
+            best = pool.add(newR, newC, newSupply, newG, 0, current, dir);
+          }
+          continue;
+        }
+        int newH = (int) heuristic.get(newR, newC, newSupply);
+        metrics.heuristicEvaluated();
+        long nextKey = State.key(newR, newC, newSupply);
+        if ((long) newG + newH >= bound || newG >= closedG.get(nextKey, Integer.MAX_VALUE)) {
+          metrics.duplicatePruned();
+          continue;
+        }
+        if (closedG.remove(nextKey))
+          metrics.reopened();
+        int existing = openMap.get(nextKey, NodePool.NONE);
+        if (existing != NodePool.NONE && newG >= pool.g(existing)) {
+          metrics.duplicatePruned();
+          continue;
+        }
+        int next = pool.add(newR, newC, newSupply, newG, newH, current, dir);
+        if (existing == NodePool.NONE || !openList.update(existing, next))
+          openList.add(next);
+        openMap.put(nextKey, next);
+        maxSpace = Math.max(maxSpace, openList.size());
+      }
+    }
+
+    if (best != NodePool.NONE) {
+      metrics.searchFinished(true, bound);
+      return pool.path(best) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+          + "\nCost: " + bound;
+    }
+    if (boundPath == null) {
+      metrics.searchFinished(false, 0);
+      return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+          + "\nCost: inf";
+    }
+    metrics.searchFinished(true, bound);
+    return join(boundPath) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + bound;
+  }
+
+  private static String join(List<Direction> moves) {
+    StringJoiner sj = new StringJoiner("-");
+    for (Direction dir : moves)
+      sj.add(dir.name());
+    return sj.toString();
+  }
+
+  @Override
+  public String returnResult(State next) {
+    return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
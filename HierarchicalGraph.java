@@ -0,0 +1,426 @@
+import java.util.*;
+
+/**
+ * HPA* abstraction of a board. The grid is cut into square clusters; wherever two neighbouring
+ * clusters touch through open cells, an entrance (one crossing per short open stretch of border,
+ * both ends of a long one) adds an abstract node on each side. Tunnel ends are abstract nodes too.
+ * Nodes are (cell, supply) states, so the '~' / supply-station layer is kept exact.
+ *
+ * <p>Edges: a single move across an entrance, an Ent jump from a tunnel end to its exit, and for
+ * every pair of nodes in one cluster the cheapest path that stays inside the cluster (a Dijkstra
+ * over the cluster's two layers, so paths through a '*' change layer on the way). Intra-cluster
+ * paths are not stored; {@link ClusterSearch} recomputes one when a path is refined.
+ *
+ * <p>Built from the board as loaded, with 'S' and 'G' priced as floor, so any start and goal of a
+ * withEndpoints view can use it; see {@link Board#getHierarchy()}.
+ */
+public class HierarchicalGraph {
+
+  public static final int CLUSTER_SIZE = 16;
+  public static final int INTRA = -1; // edge move of an intra-cluster path
+
+  private static final int LONG_ENTRANCE = 6; // open stretches this long get a crossing at each end
+
+  private final Board board;
+  private final int rows;
+  private final int cols;
+  private final int clusterSize;
+  private final int clusterCols;
+  private final int layers; // 2 if the board has a supply station
+
+  private final LongIntMap nodeIds = new LongIntMap(); // State.key -> node
+  private int[] nodeCell = new int[64]; // r * cols + c
+  private boolean[] nodeSupply = new boolean[64];
+  private int nodeCount = 0;
+  private final int[][] clusterNodes; // nodes per cluster
+
+  // Edges grouped by source node (CSR): edges of u are edgeStart[u] .. edgeStart[u + 1] - 1
+  private int[] edgeStart;
+  private int[] edgeTo;
+  private int[] edgeCost;
+  private byte[] edgeMove; // Direction ordinal, or INTRA
+
+  public HierarchicalGraph(Board board, int clusterSize) {
+    this.board = board;
+    this.rows = board.getRows();
+    this.cols = board.getCols();
+    this.clusterSize = clusterSize;
+    this.clusterCols = (cols + clusterSize - 1) / clusterSize;
+    int clusterRows = (rows + clusterSize - 1) / clusterSize;
+    this.layers = board.getSupplyStations().isEmpty() ? 1 : 2;
+
+    EdgeList edges = new EdgeList();
+    LongSet crossings = new LongSet();
+    for (int s = 0; s < layers; s++)
+      findEntrances(s == 1, crossings, edges);
+    for (int[] t : board.getAllTunnels()) {
+      int a = t[0] * cols + t[1];
+      int b = t[2] * cols + t[3];
+      // The later end exits to the first; the first exits back only if b is its earliest partner
+      boolean back = board.getTunnelExitIndex(t[0], t[1]) == b;
+      for (int s = 0; s < layers; s++) {
+        int u = node(a, s == 1);
+        int v = node(b, s == 1);
+        edges.add(v, u, board.getPositionValue(t[0], t[1], Direction.Ent), Direction.Ent.ordinal());
+        if (back)
+          edges.add(u, v, board.getPositionValue(t[2], t[3], Direction.Ent), Direction.Ent.ordinal());
+      }
+    }
+
+    // Group nodes by cluster, then connect every pair inside each cluster
+    int[] count = new int[clusterRows * clusterCols];
+    for (int u = 0; u < nodeCount; u++)
+      count[clusterOf(nodeCell[u])]++;
+    this.clusterNodes = new int[count.length][];
+    for (int k = 0; k < count.length; k++)
+      clusterNodes[k] = new int[count[k]];
+    Arrays.fill(count, 0);
+    for (int u = 0; u < nodeCount; u++) {
+      int k = clusterOf(nodeCell[u]);
+      clusterNodes[k][count[k]++] = u;
+    }
+    ClusterSearch search = newSearch(-1);
+    for (int[] nodes : clusterNodes) {
+      for (int u : nodes) {
+        search.run(nodeCell[u], nodeSupply[u]);
+        for (int v : nodes) {
+          int d = search.dist(nodeCell[v], nodeSupply[v]);
+          if (v != u && d != Integer.MAX_VALUE)
+            edges.add(u, v, d, INTRA);
+        }
+      }
+    }
+    edges.toCsr();
+  }
+
+  // --- Entrances ---
+
+  // One layer's crossings between every pair of touching clusters, deduplicated across layers
+  private void findEntrances(boolean supply, LongSet crossings, EdgeList edges) {
+    for (int x = clusterSize; x < cols; x += clusterSize) // vertical borders, A = column x - 1
+      for (int r0 = 0; r0 < rows; r0 += clusterSize)
+        scanBorder(supply, r0, Math.min(r0 + clusterSize, rows), x, true, crossings, edges);
+    for (int y = clusterSize; y < rows; y += clusterSize) // horizontal borders, A = row y - 1
+      for (int c0 = 0; c0 < cols; c0 += clusterSize)
+        scanBorder(supply, c0, Math.min(c0 + clusterSize, cols), y, false, crossings, edges);
+    // Corners, where only a diagonal move connects two clusters
+    for (int y = clusterSize; y < rows; y += clusterSize) {
+      for (int x = clusterSize; x < cols; x += clusterSize) {
+        cross(supply, y - 1, x - 1, y, x, crossings, edges);
+        cross(supply, y - 1, x, y, x - 1, crossings, edges);
+      }
+    }
+  }
+
+  // Open stretches along one border segment [from, to): A side at line - 1, B side at line
+  private void scanBorder(boolean supply, int from, int to, int line, boolean vertical,
+      LongSet crossings, EdgeList edges) {
+    int runStart = -1;
+    for (int i = from; i <= to; i++) {
+      boolean open = i < to && open(supply, i, line, vertical, from, to) >= 0;
+      if (open && runStart < 0)
+        runStart = i;
+      if (!open && runStart >= 0) {
+        int length = i - runStart;
+        if (length < LONG_ENTRANCE) {
+          crossAt(supply, runStart + (length - 1) / 2, line, vertical, from, to, crossings, edges);
+        } else {
+          crossAt(supply, runStart, line, vertical, from, to, crossings, edges);
+          crossAt(supply, i - 1, line, vertical, from, to, crossings, edges);
+        }
+        runStart = -1;
+      }
+    }
+  }
+
+  // B-side position reachable from the A cell at i (straight first, then diagonal), or -1
+  private int open(boolean supply, int i, int line, boolean vertical, int from, int to) {
+    if (!passable(at(i, line - 1, vertical), supply))
+      return -1;
+    for (int j : new int[] {i, i - 1, i + 1})
+      if (j >= from && j < to && passable(at(j, line, vertical), supply))
+        return j;
+    return -1;
+  }
+
+  private void crossAt(boolean supply, int i, int line, boolean vertical, int from, int to,
+      LongSet crossings, EdgeList edges) {
+    int a = at(i, line - 1, vertical);
+    int b = at(open(supply, i, line, vertical, from, to), line, vertical);
+    cross(supply, a / cols, a % cols, b / cols, b % cols, crossings, edges);
+  }
+
+  // Cell index of position i along a border line
+  private int at(int i, int line, boolean vertical) {
+    return vertical ? i * cols + line : line * cols + i;
+  }
+
+  private void cross(boolean supply, int ar, int ac, int br, int bc, LongSet crossings,
+      EdgeList edges) {
+    int a = ar * cols + ac;
+    int b = br * cols + bc;
+    if (!passable(a, supply) || !passable(b, supply))
+      return;
+    if (!crossings.add((long) a << 32 | b))
+      return;
+    Direction there = direction(br - ar, bc - ac);
+    Direction back = direction(ar - br, ac - bc);
+    // A pair open in layer 0 is open in both; one first found in layer 1 only exists there
+    for (int s = supply ? 1 : 0; s < layers; s++) {
+      if (s == 1 || !isSupplyStation(a)) // nobody stands on a '*' without supply
+        edges.add(node(a, s == 1), node(b, s == 1 || isSupplyStation(b)), cost(br, bc, there),
+            there.ordinal());
+      if (s == 1 || !isSupplyStation(b))
+        edges.add(node(b, s == 1), node(a, s == 1 || isSupplyStation(a)), cost(ar, ac, back),
+            back.ordinal());
+    }
+  }
+
+  private static Direction direction(int dr, int dc) {
+    for (Direction d : Direction.values())
+      if (d != Direction.Ent && d.dr == dr && d.dc == dc)
+        return d;
+    throw new IllegalArgumentException("Not a single move: " + dr + "," + dc);
+  }
+
+  // --- Graph ---
+
+  private int node(int cell, boolean supply) {
+    long key = State.key(cell / cols, cell % cols, supply);
+    int id = nodeIds.get(key, -1);
+    if (id >= 0)
+      return id;
+    if (nodeCount == nodeCell.length) {
+      nodeCell = Arrays.copyOf(nodeCell, nodeCount << 1);
+      nodeSupply = Arrays.copyOf(nodeSupply, nodeCount << 1);
+    }
+    nodeCell[nodeCount] = cell;
+    nodeSupply[nodeCount] = supply;
+    nodeIds.put(key, nodeCount);
+    return nodeCount++;
+  }
+
+  public int nodeCount() {
+    return nodeCount;
+  }
+
+  public int cell(int node) {
+    return nodeCell[node];
+  }
+
+  public boolean supply(int node) {
+    return nodeSupply[node];
+  }
+
+  /** Abstract node of a state, -1 if it is not one. */
+  public int nodeAt(int cell, boolean supply) {
+    return nodeIds.get(State.key(cell / cols, cell % cols, supply), -1);
+  }
+
+  public int edgeStart(int node) {
+    return edgeStart[node];
+  }
+
+  public int edgeEnd(int node) {
+    return edgeStart[node + 1];
+  }
+
+  public int edgeTo(int edge) {
+    return edgeTo[edge];
+  }
+
+  public int edgeCost(int edge) {
+    return edgeCost[edge];
+  }
+
+  /** Direction ordinal of a single-move edge, INTRA for an intra-cluster path. */
+  public int edgeMove(int edge) {
+    return edgeMove[edge];
+  }
+
+  public int clusterOf(int cell) {
+    return (cell / cols / clusterSize) * clusterCols + (cell % cols) / clusterSize;
+  }
+
+  public int[] clusterNodes(int cluster) {
+    return clusterNodes[cluster];
+  }
+
+  public int getCols() {
+    return cols;
+  }
+
+  /** A ClusterSearch for one query; openCell is its goal (-1 for none). */
+  public ClusterSearch newSearch(int openCell) {
+    return new ClusterSearch(openCell);
+  }
+
+  // --- Cost model: the board as loaded, with 'S' and 'G' as plain floor ---
+
+  private boolean passable(int cell, boolean supply) {
+    char c = board.getCell(cell / cols, cell % cols);
+    return c != '#' && (c != '~' || supply);
+  }
+
+  private boolean isSupplyStation(int cell) {
+    return board.isSupplyStation(cell / cols, cell % cols);
+  }
+
+  private int cost(int r, int c, Direction dir) {
+    char cell = board.getCell(r, c);
+    return cell == 'S' || cell == 'G' ? 1 : board.getPositionValue(r, c, dir);
+  }
+
+  /**
+   * Dijkstra over the two layers of one cluster, from one state, moving only inside the cluster.
+   * Reused across runs; one instance per thread. {@code openCell} (a query's goal) is always
+   * passable, even if the board as loaded has '~' there.
+   */
+  public final class ClusterSearch {
+    private static final byte WALL = 0, OPEN = 1, SMOOTH = 2, STATION = 3;
+
+    private final int openCell;
+    private final int[] dist;
+    private final int[] parent;
+    private final byte[] move;
+    private final LongHeap heap = new LongHeap();
+    // The current cluster's cells, loaded once and reused while runs stay in it
+    private final byte[] kind;
+    private final int[] straightCost;
+    private final int[] diagonalCost;
+    private int r0 = -1, c0 = -1, height, width;
+    private int source;
+
+    private ClusterSearch(int openCell) {
+      this.openCell = openCell;
+      this.dist = new int[clusterSize * clusterSize * 2];
+      this.parent = new int[dist.length];
+      this.move = new byte[dist.length];
+      this.kind = new byte[clusterSize * clusterSize];
+      this.straightCost = new int[kind.length];
+      this.diagonalCost = new int[kind.length];
+    }
+
+    public void run(int cell, boolean supply) {
+      int r = cell / cols;
+      int c = cell % cols;
+      load(r - r % clusterSize, c - c % clusterSize);
+      Arrays.fill(dist, 0, height * width * 2, Integer.MAX_VALUE);
+      heap.clear();
+      source = local(r, c, supply);
+      dist[source] = 0;
+      parent[source] = -1;
+      heap.push(source, 0);
+
+      while (!heap.isEmpty()) {
+        long top = heap.pop();
+        int state = (int) top;
+        int d = (int) (top >>> 32);
+        if (d != dist[state])
+          continue;
+        boolean s = (state & 1) != 0;
+        int lr = (state >> 1) / width;
+        int lc = (state >> 1) % width;
+        for (int i = 0; i < 8; i++) {
+          Direction dir = Direction.CLOCKWISE[i];
+          int nr = lr + dir.dr;
+          int nc = lc + dir.dc;
+          if (nr < 0 || nr >= height || nc < 0 || nc >= width)
+            continue;
+          int next = nr * width + nc;
+          byte k = kind[next];
+          if (k == WALL || k == SMOOTH && !s)
+            continue;
+          int to = next << 1 | (s || k == STATION ? 1 : 0);
+          int nd = d + (dir.dr != 0 && dir.dc != 0 ? diagonalCost[next] : straightCost[next]);
+          if (nd < dist[to]) {
+            dist[to] = nd;
+            parent[to] = state;
+            move[to] = (byte) dir.ordinal();
+            heap.push(to, nd);
+          }
+        }
+      }
+    }
+
+    private void load(int top, int left) {
+      if (top == r0 && left == c0)
+        return;
+      r0 = top;
+      c0 = left;
+      height = Math.min(clusterSize, rows - r0);
+      width = Math.min(clusterSize, cols - c0);
+      for (int lr = 0; lr < height; lr++) {
+        for (int lc = 0; lc < width; lc++) {
+          int i = lr * width + lc;
+          int r = r0 + lr;
+          int c = c0 + lc;
+          char cell = board.getCell(r, c);
+          kind[i] = r * cols + c == openCell ? OPEN
+              : cell == '#' ? WALL : cell == '~' ? SMOOTH : cell == '*' ? STATION : OPEN;
+          if (kind[i] != WALL) {
+            straightCost[i] = cost(r, c, Direction.R);
+            diagonalCost[i] = cost(r, c, Direction.RD);
+          }
+        }
+      }
+    }
+
+    /** Cost from the source to a state of the same cluster, Integer.MAX_VALUE if unreachable. */
+    public int dist(int cell, boolean supply) {
+      return dist[local(cell / cols, cell % cols, supply)];
+    }
+
+    /** Moves from the source to a reachable state of the same cluster. */
+    public List<Direction> path(int cell, boolean supply) {
+      LinkedList<Direction> moves = new LinkedList<>();
+      for (int s = local(cell / cols, cell % cols, supply); s != source; s = parent[s])
+        moves.addFirst(Direction.values()[move[s]]);
+      return moves;
+    }
+
+    private int local(int r, int c, boolean supply) {
+      return ((r - r0) * width + (c - c0)) << 1 | (supply ? 1 : 0);
+    }
+  }
+
+  // Edge triples collected during the build, then sorted by source node
+  private final class EdgeList {
+    int[] from = new int[256];
+    int[] to = new int[256];
+    int[] cost = new int[256];
+    byte[] move = new byte[256];
+    int size = 0;
+
+    void add(int u, int v, int c, int m) {
+      if (size == from.length) {
+        from = Arrays.copyOf(from, size << 1);
+        to = Arrays.copyOf(to, size << 1);
+        cost = Arrays.copyOf(cost, size << 1);
+        move = Arrays.copyOf(move, size << 1);
+      }
+      from[size] = u;
+      to[size] = v;
+      cost[size] = c;
+      move[size++] = (byte) m;
+    }
+
+    void toCsr() {
+      edgeStart = new int[nodeCount + 1];
+      for (int i = 0; i < size; i++)
+        edgeStart[from[i] + 1]++;
+      for (int u = 0; u < nodeCount; u++)
+        edgeStart[u + 1] += edgeStart[u];
+      int[] fill = Arrays.copyOf(edgeStart, nodeCount);
+      edgeTo = new int[size];
+      edgeCost = new int[size];
+      edgeMove = new byte[size];
+      for (int i = 0; i < size; i++) {
+        int e = fill[from[i]]++;
+        edgeTo[e] = to[i];
+        edgeCost[e] = cost[i];
+        edgeMove[e] = move[i];
+      }
+    }
+  }
+}
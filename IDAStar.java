@@ -2,48 +2,91 @@ import java.util.*;
 
 public class IDAStar implements Algorithm {
 
+  // Threshold growth strategies
+  public static final String THRESHOLD_MIN_F = "min-f"; // classic: next t = smallest f that exceeded t
+  public static final String THRESHOLD_CR = "cr"; // IDA*-CR: pick t so the next iteration grows ~GROWTH x
+
+  private static final int GROWTH = 2;
+
   private final boolean clockwise;
   private final boolean withOpen;
+  private final boolean exactHeuristic; // use the board's DistanceField instead of Chebyshev
+  private final int ttCapacity; // 0 = no transposition table
+  private final String thresholdStrategy;
 
   // Statistics
   private int generatedNodesCount = 0;
   private int maxSpace = 0;
   private int creationCounter = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
 
   public IDAStar(String order, boolean withOpen) {
+    this(order, withOpen, false);
+  }
+
+  public IDAStar(String order, boolean withOpen, boolean exactHeuristic) {
+    this(order, withOpen, exactHeuristic, 0, THRESHOLD_MIN_F);
+  }
+
+  public IDAStar(String order, boolean withOpen, boolean exactHeuristic, int ttCapacity,
+      String thresholdStrategy) {
+    if (!thresholdStrategy.equals(THRESHOLD_MIN_F) && !thresholdStrategy.equals(THRESHOLD_CR))
+      throw new IllegalArgumentException("Unknown threshold strategy: " + thresholdStrategy);
+    this.exactHeuristic = exactHeuristic;
+    this.ttCapacity = ttCapacity;
+    this.thresholdStrategy = thresholdStrategy;
     this.clockwise = order.equalsIgnoreCase("clockwise");
     this.withOpen = withOpen;
   }
 
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
   @Override
   public String solve(Board board) {
+    metrics.searchStarted("IDA*");
     State start = board.getStart();
-    State goal = board.getGoal();
+    Heuristic heuristic = exactHeuristic ? board.getDistanceField() : board.getHeuristicTable();
+    boolean cr = thresholdStrategy.equals(THRESHOLD_CR);
 
     // 1. L <- make_stack and H <- make_hash_table
-    Stack<State> L = new Stack<>();
-    // H stores the State object to compare F-values later
-    Map<String, State> H = new HashMap<>();
-    // Helper to track which nodes are marked "out" (simulating the mark on the node)
-    Set<String> outSet = new HashSet<>();
+    SearchStack L = new SearchStack();
+    // H maps a state key to its (single) live stack entry, which also carries the "out" mark
+    LongObjectMap<SearchStack.Entry> H = new LongObjectMap<>();
+    // Optional: cheapest g per state, kept across iterations
+    TranspositionTable tt = ttCapacity > 0 ? new TranspositionTable(ttCapacity) : null;
+    // IDA*-CR: how many nodes were cut off at each f-value in this iteration
+    int[] cutoffs = cr ? new int[64] : null;
+
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
 
     // 2. t <- h(start)
-    double t = calculateHeuristic(start, goal, board);
+    double t = heuristic.get(start);
+    metrics.heuristicEvaluated();
+    int iteration = 0;
 
     // 3. While t != infinity
     while (t != Double.MAX_VALUE) {
 
       // 1. minF <- infinity
       double minF = Double.MAX_VALUE;
+      // IDA*-CR may overshoot the optimal cost: once a goal is found the iteration finishes as
+      // branch and bound below its cost instead of returning right away
+      State best = null;
+      int expanded = 0;
+      metrics.iteration(++iteration, t);
+      if (cr)
+        Arrays.fill(cutoffs, 0);
 
       // 2. L.insert(start) and H.insert(start)
-      // start.setG(0); // Reset G for fresh iteration if needed
       L.clear();
       H.clear();
-      outSet.clear();
 
-      L.push(start);
-      H.put(start.getId(), start);
+      SearchStack.Entry startEntry = new SearchStack.Entry(start);
+      L.push(startEntry);
+      H.put(start.getKey(), startEntry);
 
       // 3. While L is not empty
       while (!L.isEmpty()) {
@@ -52,39 +95,40 @@ public class IDAStar implements Algorithm {
         if (withOpen) {
           printStack(L);
         }
-        // System.out.println(generatedNodesCount); // for testing purposes
 
         // Track max space
         maxSpace = Math.max(maxSpace, L.size() + H.size());
 
-        // 1. n <- L.remove_front() (Pop in Java Stack)
-        State n = L.pop();
+        // 1. n <- L.remove_front()
+        SearchStack.Entry top = L.pop();
+        State n = top.state;
 
         // 2. If n is marked as "out"
-        if (outSet.contains(n.getId())) {
+        if (top.out) {
           // 1. H.remove(n)
-          H.remove(n.getId());
-          outSet.remove(n.getId()); // Clear mark
+          H.remove(n.getKey());
         }
         // Else (First time visiting n)
         else {
           // 2. mark n as "out" and L.insert(n)
-          outSet.add(n.getId());
-          L.push(n);
+          top.out = true;
+          L.push(top);
+          expanded++;
+          metrics.expanded();
+          metrics.frontier(L.size(), H.size());
 
           // 3. For each allowed operator on n
-          Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
-
           for (Direction dir : dirs) {
             int newR, newC;
 
             // Tunnel logic
-            if (board.isTunnel(n.row, n.col) && dir == Direction.Ent) {
-              int[] exit = board.getTunnelExit(n.row, n.col);
-              newR = exit[0];
-              newC = exit[1];
-            } else if (dir == Direction.Ent) {
-              continue;
+            if (dir == Direction.Ent) {
+              int exit = board.isTunnel(n.row, n.col)
+                  ? board.getTunnelExitIndex(n.row, n.col) : -1;
+              if (exit < 0)
+                continue; // not a tunnel, or its other end is gone
+              newR = exit / board.getCols();
+              newC = exit % board.getCols();
             } else {
               newR = n.row + dir.dr;
               newC = n.col + dir.dc;
@@ -95,97 +139,123 @@ public class IDAStar implements Algorithm {
               double newG = n.getG() + board.getPositionValue(newR, newC, dir);
               State g = new State(newR, newC, newG, 0, n, dir.name(), board);
               generatedNodesCount++;
+              metrics.generated();
               g.setCreationTime(++creationCounter);
-              g.setH(calculateHeuristic(g, goal, board)); // Calculate F implicitly (G+H)
+              g.setH(heuristic.get(g)); // Calculate F implicitly (G+H)
+              metrics.heuristicEvaluated();
+              long gKey = g.getKey();
+
+              // Already reached more cheaply (this or an earlier iteration)
+              if (tt != null) {
+                if (tt.hasCheaper(gKey, newG)) {
+                  metrics.duplicatePruned();
+                  continue;
+                }
+                tt.store(gKey, newG);
+              }
+
+              // Branch and bound below the best goal found in this iteration (IDA*-CR only)
+              if (best != null && g.getF() >= best.getG())
+                continue;
 
               // 1. If f(g) > t
               if (g.getF() > t) {
-                if (g.onGoal) {
+                if (g.onGoal && !cr) {
                   return returnResult(g);
                 }
                 // 1. minF <- min(minF, f(g))
                 minF = Math.min(minF, g.getF());
+                if (cr && g.getF() != Double.MAX_VALUE)
+                  cutoffs = countCutoff(cutoffs, (int) g.getF());
                 // 2. continue
                 continue;
               }
 
+              SearchStack.Entry gPrime = H.get(gKey);
+
               // 2. If H contains g' (same ID) and g' marked "out"
-              if (H.containsKey(g.getId()) && outSet.contains(g.getId())) {
+              if (gPrime != null && gPrime.out) {
                 // 1. continue (Cycle in current path)
+                metrics.duplicatePruned();
                 continue;
               }
 
               // 3. If H contains g' and g' NOT marked "out"
-              if (H.containsKey(g.getId()) && !outSet.contains(g.getId())) {
-                State gPrime = H.get(g.getId());
+              if (gPrime != null) {
                 // 1. If f(g') > f(g)
-                if (gPrime.getF() > g.getF()) {
-                  // 1. remove g' from L and H
-                  L.remove(gPrime); // O(N) operation in Java Stack
-                  H.remove(gPrime.getId());
+                if (gPrime.state.getF() > g.getF()) {
+                  // 1. remove g' from L and H (O(1): the entry knows its slot)
+                  L.remove(gPrime);
+                  H.remove(gKey);
+                  metrics.reopened();
                 } else {
                   // 2. Else continue
+                  metrics.duplicatePruned();
                   continue;
                 }
               }
 
               // 4. If goal(g) then return path(g)
               if (g.onGoal) {
-                return returnResult(g);
+                if (!cr) {
+                  return returnResult(g);
+                }
+                best = g;
+                continue;
               }
 
               // 5. L.insert(g) and H.insert(g)
-              L.push(g);
-              H.put(g.getId(), g);
+              SearchStack.Entry entry = new SearchStack.Entry(g);
+              L.push(entry);
+              H.put(gKey, entry);
             }
           }
         }
       }
 
-      // 4. t <- minF
-      t = minF;
+      if (best != null) {
+        return returnResult(best);
+      }
+
+      // 4. t <- minF (or the IDA*-CR estimate)
+      t = cr && minF != Double.MAX_VALUE ? nextThreshold(cutoffs, (int) minF, expanded) : minF;
     }
 
     // 4. Return false
+    metrics.searchFinished(false, 0);
     return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace + "\nCost: inf";
   }
 
-  // --- Helper Methods (Same as A*) ---
-
-  /**
-   * Recommended Heuristic: Tunnel-Aware Chebyshev
-   */
-  private double calculateHeuristic(State current, State goal, Board board) {
-    double minCost = chebyshevDistance(current.row, current.col, goal.row, goal.col);
-
-    // Check tunnel shortcuts
-    for (int[] tunnel : board.getAllTunnels()) {
-      int tInR = tunnel[0];
-      int tInC = tunnel[1];
-      int tOutR = tunnel[2];
-      int tOutC = tunnel[3];
-
-      double tunnelPathCost = chebyshevDistance(current.row, current.col, tInR, tInC) + 2
-          + chebyshevDistance(tOutR, tOutC, goal.row, goal.col);
+  private static int[] countCutoff(int[] cutoffs, int f) {
+    if (f >= cutoffs.length)
+      cutoffs = Arrays.copyOf(cutoffs, Math.max(f + 1, cutoffs.length << 1));
+    cutoffs[f]++;
+    return cutoffs;
+  }
 
-      if (tunnelPathCost < minCost) {
-        minCost = tunnelPathCost;
-      }
+  // IDA*-CR: smallest threshold whose cut-off nodes add up to GROWTH x this iteration's expansions
+  private static double nextThreshold(int[] cutoffs, int minF, int expanded) {
+    long target = (long) GROWTH * Math.max(1, expanded);
+    long seen = 0;
+    int f = minF;
+    for (; f < cutoffs.length; f++) {
+      seen += cutoffs[f];
+      if (seen >= target)
+        break;
     }
-    return minCost;
+    return Math.min(f, cutoffs.length - 1);
   }
 
-  private double chebyshevDistance(int r1, int c1, int r2, int c2) {
-    return Math.max(Math.abs(r1 - r2), Math.abs(c1 - c2));
-  }
+  // --- Helper Methods (Same as A*) ---
 
   // Print stack for debugging
-  private void printStack(Stack<State> stack) {
+  private void printStack(SearchStack stack) {
     System.out.println("Stack: " + stack.toString());
   }
 
   @Override
   public String returnResult(State next) {
+    metrics.searchFinished(true, next.getG());
     return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
         + "\nCost: " + (int) next.getG();
   }
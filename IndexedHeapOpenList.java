@@ -0,0 +1,106 @@
+import java.util.*;
+
+/**
+ * Binary heap that tracks each queued node's slot, so a cheaper path to a queued state replaces
+ * its entry in place (decrease-key) instead of leaving a stale duplicate behind.
+ */
+public class IndexedHeapOpenList implements OpenList {
+
+  private final NodePool pool;
+  private final boolean newFirst;
+  private int[] heap = new int[64];
+  private int size = 0;
+  private int[] slots = new int[64]; // node id -> heap index + 1, 0 if not queued
+
+  public IndexedHeapOpenList(NodePool pool, boolean newFirst) {
+    this.pool = pool;
+    this.newFirst = newFirst;
+  }
+
+  @Override
+  public void add(int node) {
+    if (size == heap.length)
+      heap = Arrays.copyOf(heap, size << 1);
+    heap[size] = node;
+    siftUp(size++);
+  }
+
+  @Override
+  public int poll() {
+    if (size == 0)
+      return NodePool.NONE;
+    int top = heap[0];
+    slots[top] = 0;
+    int last = heap[--size];
+    if (size > 0) {
+      heap[0] = last;
+      siftDown(0);
+    }
+    return top;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean update(int oldNode, int node) {
+    int slot = oldNode < slots.length ? slots[oldNode] - 1 : -1;
+    if (slot < 0)
+      return false;
+    slots[oldNode] = 0;
+    heap[slot] = node;
+    siftUp(slot);
+    siftDown(slotOf(node));
+    return true;
+  }
+
+  @Override
+  public int[] snapshot() {
+    return HeapOpenList.sorted(pool, heap, size, newFirst);
+  }
+
+  private int slotOf(int node) {
+    return slots[node] - 1;
+  }
+
+  private void siftUp(int i) {
+    int node = heap[i];
+    while (i > 0) {
+      int p = (i - 1) >>> 1;
+      if (pool.compare(heap[p], node, newFirst) <= 0)
+        break;
+      place(heap[p], i);
+      i = p;
+    }
+    place(node, i);
+  }
+
+  private void siftDown(int i) {
+    int node = heap[i];
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && pool.compare(heap[child + 1], heap[child], newFirst) < 0)
+        child++;
+      if (pool.compare(node, heap[child], newFirst) <= 0)
+        break;
+      place(heap[child], i);
+      i = child;
+    }
+    place(node, i);
+  }
+
+  private void place(int node, int i) {
+    heap[i] = node;
+    if (node >= slots.length)
+      slots = Arrays.copyOf(slots, Math.max(node + 1, slots.length << 1));
+    slots[node] = i + 1;
+  }
+}
@@ -0,0 +1,134 @@
+import jdk.jfr.*;
+
+/**
+ * CountingMetrics that also emits Java Flight Recorder events: one "search.Search" event per
+ * solve with its totals, one "search.Iteration" per DFID/IDA* iteration and a "search.Frontier"
+ * event per frontier sample. Events cost next to nothing unless a recording is running, e.g.
+ *
+ * <pre>
+ * java -Dsearch.metrics=jfr -XX:StartFlightRecording=filename=search.jfr Ex1
+ * jfr print --events search.Iteration search.jfr
+ * </pre>
+ */
+public class JfrMetrics extends CountingMetrics {
+
+  @Name("search.Search")
+  @Label("Search")
+  @Category("Search")
+  @Description("One solve() call of a search engine")
+  static class SearchEvent extends Event {
+    @Label("Engine")
+    String engine;
+    @Label("Found")
+    boolean found;
+    @Label("Cost")
+    double cost;
+    @Label("Expanded")
+    long expanded;
+    @Label("Generated")
+    long generated;
+    @Label("Duplicates Pruned")
+    long duplicatesPruned;
+    @Label("Reopened")
+    long reopened;
+    @Label("Heuristic Evaluations")
+    long heuristicEvaluations;
+    @Label("Peak Open")
+    int peakOpen;
+    @Label("Iterations")
+    int iterations;
+  }
+
+  @Name("search.Iteration")
+  @Label("Search Iteration")
+  @Category("Search")
+  @Description("One DFID depth limit or IDA* f threshold")
+  static class IterationEvent extends Event {
+    @Label("Engine")
+    String engine;
+    @Label("Iteration")
+    int iteration;
+    @Label("Threshold")
+    double threshold;
+    @Label("Expanded")
+    long expanded;
+    @Label("Generated")
+    long generated;
+  }
+
+  @Name("search.Frontier")
+  @Label("Search Frontier")
+  @Category("Search")
+  @Description("Sampled open and closed sizes during a search")
+  static class FrontierEvent extends Event {
+    @Label("Engine")
+    String engine;
+    @Label("Expanded")
+    long expanded;
+    @Label("Open")
+    int open;
+    @Label("Closed")
+    int closed;
+  }
+
+  private SearchEvent search;
+  private IterationEvent iteration;
+
+  @Override
+  public synchronized void searchStarted(String engine) {
+    super.searchStarted(engine);
+    search = new SearchEvent();
+    search.begin();
+  }
+
+  @Override
+  protected void onSample(long expanded, int open, int closed) {
+    FrontierEvent event = new FrontierEvent();
+    if (event.shouldCommit()) {
+      event.engine = getEngine();
+      event.expanded = expanded;
+      event.open = open;
+      event.closed = closed;
+      event.commit();
+    }
+  }
+
+  @Override
+  protected void onIterationStart(int number, double threshold) {
+    iteration = new IterationEvent();
+    iteration.begin();
+  }
+
+  @Override
+  protected void onIterationEnd(int number, double threshold, long expanded, long generated) {
+    IterationEvent event = iteration;
+    iteration = null;
+    if (event == null || !event.shouldCommit())
+      return;
+    event.engine = getEngine();
+    event.iteration = number;
+    event.threshold = threshold;
+    event.expanded = expanded;
+    event.generated = generated;
+    event.commit();
+  }
+
+  @Override
+  protected void onFinished(boolean found, double cost) {
+    SearchEvent event = search;
+    search = null;
+    if (event == null || !event.shouldCommit())
+      return;
+    event.engine = getEngine();
+    event.found = found;
+    event.cost = found ? cost : Double.NaN;
+    event.expanded = getExpansions();
+    event.generated = getGenerations();
+    event.duplicatesPruned = getDuplicatesPruned();
+    event.reopened = getReopenings();
+    event.heuristicEvaluations = getHeuristicEvaluations();
+    event.peakOpen = getPeakOpen();
+    event.iterations = getIterations();
+    event.commit();
+  }
+}
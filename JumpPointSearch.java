@@ -0,0 +1,184 @@
+import java.util.*;
+
+/**
+ * A* over jump points ("A* jps"). Instead of stepping one cell at a time, a node jumps straight or
+ * diagonally across a terrain-homogeneous region to the next cell where something can change: a
+ * terrain boundary, a tunnel end, a supply station, a cell next to the goal or a forced neighbour of
+ * a wall. The jump distances come precomputed from the board's JumpTable (JPS+), so a jump is one
+ * table lookup and its cost is (steps - 1) times the region's step cost plus the landing cell.
+ *
+ * <p>The heuristic is PortalHeuristic, which is consistent also when tunnels chain, so a closed jump
+ * point is never reached more cheaply later and the Cost is optimal, with far fewer generated nodes
+ * than AStar on open terrain. "Num" counts generated jump points. The goal is accepted when popped,
+ * not when generated, since one jump can cover many cells. Paths are printed move by move like
+ * AStar's.
+ */
+public class JumpPointSearch implements Algorithm {
+
+  private final boolean clockwise;
+  private final boolean withOpen;
+  private final boolean newFirst;
+
+  private int generatedNodesCount = 0;
+  private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  public JumpPointSearch(String order, boolean withOpen, String tieBreaker) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.withOpen = withOpen;
+    this.newFirst = "new-first".equals(tieBreaker);
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("A* jps");
+    Heuristic heuristic = new PortalHeuristic(board, board.getGoalRow(), board.getGoalCol());
+    JumpTable jumps = board.getJumpTable();
+    NodePool pool = new NodePool(board.getCols());
+    OpenList openList = OpenList.create("heap", pool, newFirst);
+    LongIntMap openMap = new LongIntMap();
+    LongSet closedList = new LongSet();
+
+    int startRow = board.getStartRow();
+    int startCol = board.getStartCol();
+    boolean startSupply = board.isSupplyStation(startRow, startCol);
+    int start = pool.add(startRow, startCol, startSupply, 0,
+        (int) heuristic.get(startRow, startCol, startSupply), NodePool.NONE, null);
+    metrics.heuristicEvaluated();
+    openList.add(start);
+    openMap.put(pool.key(start), start);
+    maxSpace = 1;
+
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+
+    while (!openList.isEmpty()) {
+      if (withOpen)
+        printOpenSet(openList, pool);
+
+      int current = openList.poll();
+      long currentKey = pool.key(current);
+      openMap.remove(currentKey);
+      if (!closedList.add(currentKey))
+        continue;
+      metrics.expanded();
+      metrics.frontier(openList.size(), closedList.size());
+
+      int row = pool.row(current);
+      int col = pool.col(current);
+      if (board.isGoal(row, col))
+        return returnResult(pool, current);
+      int g = pool.g(current);
+      boolean supply = pool.supply(current);
+      Direction arrival = pool.move(current);
+      boolean full = arrival == null || jumps.isFull(row, col, supply);
+
+      for (Direction dir : dirs) {
+        int newR, newC, newG;
+        if (dir == Direction.Ent) {
+          int exit = board.isTunnel(row, col) ? board.getTunnelExitIndex(row, col) : -1;
+          if (exit < 0)
+            continue;
+          newR = exit / board.getCols();
+          newC = exit % board.getCols();
+          newG = g + board.getPositionValue(newR, newC, dir);
+        } else {
+          if (!full && !jumps.isSuccessor(row, col, supply, arrival, dir, board))
+            continue; // pruned: some other jump point covers this direction
+          int steps = jumps.run(row, col, supply, dir);
+          if (steps == 0)
+            continue; // runs into a wall or a dead end
+          newR = row + dir.dr * steps;
+          newC = col + dir.dc * steps;
+          // Every step before the landing cell is inside one region, so costs the same
+          newG = g + (steps - 1) * board.getPositionValue(row + dir.dr, col + dir.dc, dir)
+              + board.getPositionValue(newR, newC, dir);
+        }
+        boolean newSupply = supply || board.isSupplyStation(newR, newC);
+
+        int newH = (int) heuristic.get(newR, newC, newSupply);
+        metrics.heuristicEvaluated();
+        generatedNodesCount++;
+        metrics.generated();
+
+        long nextKey = State.key(newR, newC, newSupply);
+        if (closedList.contains(nextKey)) {
+          metrics.duplicatePruned();
+          continue;
+        }
+        int existing = openMap.get(nextKey, NodePool.NONE);
+        if (existing == NodePool.NONE) {
+          int next = pool.add(newR, newC, newSupply, newG, newH, current, dir);
+          openList.add(next);
+          openMap.put(nextKey, next);
+          maxSpace = Math.max(maxSpace, openList.size());
+        } else if (newG < pool.g(existing)) {
+          int next = pool.add(newR, newC, newSupply, newG, newH, current, dir);
+          if (!openList.update(existing, next))
+            openList.add(next);
+          openMap.put(nextKey, next);
+          metrics.reopened();
+        } else {
+          metrics.duplicatePruned();
+        }
+      }
+    }
+
+    metrics.searchFinished(false, 0);
+    return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace + "\nCost: inf";
+  }
+
+  // Same text as AStar.printOpenSet
+  private void printOpenSet(OpenList openSet, NodePool pool) {
+    StringBuilder sb = new StringBuilder("Open list: [");
+    int[] nodes = openSet.snapshot();
+    for (int i = 0; i < nodes.length; i++) {
+      if (i > 0)
+        sb.append(", ");
+      sb.append(pool.toString(nodes[i]));
+    }
+    sb.append("]");
+    System.out.println(sb.toString());
+  }
+
+  private String returnResult(NodePool pool, int goal) {
+    metrics.searchFinished(true, pool.g(goal));
+    return path(pool, goal) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + pool.g(goal);
+  }
+
+  // Unrolls every jump into its single moves
+  private static String path(NodePool pool, int goal) {
+    Deque<String> jumps = new ArrayDeque<>();
+    for (int n = goal; pool.parent(n) != NodePool.NONE; n = pool.parent(n)) {
+      Direction dir = pool.move(n);
+      int p = pool.parent(n);
+      int steps = dir == Direction.Ent ? 1
+          : Math.max(Math.abs(pool.row(n) - pool.row(p)), Math.abs(pool.col(n) - pool.col(p)));
+      jumps.push(String.join("-", Collections.nCopies(steps, dir.name())));
+    }
+    return String.join("-", jumps);
+  }
+
+  @Override
+  public String returnResult(State next) {
+    return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
@@ -0,0 +1,175 @@
+/**
+ * Precomputed jump distances (JPS+) for JumpPointSearch: for every cell, supply layer and move
+ * direction, how many steps a jump goes before it reaches the next jump point, or 0 if it runs into
+ * a wall first.
+ *
+ * <p>Jumps only cross terrain-homogeneous regions. Cells are grouped by cost class ('-' and 'S',
+ * '^', '~'); tunnel ends, '*' and 'G' are stop cells. A cell is "full" (expanded in every
+ * direction) if it is a stop cell or touches a passable cell of another class, so every terrain
+ * boundary, tunnel, supply station and the goal neighbourhood becomes a jump point. Inside a region
+ * the cost of a path only depends on how many straight and diagonal moves it has, so the usual
+ * jump point rules (corner cutting allowed) keep an optimal path. Runs longer than Short.MAX_VALUE
+ * are cut into several jumps.
+ *
+ * <p>Layer 1 ('~' passable) is only built when the board has a supply station. Built lazily
+ * through {@link Board#getJumpTable()}; costs 17 bytes per cell and layer.
+ */
+public class JumpTable {
+
+  private static final byte WALL = -1;
+  private static final byte STOP = 3; // tunnel end, '*' or 'G'
+  private static final Direction[] MOVES = {Direction.R, Direction.RD, Direction.D, Direction.LD,
+      Direction.L, Direction.LU, Direction.U, Direction.RU}; // index = Direction.ordinal()
+
+  private final int rows;
+  private final int cols;
+  private final short[][] runs = new short[2][]; // [supply][cell * 8 + dir]
+  private final boolean[][] full = new boolean[2][]; // [supply][cell]
+
+  public JumpTable(Board board) {
+    this.rows = board.getRows();
+    this.cols = board.getCols();
+    if ((long) rows * cols * MOVES.length > Integer.MAX_VALUE)
+      throw new IllegalArgumentException("Board too large for a jump table: " + rows + "x" + cols);
+    build(board, 0);
+    if (!board.getSupplyStations().isEmpty())
+      build(board, 1);
+  }
+
+  /** Steps to the next jump point from (r, c) in direction dir, 0 if there is none. */
+  public int run(int r, int c, boolean supply, Direction dir) {
+    short[] layer = runs[supply ? 1 : 0];
+    return layer == null ? 0 : layer[(r * cols + c) * MOVES.length + dir.ordinal()];
+  }
+
+  /** True if (r, c) must be expanded in every direction, whatever move reached it. */
+  public boolean isFull(int r, int c, boolean supply) {
+    boolean[] layer = full[supply ? 1 : 0];
+    return layer == null || layer[r * cols + c];
+  }
+
+  private void build(Board board, int supply) {
+    byte[] terrain = new byte[rows * cols];
+    for (int r = 0; r < rows; r++)
+      for (int c = 0; c < cols; c++)
+        terrain[r * cols + c] = terrainClass(board.getCell(r, c), supply == 1);
+
+    boolean[] isFull = new boolean[terrain.length];
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < cols; c++) {
+        byte t = terrain[r * cols + c];
+        if (t == WALL)
+          continue;
+        boolean f = t == STOP;
+        for (int i = 0; i < MOVES.length && !f; i++) {
+          byte n = terrainAt(terrain, r + MOVES[i].dr, c + MOVES[i].dc);
+          f = n != WALL && n != t;
+        }
+        isFull[r * cols + c] = f;
+      }
+    }
+
+    // Straight directions first, diagonal jumps stop where a straight jump finds something
+    short[] run = new short[terrain.length * MOVES.length];
+    for (int pass = 0; pass < 2; pass++) {
+      for (Direction d : MOVES) {
+        boolean diagonal = d.dr != 0 && d.dc != 0;
+        if (diagonal != (pass == 1))
+          continue;
+        int vertical = diagonal ? (d.dr > 0 ? Direction.D : Direction.U).ordinal() : 0;
+        int horizontal = diagonal ? (d.dc > 0 ? Direction.R : Direction.L).ordinal() : 0;
+        // Visit x + d before x so its run is known
+        for (int i = 0; i < rows; i++) {
+          int r = d.dr > 0 ? rows - 1 - i : i;
+          for (int j = 0; j < cols; j++) {
+            int c = d.dc > 0 ? cols - 1 - j : j;
+            int nr = r + d.dr;
+            int nc = c + d.dc;
+            if (terrain[r * cols + c] == WALL || terrainAt(terrain, nr, nc) == WALL)
+              continue;
+            int n = nr * cols + nc;
+            int length;
+            if (isFull[n] || isForced(terrain, nr, nc, d)
+                || diagonal && (run[n * MOVES.length + vertical] > 0
+                    || run[n * MOVES.length + horizontal] > 0))
+              length = 1;
+            else {
+              int next = run[n * MOVES.length + d.ordinal()];
+              // No jump point behind n, or a maximal run: n becomes an intermediate jump point
+              length = next == 0 ? 0 : next == Short.MAX_VALUE ? 1 : next + 1;
+            }
+            run[(r * cols + c) * MOVES.length + d.ordinal()] = (short) length;
+          }
+        }
+      }
+    }
+    runs[supply] = run;
+    full[supply] = isFull;
+  }
+
+  /**
+   * Forced neighbour of (r, c) entered by move d: a blocked cell beside the move makes the cell
+   * behind it reachable only through (r, c).
+   */
+  private boolean isForced(byte[] terrain, int r, int c, Direction d) {
+    if (d.dr == 0) // horizontal
+      return blockedOpen(terrain, r - 1, c, r - 1, c + d.dc)
+          || blockedOpen(terrain, r + 1, c, r + 1, c + d.dc);
+    if (d.dc == 0) // vertical
+      return blockedOpen(terrain, r, c - 1, r + d.dr, c - 1)
+          || blockedOpen(terrain, r, c + 1, r + d.dr, c + 1);
+    return blockedOpen(terrain, r - d.dr, c, r - d.dr, c + d.dc)
+        || blockedOpen(terrain, r, c - d.dc, r + d.dr, c - d.dc);
+  }
+
+  /** Whether the pruning rules add move d2 at a cell reached by d: natural or forced. */
+  public boolean isSuccessor(int r, int c, boolean supply, Direction d, Direction d2,
+      Board board) {
+    if (d2 == d)
+      return true;
+    if (d.dr == 0) // horizontal: diagonals forward past a blocked side
+      return d2.dc == d.dc && d2.dr != 0 && !passable(board, r + d2.dr, c, supply);
+    if (d.dc == 0) // vertical
+      return d2.dr == d.dr && d2.dc != 0 && !passable(board, r, c + d2.dc, supply);
+    if (d2.dr == d.dr && d2.dc == 0 || d2.dr == 0 && d2.dc == d.dc)
+      return true; // diagonal: its two straight components
+    if (d2.dr == -d.dr && d2.dc == d.dc)
+      return !passable(board, r - d.dr, c, supply);
+    if (d2.dr == d.dr && d2.dc == -d.dc)
+      return !passable(board, r, c - d.dc, supply);
+    return false;
+  }
+
+  private boolean blockedOpen(byte[] terrain, int br, int bc, int or, int oc) {
+    return terrainAt(terrain, br, bc) == WALL && terrainAt(terrain, or, oc) != WALL;
+  }
+
+  private byte terrainAt(byte[] terrain, int r, int c) {
+    if (r < 0 || r >= rows || c < 0 || c >= cols)
+      return WALL;
+    return terrain[r * cols + c];
+  }
+
+  private boolean passable(Board board, int r, int c, boolean supply) {
+    if (r < 0 || r >= rows || c < 0 || c >= cols)
+      return false;
+    return terrainClass(board.getCell(r, c), supply) != WALL;
+  }
+
+  // Cost class of a cell: moves inside one class cost the same per direction
+  private static byte terrainClass(char cell, boolean supply) {
+    switch (cell) {
+      case '#':
+        return WALL;
+      case '-':
+      case 'S':
+        return 0;
+      case '^':
+        return 1;
+      case '~':
+        return supply ? 2 : WALL;
+      default: // tunnel end, '*', 'G'
+        return STOP;
+    }
+  }
+}
@@ -0,0 +1,276 @@
+import java.util.*;
+
+/**
+ * Lifelong Planning A* ("A* lpa"): an incremental A* that keeps its g / rhs values between solves
+ * and listens to {@link Board#setCell}. After an edit only the states around the changed cell are
+ * re-examined, and the next solve() repairs the previous search instead of starting over: states
+ * whose cost did not change are never expanded again. (D* Lite is the same algorithm searching
+ * from the goal so the start can move; here start and goal are fixed per board.)
+ *
+ * <p>Each state keeps g (its cost as last expanded) and rhs (the best cost through its
+ * predecessors); only states where they differ sit in the queue, ordered by [min(g, rhs) + h,
+ * min(g, rhs)]. The heuristic is PortalHeuristic, consistent as incremental search needs; tunnel
+ * edits change it, so they restart the search. Cost is optimal; "Num" counts states updated by
+ * the solve, "Max space" the largest queue. The board holds the solver as a listener until
+ * {@link #detach()}, which a caller that never edits the board should call (BatchSolver does).
+ */
+public class LPAStar implements Algorithm, CellListener {
+
+  private static final int INF = Integer.MAX_VALUE;
+
+  private final boolean clockwise;
+  private final LongIntMap g = new LongIntMap();
+  private final LongIntMap rhs = new LongIntMap();
+  private final PriorityQueue<long[]> queue = new PriorityQueue<>(
+      (a, b) -> a[0] != b[0] ? Long.compare(a[0], b[0]) : Long.compare(a[1], b[1])); // {k1, k2, key}
+
+  private Board board;
+  private ReverseMoves reverse;
+  private long startKey;
+  private long goalKey;
+  private PortalHeuristic heuristic;
+  private boolean restart = true;
+
+  private int updatedCount = 0;
+  private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  public LPAStar(String order) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /** Stops listening to the board; the next solve starts from scratch. */
+  public void detach() {
+    if (board != null)
+      board.removeListener(this);
+    board = null;
+    restart = true;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("A* lpa");
+    if (board != this.board) {
+      detach();
+      this.board = board;
+      board.addListener(this);
+    }
+    if (restart)
+      initialize();
+    updatedCount = 0;
+    maxSpace = queue.size();
+
+    computeShortestPath();
+
+    int cost = g.get(goalKey, INF);
+    if (cost == INF) {
+      metrics.searchFinished(false, 0);
+      return "no path" + "\nNum: " + updatedCount + "\nMax space: " + maxSpace + "\nCost: inf";
+    }
+    metrics.searchFinished(true, cost);
+    return path() + "\nNum: " + updatedCount + "\nMax space: " + maxSpace + "\nCost: " + cost;
+  }
+
+  private void initialize() {
+    g.clear();
+    rhs.clear();
+    queue.clear();
+    reverse = new ReverseMoves(board);
+    startKey = State.key(board.getStartRow(), board.getStartCol(), false);
+    goalKey = State.key(board.getGoalRow(), board.getGoalCol(), false);
+    heuristic = new PortalHeuristic(board, board.getGoalRow(), board.getGoalCol());
+    rhs.put(startKey, 0);
+    push(startKey);
+    restart = false;
+  }
+
+  // --- Edits ---
+
+  @Override
+  public void cellChanged(int row, int col, char oldValue, char newValue) {
+    if (restart)
+      return;
+    if (board.isTunnel(row, col) || oldValue >= '0' && oldValue <= '9') {
+      restart = true; // the heuristic and the Ent edges changed
+      return;
+    }
+    // Every edge whose cost or existence changed goes into or out of (row, col)
+    for (int dr = -1; dr <= 1; dr++) {
+      for (int dc = -1; dc <= 1; dc++) {
+        int r = row + dr;
+        int c = col + dc;
+        if (r < 0 || r >= board.getRows() || c < 0 || c >= board.getCols())
+          continue;
+        updateVertex(key(r, c, false));
+        updateVertex(key(r, c, true));
+      }
+    }
+  }
+
+  // --- LPA* ---
+
+  private void computeShortestPath() {
+    while (true) {
+      long[] top = peek();
+      int goalG = g.get(goalKey, INF);
+      int goalRhs = rhs.get(goalKey, INF);
+      if (top == null || (compareKey(top, goalKey) >= 0 && goalG == goalRhs))
+        return;
+      queue.poll();
+      long u = top[2];
+      metrics.expanded();
+      metrics.frontier(queue.size(), g.size());
+      int gu = g.get(u, INF);
+      int ru = rhs.get(u, INF);
+      if (gu > ru) {
+        g.put(u, ru); // overconsistent: settle it
+        forEachSuccessor(u, this::updateVertex);
+      } else {
+        g.remove(u); // underconsistent: its old cost is gone, re-derive it and its successors
+        updateVertex(u);
+        forEachSuccessor(u, this::updateVertex);
+      }
+    }
+  }
+
+  private void updateVertex(long u) {
+    updatedCount++;
+    metrics.generated();
+    if (u != startKey) {
+      int best = bestPredecessor(u, null);
+      if (best == INF)
+        rhs.remove(u);
+      else
+        rhs.put(u, best);
+    }
+    if (g.get(u, INF) != rhs.get(u, INF))
+      push(u);
+  }
+
+  // Lowest g(pred) + cost over u's predecessors; best receives {pred key, move} if not null
+  private int bestPredecessor(long u, long[] best) {
+    int[] min = {INF};
+    int r = State.keyRow(u);
+    int c = State.keyCol(u);
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+    ReverseMoves.Visitor visitor = (pr, pc, ps, cost, dir) -> {
+      int gp = g.get(State.key(pr, pc, ps), INF);
+      if (gp != INF && gp + cost < min[0]) {
+        min[0] = gp + cost;
+        if (best != null) {
+          best[0] = State.key(pr, pc, ps);
+          best[1] = dir.ordinal();
+        }
+      }
+    };
+    if (u == goalKey) { // the goal is one state, reached with or without supply
+      reverse.forEach(r, c, false, dirs, visitor);
+      reverse.forEach(r, c, true, dirs, visitor);
+    } else {
+      reverse.forEach(r, c, State.keySupply(u), dirs, visitor);
+    }
+    return min[0];
+  }
+
+  private void forEachSuccessor(long u, java.util.function.LongConsumer action) {
+    if (u == goalKey)
+      return; // terminal
+    int r = State.keyRow(u);
+    int c = State.keyCol(u);
+    boolean supply = State.keySupply(u);
+    for (Direction dir : Direction.CLOCKWISE) {
+      int nr, nc;
+      if (dir == Direction.Ent) {
+        int exit = board.isTunnel(r, c) ? board.getTunnelExitIndex(r, c) : -1;
+        if (exit < 0)
+          continue;
+        nr = exit / board.getCols();
+        nc = exit % board.getCols();
+      } else {
+        nr = r + dir.dr;
+        nc = c + dir.dc;
+      }
+      if (board.isLegal(nr, nc, supply, -1, -1, false))
+        action.accept(key(nr, nc, supply || board.isSupplyStation(nr, nc)));
+    }
+  }
+
+  // State key with the goal's supply flag dropped
+  private long key(int r, int c, boolean supply) {
+    return board.isGoal(r, c) ? goalKey : State.key(r, c, supply);
+  }
+
+  // --- Queue: stale entries are dropped or re-keyed when they reach the top ---
+
+  private void push(long u) {
+    int m = Math.min(g.get(u, INF), rhs.get(u, INF));
+    queue.add(new long[] {(long) m + h(u), m, u});
+    maxSpace = Math.max(maxSpace, queue.size());
+  }
+
+  private long[] peek() {
+    while (!queue.isEmpty()) {
+      long[] top = queue.peek();
+      long u = top[2];
+      int gu = g.get(u, INF);
+      int ru = rhs.get(u, INF);
+      int m = Math.min(gu, ru);
+      if (gu == ru) {
+        queue.poll(); // consistent again
+      } else if (top[1] != m) {
+        queue.poll();
+        push(u); // key changed since it was queued
+      } else {
+        return top;
+      }
+    }
+    return null;
+  }
+
+  private int compareKey(long[] key, long u) {
+    int m = Math.min(g.get(u, INF), rhs.get(u, INF));
+    long k1 = m == INF ? Long.MAX_VALUE : (long) m + h(u);
+    if (key[0] != k1)
+      return Long.compare(key[0], k1);
+    return Long.compare(key[1], m);
+  }
+
+  private long h(long u) {
+    return heuristic.cost(State.keyRow(u), State.keyCol(u));
+  }
+
+  // --- Path: walk back from the goal along the cheapest predecessors ---
+
+  private String path() {
+    Deque<String> moves = new ArrayDeque<>();
+    long[] best = new long[2];
+    for (long u = goalKey; u != startKey; u = best[0]) {
+      bestPredecessor(u, best);
+      moves.push(Direction.values()[(int) best[1]].name());
+    }
+    return String.join("-", moves);
+  }
+
+  @Override
+  public String returnResult(State next) {
+    return buildPath(next) + "\nNum: " + updatedCount + "\nMax space: " + maxSpace + "\nCost: "
+        + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
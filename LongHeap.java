@@ -0,0 +1,55 @@
+import java.util.Arrays;
+
+/**
+ * Minimal binary heap of (priority, node) pairs packed as priority << 32 | node, so a push or pop
+ * moves plain longs. Used by DistanceField and HierarchicalGraph.
+ */
+public class LongHeap {
+  private long[] heap = new long[64];
+  private int size = 0;
+
+  public void push(int node, int priority) {
+    if (size == heap.length)
+      heap = Arrays.copyOf(heap, size << 1);
+    long item = ((long) priority << 32) | (node & 0xFFFFFFFFL);
+    int i = size++;
+    while (i > 0) {
+      int p = (i - 1) >>> 1;
+      if (heap[p] <= item)
+        break;
+      heap[i] = heap[p];
+      i = p;
+    }
+    heap[i] = item;
+  }
+
+  public long pop() {
+    long top = heap[0];
+    long last = heap[--size];
+    int i = 0;
+    int half = size >>> 1;
+    while (i < half) {
+      int child = 2 * i + 1;
+      if (child + 1 < size && heap[child + 1] < heap[child])
+        child++;
+      if (last <= heap[child])
+        break;
+      heap[i] = heap[child];
+      i = child;
+    }
+    heap[i] = last;
+    return top;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    size = 0;
+  }
+}
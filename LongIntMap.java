@@ -0,0 +1,113 @@
+/**
+ * Open-addressing map from primitive long keys to primitive int values. Same probing scheme as
+ * LongSet; used for the "best g found so far" bookkeeping in AStar.
+ */
+public class LongIntMap {
+
+  private long[] keys;
+  private int[] values;
+  private int size = 0;
+  private int mask;
+
+  public LongIntMap() {
+    this(16);
+  }
+
+  public LongIntMap(int expected) {
+    int cap = LongSet.tableSizeFor(expected);
+    keys = new long[cap];
+    values = new int[cap];
+    java.util.Arrays.fill(keys, LongSet.EMPTY);
+    mask = cap - 1;
+  }
+
+  private int indexOf(long key) {
+    int i = LongSet.mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == key)
+        return i;
+      if (k == LongSet.EMPTY)
+        return -1;
+      i = (i + 1) & mask;
+    }
+  }
+
+  public boolean containsKey(long key) {
+    return indexOf(key) >= 0;
+  }
+
+  /** Returns the mapped value, or defaultValue if the key is absent. */
+  public int get(long key, int defaultValue) {
+    int i = indexOf(key);
+    return i < 0 ? defaultValue : values[i];
+  }
+
+  public void put(long key, int value) {
+    int i = LongSet.mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == key) {
+        values[i] = value;
+        return;
+      }
+      if (k == LongSet.EMPTY)
+        break;
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    values[i] = value;
+    if (++size > (keys.length >> 1) + (keys.length >> 2))
+      rehash(keys.length << 1);
+  }
+
+  public boolean remove(long key) {
+    int i = indexOf(key);
+    if (i < 0)
+      return false;
+    int hole = i;
+    int j = (i + 1) & mask;
+    while (keys[j] != LongSet.EMPTY) {
+      int home = LongSet.mix(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole] = keys[j];
+        values[hole] = values[j];
+        hole = j;
+      }
+      j = (j + 1) & mask;
+    }
+    keys[hole] = LongSet.EMPTY;
+    size--;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public void clear() {
+    if (size == 0)
+      return;
+    java.util.Arrays.fill(keys, LongSet.EMPTY);
+    size = 0;
+  }
+
+  private void rehash(int newCap) {
+    long[] oldKeys = keys;
+    int[] oldValues = values;
+    keys = new long[newCap];
+    values = new int[newCap];
+    java.util.Arrays.fill(keys, LongSet.EMPTY);
+    mask = newCap - 1;
+    for (int o = 0; o < oldKeys.length; o++) {
+      long k = oldKeys[o];
+      if (k == LongSet.EMPTY)
+        continue;
+      int i = LongSet.mix(k) & mask;
+      while (keys[i] != LongSet.EMPTY)
+        i = (i + 1) & mask;
+      keys[i] = k;
+      values[i] = oldValues[o];
+    }
+  }
+}
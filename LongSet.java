@@ -0,0 +1,134 @@
+/**
+ * Open-addressing hash set of primitive long keys (linear probing, backward-shift deletion).
+ * Used by the engines to track visited states by their packed key (see State.getKey()) without
+ * boxing or building a String per lookup.
+ */
+public class LongSet {
+
+  static final long EMPTY = Long.MIN_VALUE; // never produced by State.getKey()
+
+  private long[] keys;
+  private int size = 0;
+  private int mask;
+
+  public LongSet() {
+    this(16);
+  }
+
+  public LongSet(int expected) {
+    int cap = tableSizeFor(expected);
+    keys = new long[cap];
+    java.util.Arrays.fill(keys, EMPTY);
+    mask = cap - 1;
+  }
+
+  public boolean contains(long key) {
+    int i = mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == key)
+        return true;
+      if (k == EMPTY)
+        return false;
+      i = (i + 1) & mask;
+    }
+  }
+
+  /** Returns true if the key was not already present. */
+  public boolean add(long key) {
+    int i = mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == key)
+        return false;
+      if (k == EMPTY)
+        break;
+      i = (i + 1) & mask;
+    }
+    keys[i] = key;
+    if (++size > (keys.length >> 1) + (keys.length >> 2)) // load factor 0.75
+      rehash(keys.length << 1);
+    return true;
+  }
+
+  /** Returns true if the key was present. */
+  public boolean remove(long key) {
+    int i = mix(key) & mask;
+    while (true) {
+      long k = keys[i];
+      if (k == EMPTY)
+        return false;
+      if (k == key)
+        break;
+      i = (i + 1) & mask;
+    }
+    // backward-shift deletion keeps probe chains intact without tombstones
+    int hole = i;
+    int j = (i + 1) & mask;
+    while (keys[j] != EMPTY) {
+      int home = mix(keys[j]) & mask;
+      if (((j - home) & mask) >= ((j - hole) & mask)) {
+        keys[hole] = keys[j];
+        hole = j;
+      }
+      j = (j + 1) & mask;
+    }
+    keys[hole] = EMPTY;
+    size--;
+    return true;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    if (size == 0)
+      return;
+    java.util.Arrays.fill(keys, EMPTY);
+    size = 0;
+  }
+
+  /** Calls the consumer for every key (in table order, not insertion order). */
+  public void forEach(java.util.function.LongConsumer action) {
+    for (long k : keys)
+      if (k != EMPTY)
+        action.accept(k);
+  }
+
+  private void rehash(int newCap) {
+    long[] old = keys;
+    keys = new long[newCap];
+    java.util.Arrays.fill(keys, EMPTY);
+    mask = newCap - 1;
+    for (long k : old) {
+      if (k == EMPTY)
+        continue;
+      int i = mix(k) & mask;
+      while (keys[i] != EMPTY)
+        i = (i + 1) & mask;
+      keys[i] = k;
+    }
+  }
+
+  static int tableSizeFor(int expected) {
+    int cap = 16;
+    while (cap < expected * 2 && cap < (1 << 30))
+      cap <<= 1;
+    return cap;
+  }
+
+  // murmur3 fmix64 finalizer - packed keys have poor low-bit entropy on their own
+  static int mix(long k) {
+    k ^= k >>> 33;
+    k *= 0xff51afd7ed558ccdL;
+    k ^= k >>> 33;
+    k *= 0xc4ceb9fe1a85ec53L;
+    k ^= k >>> 33;
+    return (int) k;
+  }
+}
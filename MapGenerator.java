@@ -0,0 +1,127 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Seeded random boards in the Ex1 input format. Each cell is '#', '~', '^' or '*' with the given
+ * probabilities, and '-' otherwise. Then up to ten tunnel digit pairs, S and G go on distinct
+ * random cells. The same (size, densities, tunnels, seed) always gives the same board.
+ *
+ * <pre>
+ * java MapGenerator 500x500 7 [out.txt] [wall=0.15 smooth=0.1 rough=0.2 supply=0.02 tunnels=3]
+ * </pre>
+ */
+public class MapGenerator {
+
+  public double wall = 0.15; // '#'
+  public double smooth = 0.10; // '~'
+  public double rough = 0.20; // '^'
+  public double supply = 0.02; // '*'
+  public int tunnels = 3; // digit pairs, at most 10
+
+  public static void main(String[] args) throws IOException {
+    String[] size = args[0].split("x");
+    int rows = Integer.parseInt(size[0]);
+    int cols = Integer.parseInt(size[1]);
+    long seed = Long.parseLong(args[1]);
+    String out = "input.txt";
+
+    MapGenerator generator = new MapGenerator();
+    for (int i = 2; i < args.length; i++) {
+      if (args[i].contains("="))
+        generator.set(args[i]);
+      else
+        out = args[i];
+    }
+    generator.write(Path.of(out), rows, cols, seed, "A*", "clockwise new-first");
+  }
+
+  /** Applies one "name=value" density setting. */
+  public MapGenerator set(String setting) {
+    String[] kv = setting.split("=");
+    switch (kv[0]) {
+      case "wall":
+        wall = Double.parseDouble(kv[1]);
+        break;
+      case "smooth":
+        smooth = Double.parseDouble(kv[1]);
+        break;
+      case "rough":
+        rough = Double.parseDouble(kv[1]);
+        break;
+      case "supply":
+        supply = Double.parseDouble(kv[1]);
+        break;
+      case "tunnels":
+        tunnels = Integer.parseInt(kv[1]);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown setting: " + setting);
+    }
+    return this;
+  }
+
+  public char[][] generate(int rows, int cols, long seed) {
+    if (rows * (long) cols < 2 + 2L * Math.min(tunnels, 10))
+      throw new IllegalArgumentException("Board too small: " + rows + "x" + cols);
+    Random random = new Random(seed);
+    char[][] grid = new char[rows][cols];
+    for (int r = 0; r < rows; r++) {
+      for (int c = 0; c < cols; c++) {
+        double p = random.nextDouble();
+        if ((p -= wall) < 0)
+          grid[r][c] = '#';
+        else if ((p -= smooth) < 0)
+          grid[r][c] = '~';
+        else if ((p -= rough) < 0)
+          grid[r][c] = '^';
+        else if (p - supply < 0)
+          grid[r][c] = '*';
+        else
+          grid[r][c] = '-';
+      }
+    }
+
+    // Special cells on distinct positions, never on top of each other
+    Set<Long> used = new HashSet<>();
+    for (int t = 0; t < Math.min(tunnels, 10); t++) {
+      char id = (char) ('0' + t);
+      place(grid, random, used, id);
+      place(grid, random, used, id);
+    }
+    place(grid, random, used, 'S');
+    place(grid, random, used, 'G');
+    return grid;
+  }
+
+  public Board generateBoard(int rows, int cols, long seed) {
+    return new Board(rows, cols, generate(rows, cols, seed));
+  }
+
+  /** Writes a full Ex1 input file: algorithm, order, "no time", "no open", size, grid. */
+  public void write(Path file, int rows, int cols, long seed, String algorithm, String order)
+      throws IOException {
+    char[][] grid = generate(rows, cols, seed);
+    try (BufferedWriter out = Files.newBufferedWriter(file)) {
+      out.write(algorithm + "\n" + order + "\nno time\nno open\n" + rows + "x" + cols + "\n");
+      for (char[] row : grid) {
+        out.write(row);
+        out.write('\n');
+      }
+    }
+  }
+
+  private static void place(char[][] grid, Random random, Set<Long> used, char value) {
+    int rows = grid.length;
+    int cols = grid[0].length;
+    while (true) {
+      int r = random.nextInt(rows);
+      int c = random.nextInt(cols);
+      if (used.add((long) r * cols + c)) {
+        grid[r][c] = value;
+        return;
+      }
+    }
+  }
+}
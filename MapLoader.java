@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Loads boards straight into a CellGrid without going through String lines or char[][].
+ *
+ * <p>Text maps (an Ex1 input.txt, or just the "NxM" size line and rows) are memory-mapped and
+ * streamed byte by byte into the grid, so the only heap copy is the grid itself. Binary maps
+ * (.smap) keep the board index next to the cells and are mapped zero-copy:
+ *
+ * <pre>
+ *   "SMAP" | version | rows | cols | startRow | startCol | goalRow | goalCol
+ *   | tunnel count | {r1, c1, r2, c2} per tunnel | rows * cols cell bytes
+ * </pre>
+ *
+ * All header fields are big-endian ints; start/goal are -1 when the map has none.
+ *
+ * <p>Convert a text map with "java MapLoader map.txt map.smap".
+ */
+public class MapLoader {
+
+  private static final byte[] MAGIC = {'S', 'M', 'A', 'P'};
+  private static final int VERSION = 1;
+  private static final int WINDOW = 1 << 30; // bytes mapped at a time while streaming text
+
+  /** A loaded map: the lines before the size line (empty for bare maps and .smap) and the board. */
+  public static final class Loaded {
+    public final String[] header;
+    public final Board board;
+
+    Loaded(String[] header, Board board) {
+      this.header = header;
+      this.board = board;
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("usage: java MapLoader map.txt out.smap");
+      return;
+    }
+    writeBinary(load(Path.of(args[0])).board, Path.of(args[1]));
+  }
+
+  /** Loads a binary map if the file starts with the magic, a text map otherwise. */
+  public static Loaded load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+      while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {}
+      if (Arrays.equals(magic.array(), MAGIC))
+        return new Loaded(new String[0], loadBinary(channel));
+      return loadText(channel);
+    }
+  }
+
+  // --- Text ---
+
+  /**
+   * Streams a text map: either starting at the "NxM" size line, or an Ex1 input with its four
+   * header lines (algorithm, order, time, open) first. Row lines may end in \n or \r\n.
+   */
+  private static Loaded loadText(FileChannel channel) throws IOException {
+    Reader in = new Reader(channel);
+    List<String> header = new ArrayList<>();
+    String line = in.readLine();
+    while (line != null && !line.matches("\\d+x\\d+") && header.size() < 4) {
+      header.add(line);
+      line = in.readLine();
+    }
+    if (line == null || !line.matches("\\d+x\\d+"))
+      throw new IOException("Missing NxM size line");
+
+    String[] size = line.split("x");
+    int rows = Integer.parseInt(size[0]);
+    int cols = Integer.parseInt(size[1]);
+    checkSize(rows, cols);
+    CellGrid grid = CellGrid.allocate(rows, cols);
+    for (int r = 0; r < rows; r++) {
+      int c = 0;
+      int b;
+      while ((b = in.next()) >= 0 && b != '\n') {
+        if (b == '\r')
+          continue;
+        if (c < cols) // extra characters are ignored, like the old char[][] parser
+          grid.set(r, c, (char) b);
+        c++;
+      }
+      if (c < cols)
+        throw new IOException("Row " + r + " has " + c + " cells, expected " + cols);
+    }
+    return new Loaded(header.toArray(new String[0]), new Board(grid));
+  }
+
+  // Sequential byte reader over the file, mapped one window at a time
+  private static final class Reader {
+    private final FileChannel channel;
+    private final long size;
+    private long windowStart = 0;
+    private ByteBuffer window;
+
+    Reader(FileChannel channel) throws IOException {
+      this.channel = channel;
+      this.size = channel.size();
+      this.window = map(0);
+    }
+
+    private ByteBuffer map(long from) throws IOException {
+      return channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(WINDOW, size - from));
+    }
+
+    int next() throws IOException {
+      if (!window.hasRemaining()) {
+        windowStart += window.capacity();
+        if (windowStart >= size)
+          return -1;
+        window = map(windowStart);
+      }
+      return window.get() & 0xFF;
+    }
+
+    String readLine() throws IOException {
+      StringBuilder line = new StringBuilder();
+      int b = next();
+      if (b < 0)
+        return null;
+      for (; b >= 0 && b != '\n'; b = next())
+        if (b != '\r')
+          line.append((char) b);
+      return line.toString();
+    }
+  }
+
+  // --- Binary ---
+
+  /** Maps a .smap file; the cells stay in the page cache and are never copied onto the heap. */
+  public static Board loadBinary(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return loadBinary(channel);
+    }
+  }
+
+  // Refused before any cell is read, rather than by Board after the whole grid is loaded
+  private static void checkSize(int rows, int cols) throws IOException {
+    if ((long) rows * cols > Board.MAX_CELLS)
+      throw new IOException("Map too large: " + rows + "x" + cols + " cells, at most "
+          + Board.MAX_CELLS);
+  }
+
+  private static Board loadBinary(FileChannel channel) throws IOException {
+    ByteBuffer fixed = read(channel, 0, 4 + 8 * 4);
+    fixed.position(MAGIC.length);
+    int version = fixed.getInt();
+    if (version != VERSION)
+      throw new IOException("Unsupported map version " + version);
+    int rows = fixed.getInt();
+    int cols = fixed.getInt();
+    int startRow = fixed.getInt();
+    int startCol = fixed.getInt();
+    int goalRow = fixed.getInt();
+    int goalCol = fixed.getInt();
+    int tunnelCount = fixed.getInt();
+    checkSize(rows, cols);
+
+    ByteBuffer table = read(channel, fixed.capacity(), tunnelCount * 16);
+    List<int[]> tunnels = new ArrayList<>(tunnelCount);
+    for (int i = 0; i < tunnelCount; i++)
+      tunnels.add(new int[] {table.getInt(), table.getInt(), table.getInt(), table.getInt()});
+
+    long offset = fixed.capacity() + table.capacity();
+    if (channel.size() < offset + (long) rows * cols)
+      throw new IOException("Truncated map: expected " + rows + "x" + cols + " cells");
+    CellGrid grid = CellGrid.map(channel, offset, rows, cols);
+    return new Board(grid, startRow, startCol, goalRow, goalCol, tunnels);
+  }
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buf = ByteBuffer.allocate(length).order(ByteOrder.BIG_ENDIAN);
+    while (buf.hasRemaining()) {
+      if (channel.read(buf, position + buf.position()) < 0)
+        throw new IOException("Truncated map header");
+    }
+    buf.flip();
+    return buf;
+  }
+
+  /** Writes the board as a .smap file (header with its index, then the raw cells). */
+  public static void writeBinary(Board board, Path file) throws IOException {
+    List<int[]> tunnels = board.getAllTunnels();
+    ByteBuffer header = ByteBuffer.allocate(4 + 8 * 4 + tunnels.size() * 16);
+    header.put(MAGIC).putInt(VERSION).putInt(board.getRows()).putInt(board.getCols());
+    header.putInt(board.getStartRow()).putInt(board.getStartCol());
+    header.putInt(board.getGoalRow()).putInt(board.getGoalCol());
+    header.putInt(tunnels.size());
+    for (int[] t : tunnels)
+      header.putInt(t[0]).putInt(t[1]).putInt(t[2]).putInt(t[3]);
+    header.flip();
+
+    try (FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+      while (header.hasRemaining())
+        out.write(header);
+      board.getCellGrid().writeTo(out);
+    }
+  }
+}
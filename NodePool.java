@@ -0,0 +1,159 @@
+import java.util.Arrays;
+
+/**
+ * Search nodes stored as parallel primitive arrays instead of one State object each. A node is an
+ * int id; its cell index (r * cols + c, an int as Board caps a map at Board.MAX_CELLS), g, h,
+ * parent id and move/supply byte live in fixed-size chunks, so growing the pool past the first
+ * chunk never copies existing nodes, only the chunk table (doubling), and a node costs 17 bytes
+ * instead of a State object plus its header and references.
+ *
+ * <p>Ids are handed out in creation order, so comparing ids orders nodes by creation time (the
+ * "new-first"/"old-first" tie-break) without storing it. Used by AStar and BFS.
+ */
+public class NodePool {
+
+  public static final int NONE = -1; // parent of the start node
+  public static final int UNREACHABLE = Integer.MAX_VALUE; // h of a dead end (exact heuristic)
+
+  private static final int CHUNK_BITS = 12;
+  private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+  private static final int FIRST_CAPACITY = 256; // the first chunk starts small for tiny searches
+  private static final int FIRST_CHUNKS = 4; // chunk table slots after the first chunk is full
+
+  private static final Direction[] DIRECTIONS = Direction.values();
+  private static final int SUPPLY = 0x10; // flag in the move byte, low bits hold the direction
+  private static final int NO_MOVE = 0x0F; // direction bits of the start node
+
+  private final int cols;
+  private int[][] cell = new int[0][];
+  private int[][] g = new int[0][];
+  private int[][] h = new int[0][];
+  private int[][] parent = new int[0][];
+  private byte[][] move = new byte[0][];
+  private int size = 0;
+
+  public NodePool(int cols) {
+    this.cols = cols;
+  }
+
+  /** Adds a node and returns its id; dir is null for the start node. */
+  public int add(int row, int col, boolean supply, int gValue, int hValue, int parentId,
+      Direction dir) {
+    int id = size++;
+    int chunk = id >>> CHUNK_BITS;
+    int i = id & CHUNK_MASK;
+    if (chunk == cell.length || cell[chunk] == null || i == cell[chunk].length)
+      grow(chunk);
+    cell[chunk][i] = row * cols + col;
+    g[chunk][i] = gValue;
+    h[chunk][i] = hValue;
+    parent[chunk][i] = parentId;
+    move[chunk][i] = (byte) ((dir == null ? NO_MOVE : dir.ordinal()) | (supply ? SUPPLY : 0));
+    return id;
+  }
+
+  private void grow(int chunk) {
+    if (chunk < cell.length && cell[chunk] != null) {
+      // Only the first chunk is ever resized, doubling up to CHUNK_SIZE
+      int capacity = Math.min(cell[chunk].length << 1, CHUNK_SIZE);
+      cell[chunk] = Arrays.copyOf(cell[chunk], capacity);
+      g[chunk] = Arrays.copyOf(g[chunk], capacity);
+      h[chunk] = Arrays.copyOf(h[chunk], capacity);
+      parent[chunk] = Arrays.copyOf(parent[chunk], capacity);
+      move[chunk] = Arrays.copyOf(move[chunk], capacity);
+      return;
+    }
+    if (chunk == cell.length) {
+      int chunks = chunk == 0 ? 1 : Math.max(FIRST_CHUNKS, chunk << 1);
+      cell = Arrays.copyOf(cell, chunks);
+      g = Arrays.copyOf(g, chunks);
+      h = Arrays.copyOf(h, chunks);
+      parent = Arrays.copyOf(parent, chunks);
+      move = Arrays.copyOf(move, chunks);
+    }
+    int capacity = chunk == 0 ? FIRST_CAPACITY : CHUNK_SIZE;
+    cell[chunk] = new int[capacity];
+    g[chunk] = new int[capacity];
+    h[chunk] = new int[capacity];
+    parent[chunk] = new int[capacity];
+    move[chunk] = new byte[capacity];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int row(int id) {
+    return cell[id >>> CHUNK_BITS][id & CHUNK_MASK] / cols;
+  }
+
+  public int col(int id) {
+    return cell[id >>> CHUNK_BITS][id & CHUNK_MASK] % cols;
+  }
+
+  public int g(int id) {
+    return g[id >>> CHUNK_BITS][id & CHUNK_MASK];
+  }
+
+  public int h(int id) {
+    return h[id >>> CHUNK_BITS][id & CHUNK_MASK];
+  }
+
+  // g + h; long so an UNREACHABLE h can't wrap around
+  public long f(int id) {
+    int chunk = id >>> CHUNK_BITS;
+    int i = id & CHUNK_MASK;
+    return (long) g[chunk][i] + h[chunk][i];
+  }
+
+  public int parent(int id) {
+    return parent[id >>> CHUNK_BITS][id & CHUNK_MASK];
+  }
+
+  public boolean supply(int id) {
+    return (move[id >>> CHUNK_BITS][id & CHUNK_MASK] & SUPPLY) != 0;
+  }
+
+  /** Direction of the move that created the node, null for the start node. */
+  public Direction move(int id) {
+    int dir = move[id >>> CHUNK_BITS][id & CHUNK_MASK] & NO_MOVE;
+    return dir == NO_MOVE ? null : DIRECTIONS[dir];
+  }
+
+  /** Same packed key as State.getKey(). */
+  public long key(int id) {
+    int c = cell[id >>> CHUNK_BITS][id & CHUNK_MASK];
+    return State.key(c / cols, c % cols, supply(id));
+  }
+
+  /** Open list order: f, then creation time (node id) per the tie-breaking rule. */
+  public int compare(int a, int b, boolean newFirst) {
+    int fCompare = Long.compare(f(a), f(b));
+    if (fCompare != 0)
+      return fCompare;
+    return newFirst ? Integer.compare(b, a) : Integer.compare(a, b);
+  }
+
+  /** Moves from the start to the node joined with '-', the only strings built for a search. */
+  public String path(int id) {
+    int length = 0;
+    for (int n = id; parent(n) != NONE; n = parent(n))
+      length++;
+    Direction[] moves = new Direction[length];
+    for (int n = id; parent(n) != NONE; n = parent(n))
+      moves[--length] = move(n);
+    StringBuilder sb = new StringBuilder();
+    for (Direction dir : moves) {
+      if (sb.length() > 0)
+        sb.append('-');
+      sb.append(dir.name());
+    }
+    return sb.toString();
+  }
+
+  // Same text as State.toString(), for the "with open" printout
+  public String toString(int id) {
+    return "(" + row(id) + "," + col(id) + ")";
+  }
+}
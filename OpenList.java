@@ -0,0 +1,64 @@
+import java.util.*;
+
+/**
+ * AStar's open list of NodePool node ids. Orders nodes by f, then by creation time according to
+ * the tie-breaking rule ("new-first" pops the most recently created node among equal f,
+ * "old-first" the oldest), see {@link NodePool#compare(int, int, boolean)}.
+ *
+ * <p>Implementations, selected by name through {@link #create(String, NodePool, boolean)}:
+ * <ul>
+ * <li>"heap" - binary heap of ids with lazy deletion (default)
+ * <li>"buckets" - Dial-style integer f-buckets, O(1) push/pop for the small integer edge costs
+ * <li>"indexed" - binary heap with decrease-key, so improved nodes replace their old entry
+ * </ul>
+ */
+public interface OpenList {
+
+  void add(int node);
+
+  /** Removes and returns the first node, or NodePool.NONE if the list is empty. */
+  int poll();
+
+  boolean isEmpty();
+
+  int size();
+
+  /**
+   * Replaces the queued node oldNode by node (same state, cheaper path found). Returns false if
+   * this open list does not support decrease-key; the caller then adds node and lets the stale
+   * entry be skipped when it is popped.
+   */
+  boolean update(int oldNode, int node);
+
+  /** Node ids in the order they would be popped, for the "with open" printout. */
+  int[] snapshot();
+
+  static OpenList create(String type, NodePool pool, boolean newFirst) {
+    switch (type) {
+      case "heap":
+        return new HeapOpenList(pool, newFirst);
+      case "buckets":
+        return new BucketOpenList(pool, newFirst);
+      case "indexed":
+        return new IndexedHeapOpenList(pool, newFirst);
+      default:
+        throw new IllegalArgumentException("Unknown open list: " + type);
+    }
+  }
+
+  /** The same order over State objects, for the engines that still queue States. */
+  static Comparator<State> comparator(boolean newFirst) {
+    if (newFirst) {
+      return (s1, s2) -> {
+        int fCompare = Double.compare(s1.getF(), s2.getF());
+        // Prefer newer nodes (Higher creation time comes first)
+        return fCompare != 0 ? fCompare : Integer.compare(s2.getCreationTime(), s1.getCreationTime());
+      };
+    }
+    return (s1, s2) -> {
+      int fCompare = Double.compare(s1.getF(), s2.getF());
+      // Prefer older nodes (Lower creation time comes first)
+      return fCompare != 0 ? fCompare : Integer.compare(s1.getCreationTime(), s2.getCreationTime());
+    };
+  }
+}
@@ -0,0 +1,282 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * "with open" trace written as open-list deltas instead of printed listings. The engine records a
+ * push or pop per open-list change and a step mark where it would have printed the listing; the
+ * records go into a buffer that a background thread writes to the file, so tracing costs a few
+ * bytes per event instead of a sorted copy of the open list per expansion.
+ *
+ * <p>Enabled for AStar and BFS "with open" runs by -Dsearch.trace=file, optionally with
+ * -Dsearch.trace.every=N to keep only every N-th step mark. "java OpenTrace file [out]" replays
+ * the deltas and prints the same "Open list: [...]" lines the engine would have printed at each
+ * kept step.
+ *
+ * <p>File layout: "OTRC", version, kind, newFirst, every, then records of a type byte and its
+ * fields (big-endian): 'P' node row col f (ORDERED push), 'p' node (ORDERED pop), 'K' key / 'k'
+ * key (KEYED push / pop of a packed State key) and 'S' step.
+ */
+public class OpenTrace implements Closeable {
+
+  /** AStar: listed by f, then creation order per the tie-break, as "(r,c)". */
+  public static final byte ORDERED = 0;
+  /** BFS: listed in LongSet table order, as State.keyToId. */
+  public static final byte KEYED = 1;
+
+  private static final byte[] MAGIC = {'O', 'T', 'R', 'C'};
+  private static final int VERSION = 1;
+  private static final int BUFFER_SIZE = 1 << 16;
+  private static final int MAX_RECORD = 1 + 4 + 4 + 4 + 8;
+  private static final ByteBuffer END = ByteBuffer.allocate(0); // tells the writer to stop
+
+  private final FileChannel channel;
+  private final int every;
+  private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(4);
+  private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(4);
+  private final Thread writer;
+  private volatile IOException failure;
+  private ByteBuffer buffer;
+  private long steps = 0;
+
+  private OpenTrace(Path file, byte kind, boolean newFirst, int every) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    this.every = Math.max(1, every);
+    for (int i = 0; i < 3; i++)
+      free.add(ByteBuffer.allocate(BUFFER_SIZE));
+    this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    buffer.put(MAGIC).putInt(VERSION).put(kind).put((byte) (newFirst ? 1 : 0)).putInt(this.every);
+
+    this.writer = new Thread(this::drain, "open-trace-writer");
+    writer.setDaemon(true);
+    writer.start();
+  }
+
+  /** Trace named by the "search.trace" system property, or null if tracing is off. */
+  public static OpenTrace fromSystemProperty(byte kind, boolean newFirst) {
+    String file = System.getProperty("search.trace");
+    if (file == null)
+      return null;
+    try {
+      return new OpenTrace(Path.of(file), kind, newFirst,
+          Integer.getInteger("search.trace.every", 1));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Cannot open trace " + file, e);
+    }
+  }
+
+  // --- Recording (engine thread) ---
+
+  public void push(int node, int row, int col, long f) {
+    ensure().put((byte) 'P').putInt(node).putInt(row).putInt(col).putLong(f);
+  }
+
+  public void pop(int node) {
+    ensure().put((byte) 'p').putInt(node);
+  }
+
+  public void pushKey(long key) {
+    ensure().put((byte) 'K').putLong(key);
+  }
+
+  public void popKey(long key) {
+    ensure().put((byte) 'k').putLong(key);
+  }
+
+  /** Marks the point where the engine prints its open list; keeps every N-th one. */
+  public void step() {
+    if (steps++ % every == 0)
+      ensure().put((byte) 'S').putLong(steps);
+  }
+
+  private ByteBuffer ensure() {
+    if (buffer.remaining() < MAX_RECORD)
+      handOff();
+    return buffer;
+  }
+
+  private void handOff() {
+    buffer.flip();
+    try {
+      full.put(buffer);
+      buffer = free.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Trace interrupted", e);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public void close() throws IOException {
+    handOff();
+    try {
+      full.put(END);
+      writer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      channel.close();
+    }
+    if (failure != null)
+      throw failure;
+  }
+
+  // Writer thread: writes full buffers and returns them to the free pool
+  private void drain() {
+    try {
+      while (true) {
+        ByteBuffer next = full.take();
+        if (next == END)
+          return;
+        try {
+          while (next.hasRemaining())
+            channel.write(next);
+        } catch (IOException e) {
+          if (failure == null)
+            failure = e; // keep draining so the engine never blocks
+        }
+        free.put(next);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Wraps AStar's open list so every change is recorded. */
+  public OpenList tracing(OpenList openList, NodePool pool) {
+    return new OpenList() {
+      @Override
+      public void add(int node) {
+        openList.add(node);
+        push(node, pool.row(node), pool.col(node), pool.f(node));
+      }
+
+      @Override
+      public int poll() {
+        int node = openList.poll();
+        if (node != NodePool.NONE)
+          pop(node);
+        return node;
+      }
+
+      @Override
+      public boolean isEmpty() {
+        return openList.isEmpty();
+      }
+
+      @Override
+      public int size() {
+        return openList.size();
+      }
+
+      @Override
+      public boolean update(int oldNode, int node) {
+        if (!openList.update(oldNode, node))
+          return false;
+        pop(oldNode);
+        push(node, pool.row(node), pool.col(node), pool.f(node));
+        return true;
+      }
+
+      @Override
+      public int[] snapshot() {
+        return openList.snapshot();
+      }
+    };
+  }
+
+  // --- Replay ---
+
+  /** java OpenTrace trace [listing.txt] */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("usage: java OpenTrace trace [listing.txt]");
+      return;
+    }
+    try (PrintStream out = args.length > 1
+        ? new PrintStream(new BufferedOutputStream(Files.newOutputStream(Path.of(args[1]))), false)
+        : new PrintStream(new BufferedOutputStream(new FileOutputStream(FileDescriptor.out)), false)) {
+      replay(Path.of(args[0]), out);
+    }
+  }
+
+  /** Prints the open list at every step mark of the trace, as the engine would have. */
+  public static void replay(Path file, PrintStream out) throws IOException {
+    try (DataInputStream in = new DataInputStream(
+        new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+      byte[] magic = new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!Arrays.equals(magic, MAGIC))
+        throw new IOException("Not an open-list trace: " + file);
+      int version = in.readInt();
+      if (version != VERSION)
+        throw new IOException("Unsupported trace version " + version);
+      byte kind = in.readByte();
+      boolean newFirst = in.readByte() != 0;
+      in.readInt(); // sampling interval, informational
+
+      // ORDERED: {f, node, row, col} sorted like NodePool.compare; KEYED: the BFS open set
+      Comparator<long[]> order = Comparator.comparingLong((long[] e) -> e[0]);
+      order = order.thenComparing(newFirst ? (a, b) -> Long.compare(b[1], a[1])
+          : (a, b) -> Long.compare(a[1], b[1]));
+      TreeSet<long[]> ordered = new TreeSet<>(order);
+      Map<Integer, long[]> byNode = new HashMap<>();
+      LongSet keyed = new LongSet();
+
+      int type;
+      while ((type = in.read()) >= 0) {
+        switch (type) {
+          case 'P': {
+            int node = in.readInt();
+            long[] entry = {0, node, in.readInt(), in.readInt()};
+            entry[0] = in.readLong();
+            ordered.add(entry);
+            byNode.put(node, entry);
+            break;
+          }
+          case 'p':
+            ordered.remove(byNode.remove(in.readInt()));
+            break;
+          case 'K':
+            keyed.add(in.readLong());
+            break;
+          case 'k':
+            keyed.remove(in.readLong());
+            break;
+          case 'S':
+            in.readLong();
+            out.println(kind == ORDERED ? listOrdered(ordered) : listKeyed(keyed));
+            break;
+          default:
+            throw new IOException("Corrupt trace record " + type);
+        }
+      }
+    }
+  }
+
+  // Same text as AStar.printOpenSet
+  private static String listOrdered(TreeSet<long[]> open) {
+    StringBuilder sb = new StringBuilder("Open list: [");
+    boolean first = true;
+    for (long[] e : open) {
+      if (!first)
+        sb.append(", ");
+      sb.append('(').append(e[2]).append(',').append(e[3]).append(')');
+      first = false;
+    }
+    return sb.append(']').toString();
+  }
+
+  // Same text as BFS.printOpenSet
+  private static String listKeyed(LongSet open) {
+    StringJoiner content = new StringJoiner("  ");
+    open.forEach(key -> content.add(State.keyToId(key)));
+    return "Open list: [" + content + "]";
+  }
+}
@@ -0,0 +1,248 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hash-distributed A* (HDA*). Every state is owned by one worker, chosen by a hash of its packed
+ * key (row, col, supply). A worker keeps its own open list and g table for the states it owns and
+ * sends every generated successor to its owner's lock-free inbox.
+ *
+ * <p>A goal reached at generation only sets an incumbent cost; workers keep expanding states with
+ * f below it. The heuristic is PortalHeuristic, a lower bound even when tunnels chain, so the
+ * returned Cost is optimal. The search ends when no state is left in any inbox or open list:
+ * {@code pending} counts them, and children are counted before their parent is retired, so it
+ * cannot reach 0 while work is in flight. A worker that throws stops the others, and solve()
+ * rethrows its exception.
+ */
+public class ParallelAStar implements Algorithm {
+
+  private final boolean clockwise;
+  private final boolean newFirst;
+  private final int threads;
+
+  private final AtomicReference<State> best = new AtomicReference<>();
+  private final AtomicLong pending = new AtomicLong();
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private Worker[] workers;
+  private SearchMetrics metrics = SearchMetrics.NONE; // shared by every worker thread
+
+  public ParallelAStar(String order, String tieBreaker, int threads) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.newFirst = "new-first".equals(tieBreaker);
+    this.threads = Math.max(1, threads);
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("A* parallel");
+    // Admissible even when tunnels chain, so cutting at the incumbent cost keeps Cost optimal
+    Heuristic heuristic = new PortalHeuristic(board, board.getGoalRow(), board.getGoalCol());
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+
+    best.set(null);
+    pending.set(0);
+    failure.set(null);
+    workers = new Worker[threads];
+    for (int i = 0; i < threads; i++)
+      workers[i] = new Worker(board, heuristic, dirs);
+
+    State start = board.getStart();
+    start.setH(heuristic.get(start));
+    pending.incrementAndGet();
+    workers[owner(start.getKey())].inbox.add(start);
+
+    Thread[] running = new Thread[threads];
+    for (int i = 0; i < threads; i++) {
+      running[i] = new Thread(workers[i], "hda-" + i);
+      running[i].start();
+    }
+    for (Thread t : running) {
+      try {
+        t.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("HDA* interrupted", e);
+      }
+    }
+    Throwable failed = failure.get();
+    if (failed instanceof RuntimeException)
+      throw (RuntimeException) failed;
+    if (failed instanceof Error)
+      throw (Error) failed;
+    if (failed != null)
+      throw new IllegalStateException("HDA* worker failed", failed);
+
+    State goal = best.get();
+    if (goal == null) {
+      metrics.searchFinished(false, 0);
+      return "no path" + statistics() + "\nCost: inf" + perThreadStatistics();
+    }
+    return returnResult(goal);
+  }
+
+  private int owner(long key) {
+    return Math.floorMod(LongSet.mix(key), threads);
+  }
+
+  private double bestCost() {
+    State goal = best.get();
+    return goal == null ? Double.MAX_VALUE : goal.getG();
+  }
+
+  private void offerGoal(State goal) {
+    State current;
+    do {
+      current = best.get();
+      if (current != null && current.getG() <= goal.getG())
+        return;
+    } while (!best.compareAndSet(current, goal));
+  }
+
+  private final class Worker implements Runnable {
+    final ConcurrentLinkedQueue<State> inbox = new ConcurrentLinkedQueue<>();
+    final PriorityQueue<State> openList = new PriorityQueue<>(OpenList.comparator(newFirst));
+    final LongDoubleMap bestG = new LongDoubleMap(); // owned states, open or closed
+    final Board board;
+    final Heuristic heuristic;
+    final Direction[] dirs;
+
+    int generatedNodesCount = 0;
+    int maxSpace = 0;
+    int creationCounter = 0;
+
+    Worker(Board board, Heuristic heuristic, Direction[] dirs) {
+      this.board = board;
+      this.heuristic = heuristic;
+      this.dirs = dirs;
+    }
+
+    @Override
+    public void run() {
+      try {
+        search();
+      } catch (Throwable t) {
+        // Stop every worker; solve() rethrows instead of reporting an unfinished search
+        failure.compareAndSet(null, t);
+      }
+    }
+
+    private void search() {
+      while (pending.get() > 0 && failure.get() == null) {
+        // 1. Take ownership of states sent to us
+        State received;
+        while ((received = inbox.poll()) != null) {
+          long key = received.getKey();
+          double knownG = bestG.get(key, Double.MAX_VALUE);
+          if (received.getG() < knownG) {
+            if (knownG != Double.MAX_VALUE)
+              metrics.reopened();
+            bestG.put(key, received.getG());
+            received.setCreationTime(++creationCounter);
+            openList.add(received);
+            maxSpace = Math.max(maxSpace, openList.size());
+          } else {
+            pending.decrementAndGet(); // duplicate, no better than what we have
+            metrics.duplicatePruned();
+          }
+        }
+
+        if (openList.isEmpty()) {
+          Thread.onSpinWait();
+          Thread.yield();
+          continue;
+        }
+
+        // 2. Expand our best state
+        State current = openList.poll();
+        if (current.getG() > bestG.get(current.getKey(), Double.MAX_VALUE)) {
+          pending.decrementAndGet(); // stale entry, a cheaper copy was queued
+          continue;
+        }
+        if (current.getF() >= bestCost()) {
+          // Nothing left here can beat the incumbent
+          pending.addAndGet(-(1 + openList.size()));
+          openList.clear();
+          continue;
+        }
+        metrics.expanded();
+        metrics.frontier(openList.size(), bestG.size());
+
+        for (Direction dir : dirs) {
+          int newR, newC;
+          if (dir == Direction.Ent) {
+            int exit = board.isTunnel(current.row, current.col)
+                ? board.getTunnelExitIndex(current.row, current.col) : -1;
+            if (exit < 0)
+              continue; // not a tunnel, or its other end is gone
+            newR = exit / board.getCols();
+            newC = exit % board.getCols();
+          } else {
+            newR = current.row + dir.dr;
+            newC = current.col + dir.dc;
+          }
+
+          if (board.isLegal(newR, newC, current.SupplyStation, current.parent)) {
+            double newG = current.getG() + board.getPositionValue(newR, newC, dir);
+            State next = new State(newR, newC, newG, 0, current, dir.name(), board);
+            generatedNodesCount++;
+            metrics.generated();
+            if (next.onGoal) {
+              offerGoal(next);
+              continue;
+            }
+            next.setH(heuristic.get(next));
+            metrics.heuristicEvaluated();
+            if (next.getF() >= bestCost())
+              continue;
+            pending.incrementAndGet(); // before the parent is retired below
+            workers[owner(next.getKey())].inbox.add(next);
+          }
+        }
+        pending.decrementAndGet();
+      }
+    }
+  }
+
+  private String statistics() {
+    int num = 0;
+    int space = 0;
+    for (Worker w : workers) {
+      num += w.generatedNodesCount;
+      space += w.maxSpace;
+    }
+    // Max space is the sum of every worker's own peak open list size
+    return "\nNum: " + num + "\nMax space: " + space;
+  }
+
+  private String perThreadStatistics() {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < workers.length; i++)
+      sb.append("\nThread ").append(i).append(": Num: ").append(workers[i].generatedNodesCount)
+          .append(", Max space: ").append(workers[i].maxSpace);
+    return sb.toString();
+  }
+
+  @Override
+  public String returnResult(State next) {
+    metrics.searchFinished(true, next.getG());
+    return buildPath(next) + statistics() + "\nCost: " + (int) next.getG() + perThreadStatistics();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
@@ -0,0 +1,260 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * DFID with each depth-limited iteration split over a ForkJoinPool ("DFID parallel"). The first
+ * SPLIT_DEPTH levels of the tree are expanded by fork-join tasks, one per child; below that a task
+ * searches its subtree sequentially, like DFID.limitedDFS. Idle workers steal pending subtrees.
+ *
+ * <p>Every task has a position: its child ranks from the root, in the configured move order, packed
+ * so that comparing two positions compares the order in which DFID would visit them. A task that
+ * reaches a goal lowers the shared {@code firstGoal} position; tasks after it stop early, tasks
+ * before it still finish, and the parent takes the first goal among its children. The path and
+ * Cost are therefore the same as DFID's. Each task counts the nodes it generates, itself included,
+ * and "Num" adds up the tasks at or before the goal's position: the ones DFID would have visited,
+ * so Num matches DFID's whatever the thread count or schedule.
+ */
+public class ParallelDFID implements Algorithm {
+
+  // Levels expanded by forking; deeper subtrees are one sequential task each
+  private static final int SPLIT_DEPTH = 4;
+  private static final int LEVEL_BITS = 4; // per level of a position: child rank + 1
+  private static final long NONE = Long.MAX_VALUE;
+
+  private final boolean clockwise;
+  private final int threads;
+
+  // Shared by the tasks of one iteration
+  private final AtomicLong firstGoal = new AtomicLong(NONE);
+  private final AtomicBoolean cutoff = new AtomicBoolean();
+  private final LongAdder visitedNodes = new LongAdder();
+  private final Queue<long[]> taskCounts = new ConcurrentLinkedQueue<>(); // {position, generated}
+  private Board board;
+  private Direction[] dirs;
+
+  private int maxSpace = 0; // the depth limit, as in DFID
+  private SearchMetrics metrics = SearchMetrics.NONE; // shared by every worker thread
+
+  public ParallelDFID(String order, int threads) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.threads = Math.max(1, threads);
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("DFID parallel");
+    this.board = board;
+    this.dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+    visitedNodes.reset();
+    maxSpace = 0;
+    State start = board.getStart();
+
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      for (int limit = 1; limit < Integer.MAX_VALUE; limit++) {
+        maxSpace = Math.max(maxSpace, limit);
+        metrics.iteration(limit, limit);
+        firstGoal.set(NONE);
+        cutoff.set(false);
+
+        State goal = pool.invoke(new Subtree(start, new long[0], limit, 0L));
+        countTasks();
+        if (goal != null)
+          return returnResult(goal);
+        if (!cutoff.get())
+          break; // the whole tree was searched without reaching the limit
+      }
+    } finally {
+      pool.shutdown();
+    }
+    metrics.searchFinished(false, 0);
+    return "no path";
+  }
+
+  // Position of the child of rank i (0 = visited first) of a node at depth
+  private static long childPosition(long position, int depth, int i) {
+    return position | (long) (i + 1) << (Long.SIZE - 1 - LEVEL_BITS * (depth + 1));
+  }
+
+  private boolean cancelled(long position) {
+    return firstGoal.get() < position;
+  }
+
+  private void offerGoal(long position) {
+    firstGoal.accumulateAndGet(position, Math::min);
+  }
+
+  // Adds the counts of the tasks DFID would have run: those not after the goal
+  private void countTasks() {
+    long last = firstGoal.get();
+    for (long[] task : taskCounts)
+      if (task[0] <= last)
+        visitedNodes.add(task[1]);
+    taskCounts.clear();
+  }
+
+  /** One node of the split levels, or a sequentially searched subtree below them. */
+  private final class Subtree extends RecursiveTask<State> {
+    private static final long serialVersionUID = 1L;
+
+    final State node;
+    final long[] ancestors; // keys on the path above node, for loop avoidance
+    final int limit; // remaining depth
+    final long position;
+    int generated = 0; // nodes generated by this task, node itself included unless it is the start
+
+    Subtree(State node, long[] ancestors, int limit, long position) {
+      this.node = node;
+      this.ancestors = ancestors;
+      this.limit = limit;
+      this.position = position;
+    }
+
+    @Override
+    protected State compute() {
+      if (cancelled(position))
+        return null;
+      if (ancestors.length > 0)
+        generated++;
+      State goal = search();
+      taskCounts.add(new long[] {position, generated});
+      return goal;
+    }
+
+    private State search() {
+      if (ancestors.length == SPLIT_DEPTH) {
+        LongSet path = new LongSet();
+        for (long key : ancestors)
+          path.add(key);
+        State goal = limitedDFS(node, limit, path);
+        if (goal != null)
+          offerGoal(position);
+        return goal;
+      }
+
+      if (node.onGoal) {
+        offerGoal(position);
+        return node;
+      }
+      if (limit == 0) {
+        cutoff.set(true);
+        return null;
+      }
+      metrics.expanded();
+
+      long[] path = Arrays.copyOf(ancestors, ancestors.length + 1);
+      path[ancestors.length] = node.getKey();
+      List<Subtree> children = new ArrayList<>(dirs.length);
+      for (Direction dir : dirs) {
+        State next = move(node, dir);
+        if (next == null)
+          continue;
+        if (contains(path, next.getKey())) {
+          metrics.duplicatePruned();
+          continue;
+        }
+        metrics.generated(); // counted by the child's task, as DFID counts it just before visiting
+        children.add(new Subtree(next, path, limit - 1,
+            childPosition(position, ancestors.length, children.size())));
+      }
+
+      // Children are visited in move order, so the first goal among them is DFID's
+      for (Subtree child : invokeAll(children)) {
+        State goal = child.join();
+        if (goal != null)
+          return goal;
+      }
+      return null;
+    }
+
+    // DFID.limitedDFS over the subtree; null unless a goal was reached
+    private State limitedDFS(State current, int limit, LongSet path) {
+      if (current.onGoal)
+        return current;
+      if (limit == 0) {
+        cutoff.set(true);
+        return null;
+      }
+      if (cancelled(position))
+        return null; // an earlier subtree already has the answer
+
+      path.add(current.getKey());
+      metrics.expanded();
+      metrics.frontier(path.size(), 0);
+
+      for (Direction dir : dirs) {
+        State next = move(current, dir);
+        if (next == null)
+          continue;
+        if (!path.contains(next.getKey())) {
+          generated++;
+          metrics.generated();
+          State goal = limitedDFS(next, limit - 1, path);
+          if (goal != null)
+            return goal;
+        } else {
+          metrics.duplicatePruned();
+        }
+      }
+
+      path.remove(current.getKey());
+      return null;
+    }
+  }
+
+  // The child reached by moving in dir, or null if the move is not allowed
+  private State move(State current, Direction dir) {
+    int newR, newC;
+    if (dir == Direction.Ent) {
+      int exit = board.isTunnel(current.row, current.col)
+          ? board.getTunnelExitIndex(current.row, current.col) : -1;
+      if (exit < 0)
+        return null; // not a tunnel, or its other end is gone
+      newR = exit / board.getCols();
+      newC = exit % board.getCols();
+    } else {
+      newR = current.row + dir.dr;
+      newC = current.col + dir.dc;
+    }
+    if (!board.isLegal(newR, newC, current.SupplyStation, current.parent))
+      return null;
+    return new State(newR, newC, current.getG() + board.getPositionValue(newR, newC, dir), 0,
+        current, dir.name(), board);
+  }
+
+  private static boolean contains(long[] keys, long key) {
+    for (long k : keys)
+      if (k == key)
+        return true;
+    return false;
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+
+  @Override
+  public String returnResult(State next) {
+    metrics.searchFinished(true, next.getG());
+    return buildPath(next) + "\n" + "Num: " + visitedNodes.sum() + "\n" + "Max space: " + maxSpace
+        + "\n" + "Cost: " + next.getG();
+  }
+}
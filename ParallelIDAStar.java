@@ -0,0 +1,365 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IDA* with each threshold iteration split over a ForkJoinPool ("IDA* parallel", "IDA* parallel
+ * exact"). The first SPLIT_DEPTH levels are expanded by fork-join tasks, one per child; below that
+ * a task runs IDAStar's stack loop over its subtree. Idle workers steal pending subtrees. The
+ * threshold is fixed per iteration; the next one, the smallest f that exceeded it, is collected
+ * by a shared DoubleAccumulator as tasks finish.
+ *
+ * <p>A task starts with the stack IDAStar would hold when it reached the subtree: the ancestors,
+ * marked "out", and the siblings along the path that IDAStar would visit later. States found in
+ * other tasks' subtrees are not seen, so some duplicates IDAStar prunes are searched here too.
+ * The split is fixed and does not depend on timing, so each subtree's search is deterministic.
+ *
+ * <p>Positions order the tasks the way IDAStar's stack visits them (last pushed first). A goal
+ * lowers the shared {@code firstGoal} position; tasks after it stop early, tasks before it
+ * finish, and each node takes the first goal among its children, so the returned path depends
+ * only on the board and the move order, not on the schedule. "Num" and "Max space" (the largest
+ * stack plus table of one task) only take the tasks at or before the goal's position, so they do
+ * not depend on the schedule either; the duplicates above can make them differ from IDAStar's. The
+ * "tt" and "cr" options of IDAStar are sequential only.
+ */
+public class ParallelIDAStar implements Algorithm {
+
+  // Levels expanded by forking; deeper subtrees are one sequential task each
+  private static final int SPLIT_DEPTH = 4;
+  private static final int LEVEL_BITS = 4; // per level of a position: visit rank + 1
+  private static final long NONE = Long.MAX_VALUE;
+
+  private final boolean clockwise;
+  private final boolean exactHeuristic;
+  private final int threads;
+
+  // Shared by the tasks of one iteration
+  private final AtomicLong firstGoal = new AtomicLong(NONE);
+  private final DoubleAccumulator minF = new DoubleAccumulator(Math::min, Double.MAX_VALUE);
+  private final LongAdder generatedNodesCount = new LongAdder();
+  private final Queue<long[]> taskCounts = new ConcurrentLinkedQueue<>(); // {position, num, space}
+  private int maxSpace;
+  private Board board;
+  private Heuristic heuristic;
+  private Direction[] dirs;
+  private double threshold;
+
+  private SearchMetrics metrics = SearchMetrics.NONE; // shared by every worker thread
+
+  public ParallelIDAStar(String order, boolean exactHeuristic, int threads) {
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.exactHeuristic = exactHeuristic;
+    this.threads = Math.max(1, threads);
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("IDA* parallel");
+    this.board = board;
+    this.heuristic = exactHeuristic ? board.getDistanceField() : board.getHeuristicTable();
+    this.dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+    generatedNodesCount.reset();
+    maxSpace = 0;
+    State start = board.getStart();
+
+    double t = heuristic.get(start);
+    metrics.heuristicEvaluated();
+    int iteration = 0;
+    ForkJoinPool pool = new ForkJoinPool(threads);
+    try {
+      while (t != Double.MAX_VALUE) {
+        metrics.iteration(++iteration, t);
+        threshold = t;
+        firstGoal.set(NONE);
+        minF.reset();
+
+        State goal = pool.invoke(new Subtree(start, null, 0, 0L));
+        countTasks();
+        if (goal != null)
+          return returnResult(goal);
+        t = minF.get();
+      }
+    } finally {
+      pool.shutdown();
+    }
+    metrics.searchFinished(false, 0);
+    return "no path" + "\nNum: " + generatedNodesCount.sum() + "\nMax space: " + maxSpace
+        + "\nCost: inf";
+  }
+
+  // Position of the child of rank i (0 = visited first) of a node at depth
+  private static long childPosition(long position, int depth, int i) {
+    return position | (long) (i + 1) << (Long.SIZE - 1 - LEVEL_BITS * (depth + 1));
+  }
+
+  private boolean cancelled(long position) {
+    return firstGoal.get() < position;
+  }
+
+  // Adds the statistics of the tasks not after the goal, which run the same on every schedule
+  private void countTasks() {
+    long last = firstGoal.get();
+    for (long[] task : taskCounts) {
+      if (task[0] <= last) {
+        generatedNodesCount.add(task[1]);
+        maxSpace = Math.max(maxSpace, (int) task[2]);
+      }
+    }
+    taskCounts.clear();
+  }
+
+  /** A stack entry inherited from the split levels, newest first. */
+  private static final class Inherited {
+    final State state;
+    final boolean out;
+    final Inherited next;
+
+    Inherited(State state, boolean out, Inherited next) {
+      this.state = state;
+      this.out = out;
+      this.next = next;
+    }
+
+    static int size(Inherited head) {
+      int n = 0;
+      for (Inherited e = head; e != null; e = e.next)
+        n++;
+      return n;
+    }
+
+    static Inherited find(Inherited head, long key) {
+      for (Inherited e = head; e != null; e = e.next)
+        if (e.state.getKey() == key)
+          return e;
+      return null;
+    }
+  }
+
+  /** One node of the split levels, or a sequentially searched subtree below them. */
+  private final class Subtree extends RecursiveTask<State> {
+    private static final long serialVersionUID = 1L;
+
+    final State node;
+    final Inherited stack; // IDAStar's stack below node
+    final int depth;
+    final long position;
+
+    // Statistics of this task, added to the shared ones when it ends
+    int generated = 0;
+    int space = 0;
+    double nextF = Double.MAX_VALUE;
+
+    Subtree(State node, Inherited stack, int depth, long position) {
+      this.node = node;
+      this.stack = stack;
+      this.depth = depth;
+      this.position = position;
+    }
+
+    @Override
+    protected State compute() {
+      if (cancelled(position))
+        return null;
+      State goal;
+      List<Subtree> children = new ArrayList<>();
+      if (depth == SPLIT_DEPTH)
+        goal = search();
+      else
+        goal = expand(children);
+      taskCounts.add(new long[] {position, generated, space});
+      minF.accumulate(nextF);
+      if (goal != null) {
+        firstGoal.accumulateAndGet(position, Math::min);
+        return goal;
+      }
+
+      // Children are listed in visiting order, so the first goal among them is IDAStar's
+      for (Subtree child : invokeAll(children)) {
+        goal = child.join();
+        if (goal != null)
+          return goal;
+      }
+      return null;
+    }
+
+    // Expands node as IDAStar does and lists a task per pushed child; a goal met on the way
+    private State expand(List<Subtree> children) {
+      metrics.expanded();
+      space = 2 * (Inherited.size(stack) + 1); // IDAStar's stack and table when it pops node
+      Inherited below = new Inherited(node, true, stack);
+      List<State> pushed = new ArrayList<>(dirs.length);
+      for (Direction dir : dirs) {
+        State g = move(node, dir);
+        if (g == null)
+          continue;
+        long gKey = g.getKey();
+        if (g.getF() > threshold) {
+          if (g.onGoal)
+            return g;
+          nextF = Math.min(nextF, g.getF());
+          continue;
+        }
+
+        State gPrime = null;
+        for (State s : pushed)
+          if (s.getKey() == gKey)
+            gPrime = s;
+        Inherited inherited = gPrime == null ? Inherited.find(below, gKey) : null;
+        if (inherited != null && inherited.out) {
+          metrics.duplicatePruned(); // cycle in the current path
+          continue;
+        }
+        if (inherited != null)
+          gPrime = inherited.state;
+        if (gPrime != null) {
+          if (gPrime.getF() > g.getF()) {
+            pushed.remove(gPrime); // an inherited one is shadowed by g below
+            metrics.reopened();
+          } else {
+            metrics.duplicatePruned();
+            continue;
+          }
+        }
+        if (g.onGoal)
+          return g;
+        pushed.add(g);
+      }
+
+      // The stack pops the last pushed child first; the ones pushed before it wait below it
+      Inherited[] waiting = new Inherited[pushed.size()];
+      Inherited chain = below;
+      for (int k = 0; k < pushed.size(); k++) {
+        waiting[k] = chain;
+        chain = new Inherited(pushed.get(k), false, chain);
+      }
+      for (int k = pushed.size() - 1; k >= 0; k--)
+        children.add(new Subtree(pushed.get(k), waiting[k], depth + 1,
+            childPosition(position, depth, pushed.size() - 1 - k)));
+      return null;
+    }
+
+    // IDAStar's stack loop over the subtree of node
+    private State search() {
+      SearchStack L = new SearchStack();
+      LongObjectMap<SearchStack.Entry> H = new LongObjectMap<>();
+      int inherited = Inherited.size(stack); // in IDAStar's stack too, here only in H
+      Deque<Inherited> oldestFirst = new ArrayDeque<>();
+      for (Inherited e = stack; e != null; e = e.next)
+        oldestFirst.push(e);
+      for (Inherited e : oldestFirst) {
+        SearchStack.Entry entry = new SearchStack.Entry(e.state);
+        entry.out = e.out;
+        H.put(e.state.getKey(), entry); // a newer entry replaces a shadowed one
+      }
+      SearchStack.Entry root = new SearchStack.Entry(node);
+      L.push(root);
+      H.put(node.getKey(), root);
+
+      while (!L.isEmpty()) {
+        space = Math.max(space, inherited + L.size() + H.size());
+        SearchStack.Entry top = L.pop();
+        State n = top.state;
+        if (top.out) {
+          H.remove(n.getKey());
+          continue;
+        }
+        if (cancelled(position))
+          return null; // an earlier subtree already has the answer
+        top.out = true;
+        L.push(top);
+        metrics.expanded();
+        metrics.frontier(L.size(), H.size());
+
+        for (Direction dir : dirs) {
+          State g = move(n, dir);
+          if (g == null)
+            continue;
+          long gKey = g.getKey();
+          if (g.getF() > threshold) {
+            if (g.onGoal)
+              return g;
+            nextF = Math.min(nextF, g.getF());
+            continue;
+          }
+
+          SearchStack.Entry gPrime = H.get(gKey);
+          if (gPrime != null && gPrime.out) {
+            metrics.duplicatePruned(); // cycle in the current path
+            continue;
+          }
+          if (gPrime != null) {
+            if (gPrime.state.getF() > g.getF()) {
+              if (L.contains(gPrime)) // not if it waits in the split levels
+                L.remove(gPrime);
+              H.remove(gKey);
+              metrics.reopened();
+            } else {
+              metrics.duplicatePruned();
+              continue;
+            }
+          }
+          if (g.onGoal)
+            return g;
+
+          SearchStack.Entry entry = new SearchStack.Entry(g);
+          L.push(entry);
+          H.put(gKey, entry);
+        }
+      }
+      return null;
+    }
+
+    // The child reached by moving in dir, with its h, or null if the move is not allowed
+    private State move(State n, Direction dir) {
+      int newR, newC;
+      if (dir == Direction.Ent) {
+        int exit = board.isTunnel(n.row, n.col)
+            ? board.getTunnelExitIndex(n.row, n.col) : -1;
+        if (exit < 0)
+          return null; // not a tunnel, or its other end is gone
+        newR = exit / board.getCols();
+        newC = exit % board.getCols();
+      } else {
+        newR = n.row + dir.dr;
+        newC = n.col + dir.dc;
+      }
+      if (!board.isLegal(newR, newC, n.SupplyStation, n.parent))
+        return null;
+      double newG = n.getG() + board.getPositionValue(newR, newC, dir);
+      State g = new State(newR, newC, newG, 0, n, dir.name(), board);
+      generated++;
+      metrics.generated();
+      g.setH(heuristic.get(g));
+      metrics.heuristicEvaluated();
+      return g;
+    }
+  }
+
+  @Override
+  public String returnResult(State next) {
+    metrics.searchFinished(true, next.getG());
+    return buildPath(next) + "\nNum: " + generatedNodesCount.sum() + "\nMax space: "
+        + maxSpace + "\nCost: " + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
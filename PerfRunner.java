@@ -0,0 +1,239 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scaling and regression runner. Generates (or reuses) a seeded corpus with MapGenerator, solves
+ * every board with every engine and writes one CSV row per run:
+ *
+ * <pre>
+ * map,rows,cols,algorithm,status,num,max_space,cost,time_s,peak_heap_mb
+ * </pre>
+ *
+ * Each solve runs in its own JVM, so a timeout can kill it and peak heap is measured per run. When
+ * an engine times out or runs out of memory on a size, it is skipped for the larger sizes - the
+ * CSV shows where each engine stops scaling. With --baseline the rows are compared to a stored CSV:
+ * a different Cost or status fails the run, a different Num/Max space is reported, and so is a
+ * time above baseline * --tolerance. With --reference every engine's Cost on a map must equal the
+ * reference engine's, which checks the engines that promise an optimal Cost; a run that did not
+ * finish fails the check too. --generate passes MapGenerator settings for the corpus, --seed takes
+ * a list.
+ *
+ * <pre>
+ * java PerfRunner [--sizes 10,100,1000,5000] [--algorithms "BFS,A*,IDA* tt"] [--seed 1,2]
+ *                 [--generate "tunnels=6"] [--reference "A* exact"]
+ *                 [--timeout 60] [--xmx 4g] [--corpus corpus] [--out perf.csv]
+ *                 [--baseline baseline.csv] [--tolerance 1.5]
+ * </pre>
+ *
+ * Optimality on chained tunnels, where HeuristicTable overestimates (these seeds each broke an
+ * engine that ordered or pruned by it):
+ *
+ * <pre>
+ * java PerfRunner --sizes 40 --seed 46,64,68,82,107 --generate "tunnels=6"
+ *     --reference "A* exact" --algorithms "A* sma,A* hpa exact,A* parallel,A* anytime,A* jps,
+ *     A* bidirectional,A* frontier,A* lpa,IDA* exact,IDA* parallel exact"
+ * </pre>
+ */
+public class PerfRunner {
+
+  private static final String HEADER =
+      "map,rows,cols,algorithm,status,num,max_space,cost,time_s,peak_heap_mb";
+
+  public static void main(String[] args) throws Exception {
+    if (args.length > 0 && args[0].equals("--single")) {
+      single(args[1], args[2]);
+      return;
+    }
+
+    Map<String, String> opts = new HashMap<>();
+    for (int i = 0; i + 1 < args.length; i += 2)
+      opts.put(args[i], args[i + 1]);
+    String[] sizes = opts.getOrDefault("--sizes", "10,50,100,500,1000,2000,5000").split(",");
+    List<String> algorithms = new ArrayList<>();
+    for (String algorithm : opts.getOrDefault("--algorithms", "BFS,A*,DFID,IDA*,DFBnB").split(","))
+      algorithms.add(algorithm.trim());
+    String reference = opts.get("--reference");
+    if (reference != null && !algorithms.contains(reference))
+      algorithms.add(0, reference);
+    String[] seeds = opts.getOrDefault("--seed", "1").split(",");
+    String generate = opts.getOrDefault("--generate", "").trim();
+    long timeout = Long.parseLong(opts.getOrDefault("--timeout", "60"));
+    String xmx = opts.getOrDefault("--xmx", "4g");
+    Path corpus = Path.of(opts.getOrDefault("--corpus", "corpus"));
+    Path out = Path.of(opts.getOrDefault("--out", "perf.csv"));
+    double tolerance = Double.parseDouble(opts.getOrDefault("--tolerance", "1.5"));
+
+    Files.createDirectories(corpus);
+    MapGenerator generator = new MapGenerator();
+    String suffix = "";
+    for (String setting : generate.isEmpty() ? new String[0] : generate.split("\\s+")) {
+      generator.set(setting);
+      suffix += "_" + setting; // maps made with other settings get other files
+    }
+    Set<String> gaveUp = new HashSet<>();
+    List<String> rows = new ArrayList<>();
+
+    try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(out))) {
+      csv.println(HEADER);
+      for (String size : sizes) {
+        int n = Integer.parseInt(size.trim());
+        Set<String> failedAtSize = new HashSet<>();
+        for (String seed : seeds) {
+          Path map = corpus.resolve("map_" + n + "x" + n + "_" + seed.trim() + suffix + ".txt");
+          if (!Files.exists(map))
+            generator.write(map, n, n, Long.parseLong(seed.trim()), "A*", "clockwise new-first");
+
+          for (String algorithm : algorithms) {
+            String row;
+            if (gaveUp.contains(algorithm)) {
+              row = csvRow(map, n, algorithm, "skipped", "", "", "", "", "");
+            } else {
+              row = runChild(map, n, algorithm, timeout, xmx);
+              if (!row.split(",")[4].equals("ok"))
+                failedAtSize.add(algorithm); // it won't do better on a bigger board
+            }
+            rows.add(row);
+            csv.println(row);
+            csv.flush();
+            System.out.println(row);
+          }
+        }
+        gaveUp.addAll(failedAtSize); // the other seeds of this size still ran
+      }
+    }
+
+    boolean failed = reference != null && !matchesReference(reference, rows);
+    if (opts.containsKey("--baseline"))
+      failed |= compare(Path.of(opts.get("--baseline")), rows, tolerance);
+    if (failed)
+      System.exit(1);
+  }
+
+  // Every run must finish with the reference engine's Cost on the same map; a timeout, error or
+  // skipped run leaves its map unchecked, so it fails too
+  private static boolean matchesReference(String reference, List<String> rows) {
+    Map<String, String> expected = new HashMap<>();
+    for (String row : rows) {
+      String[] f = row.split(",", -1);
+      if (f[3].equals(reference) && f[4].equals("ok"))
+        expected.put(f[0], f[7]);
+    }
+    boolean ok = true;
+    for (String row : rows) {
+      String[] f = row.split(",", -1);
+      if (!f[4].equals("ok")) {
+        System.out.println("UNCHECKED " + f[0] + " " + f[3] + ": " + f[4]);
+        ok = false;
+        continue;
+      }
+      String cost = expected.get(f[0]);
+      if (cost != null && !normalizeCost(f[7]).equals(normalizeCost(cost))) {
+        System.out.println("NOT OPTIMAL " + f[0] + " " + f[3] + ": cost " + f[7] + ", "
+            + reference + " " + cost);
+        ok = false;
+      }
+    }
+    System.out.println("Compared " + rows.size() + " runs to " + reference + ": "
+        + (ok ? "ok" : "REGRESSION"));
+    return ok;
+  }
+
+  // BFS and DFID print the cost as a double
+  private static String normalizeCost(String cost) {
+    return cost.endsWith(".0") ? cost.substring(0, cost.length() - 2) : cost;
+  }
+
+  // Child JVM: solve one map, print one CSV row on stdout
+  private static void single(String mapFile, String algorithm) throws IOException {
+    MapLoader.Loaded map = MapLoader.load(Path.of(mapFile));
+    Board board = map.board;
+    Algorithm solver = Ex1.createSolver(algorithm, map.header[1], false);
+
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      pool.resetPeakUsage();
+    long startTime = System.nanoTime();
+    String result = solver.solve(board);
+    double timeSec = (System.nanoTime() - startTime) / 1e9;
+    long peak = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+      if (pool.getType() == MemoryType.HEAP)
+        peak += pool.getPeakUsage().getUsed();
+
+    String num = field(result, "Num: ");
+    String space = field(result, "Max space: ");
+    String cost = field(result, "Cost: ");
+    System.out.println(csvRow(Path.of(mapFile), board.getRows(), algorithm, "ok", num, space, cost,
+        String.format("%.4f", timeSec), String.valueOf(peak / (1024 * 1024))));
+  }
+
+  private static String runChild(Path map, int n, String algorithm, long timeoutSec, String xmx)
+      throws IOException, InterruptedException {
+    String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+    Process child = new ProcessBuilder(java, "-Xmx" + xmx, "-Xss512m", "-cp",
+        System.getProperty("java.class.path"), "PerfRunner", "--single", map.toString(), algorithm)
+        .redirectErrorStream(true).start();
+    if (!child.waitFor(timeoutSec, TimeUnit.SECONDS)) {
+      child.destroyForcibly().waitFor();
+      return csvRow(map, n, algorithm, "timeout", "", "", "", String.valueOf(timeoutSec), "");
+    }
+    String output = new String(child.getInputStream().readAllBytes());
+    for (String line : output.split("\n"))
+      if (line.startsWith(map.getFileName().toString() + ","))
+        return line.trim();
+    String status = output.contains("OutOfMemoryError") ? "oom"
+        : output.contains("StackOverflowError") ? "stackoverflow" : "error";
+    return csvRow(map, n, algorithm, status, "", "", "", "", "");
+  }
+
+  private static boolean compare(Path baselineFile, List<String> rows, double tolerance)
+      throws IOException {
+    Map<String, String[]> baseline = new HashMap<>();
+    for (String line : Files.readAllLines(baselineFile)) {
+      if (line.equals(HEADER))
+        continue;
+      String[] f = line.split(",", -1);
+      baseline.put(f[0] + "," + f[3], f);
+    }
+
+    boolean failed = false;
+    for (String row : rows) {
+      String[] now = row.split(",", -1);
+      String[] was = baseline.get(now[0] + "," + now[3]);
+      String name = now[0] + " " + now[3];
+      if (was == null) {
+        System.out.println("NEW      " + name);
+      } else if (!was[4].equals(now[4]) || !was[7].equals(now[7])) {
+        System.out.println("FAIL     " + name + ": status/cost " + was[4] + "/" + was[7] + " -> "
+            + now[4] + "/" + now[7]);
+        failed = true;
+      } else if (now[4].equals("ok")) {
+        if (!was[5].equals(now[5]) || !was[6].equals(now[6]))
+          System.out.println("CHANGED  " + name + ": num/max space " + was[5] + "/" + was[6]
+              + " -> " + now[5] + "/" + now[6]);
+        if (Double.parseDouble(now[8]) > Double.parseDouble(was[8]) * tolerance)
+          System.out.println("SLOWER   " + name + ": " + was[8] + "s -> " + now[8] + "s");
+      }
+    }
+    System.out.println("Compared " + rows.size() + " runs to " + baselineFile + ": "
+        + (failed ? "REGRESSION" : "ok"));
+    return failed;
+  }
+
+  private static String field(String result, String prefix) {
+    for (String line : result.split("\n"))
+      if (line.startsWith(prefix))
+        return line.substring(prefix.length()).trim();
+    return "";
+  }
+
+  private static String csvRow(Path map, int n, String algorithm, String status, String num,
+      String space, String cost, String time, String heap) {
+    return String.join(",", map.getFileName().toString(), String.valueOf(n), String.valueOf(n),
+        algorithm, status, num, space, cost, time, heap);
+  }
+}
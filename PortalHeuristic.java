@@ -0,0 +1,96 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Consistent lower bound on the cost to a target cell: Chebyshev distance to the target, or to a
+ * tunnel end plus the relaxed cost from that end, whichever is lower. Walking costs at least 1
+ * per Chebyshev step and a tunnel hop costs what its exit cell costs, so the bound never drops by
+ * more than a move costs. Unlike HeuristicTable it follows chains of tunnels, which incremental
+ * (LPAStar) and closed-list-free (FrontierSearch) searches need. O(tunnels) per lookup, over
+ * the tunnel ends that shorten the way to the target.
+ */
+public class PortalHeuristic implements Heuristic {
+
+  private static final int INF = Integer.MAX_VALUE;
+
+  private final int[] portalRow; // target and tunnel ends
+  private final int[] portalCol;
+  private final int[] portalCost; // relaxed cost from the portal to the target
+
+  public PortalHeuristic(Board board, int targetRow, int targetCol) {
+    List<int[]> tunnels = board.getAllTunnels();
+    int n = 1 + tunnels.size() * 2;
+    int[] portalRow = new int[n];
+    int[] portalCol = new int[n];
+    portalRow[0] = targetRow;
+    portalCol[0] = targetCol;
+    for (int i = 0; i < tunnels.size(); i++) {
+      int[] t = tunnels.get(i);
+      portalRow[1 + 2 * i] = t[0];
+      portalCol[1 + 2 * i] = t[1];
+      portalRow[2 + 2 * i] = t[2];
+      portalCol[2 + 2 * i] = t[3];
+    }
+    // Dijkstra towards the target over portals: walking costs at least 1 per Chebyshev step
+    int[] portalCost = new int[n];
+    Arrays.fill(portalCost, INF);
+    portalCost[0] = 0;
+    boolean[] done = new boolean[n];
+    for (int round = 0; round < n; round++) {
+      int v = -1;
+      for (int i = 0; i < n; i++)
+        if (!done[i] && portalCost[i] != INF && (v < 0 || portalCost[i] < portalCost[v]))
+          v = i;
+      if (v < 0)
+        break;
+      done[v] = true;
+      for (int i = 0; i < n; i++) {
+        int walk = portalCost[v] + chebyshev(portalRow[i], portalCol[i], portalRow[v], portalCol[v]);
+        int exit = board.getTunnelExitIndex(portalRow[i], portalCol[i]);
+        int jump = i > 0 && exit == portalRow[v] * board.getCols() + portalCol[v]
+            ? portalCost[v] + board.getPositionValue(portalRow[v], portalCol[v], Direction.Ent)
+            : INF;
+        portalCost[i] = Math.min(portalCost[i], Math.min(walk, jump));
+      }
+    }
+
+    // Keep the portals a lookup needs: one whose cost is no better than walking to another
+    // portal (an end no tunnel shortens the way from) never gives the minimum
+    int kept = 0;
+    for (int i = 0; i < n; i++) {
+      boolean needed = portalCost[i] != INF;
+      for (int j = 0; j < n && needed; j++) {
+        if (j != i && portalCost[j] != INF) {
+          int via = portalCost[j]
+              + chebyshev(portalRow[i], portalCol[i], portalRow[j], portalCol[j]);
+          needed = via > portalCost[i] || via == portalCost[i] && j > i; // j > i: same cell
+        }
+      }
+      if (needed) {
+        portalRow[kept] = portalRow[i];
+        portalCol[kept] = portalCol[i];
+        portalCost[kept++] = portalCost[i];
+      }
+    }
+    this.portalRow = Arrays.copyOf(portalRow, kept);
+    this.portalCol = Arrays.copyOf(portalCol, kept);
+    this.portalCost = Arrays.copyOf(portalCost, kept);
+  }
+
+  /** The bound from (r, c); supply does not change it. */
+  public int cost(int r, int c) {
+    int best = INF;
+    for (int i = 0; i < portalRow.length; i++)
+      best = Math.min(best, chebyshev(r, c, portalRow[i], portalCol[i]) + portalCost[i]);
+    return best;
+  }
+
+  @Override
+  public double get(int r, int c, boolean supply) {
+    return cost(r, c);
+  }
+
+  private static int chebyshev(int r1, int c1, int r2, int c2) {
+    return Math.max(Math.abs(r1 - r2), Math.abs(c1 - c2));
+  }
+}
@@ -0,0 +1,299 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Solve results by query, for callers that repeat queries (Ex1 runs, BatchSolver). The key is the
+ * board's content fingerprint (see {@link Board#getFingerprint()}), start, goal, the algorithm
+ * line and the order line, so a repeated query costs a hash lookup instead of a solve.
+ *
+ * <p>The memory tier keeps at most maxEntries results under W-TinyLFU eviction. New results enter
+ * a small LRU window (1%); one pushed out of the window joins the main LRU only if a count-min
+ * sketch of recent key frequencies says it is asked for more often than the main LRU's eviction
+ * victim, so a burst of one-off queries does not flush the hot ones. The optional disk tier keeps
+ * a file per result in a directory and is checked on a memory miss, so a new JVM starts warm; it
+ * is not bounded, delete the directory to reset it.
+ *
+ * <p>Callers asking for the same missing key at once wait for one solve. Engines whose output
+ * depends on timing ("... parallel", "A* anytime ms=N") are never cached. Enabled by
+ * -Dsearch.cache=N (entries in memory) and/or -Dsearch.cache.dir=dir (disk tier).
+ */
+public class ResultCache {
+
+  public static final int DEFAULT_ENTRIES = 10_000;
+
+  private final int windowMax;
+  private final int mainMax;
+  private final Path directory; // null without a disk tier
+  private final LinkedHashMap<String, String> window = new LinkedHashMap<>(16, 0.75f, true);
+  private final LinkedHashMap<String, String> main = new LinkedHashMap<>(16, 0.75f, true);
+  private final FrequencySketch sketch;
+  private final ConcurrentHashMap<String, CompletableFuture<String>> solving =
+      new ConcurrentHashMap<>();
+
+  // Statistics, guarded by this
+  private long hits, diskHits, misses, bypassed, evictions, diskErrors;
+
+  public ResultCache(int maxEntries, Path directory) {
+    if (maxEntries < 2)
+      throw new IllegalArgumentException("A cache needs at least 2 entries: " + maxEntries);
+    this.windowMax = Math.max(1, maxEntries / 100);
+    this.mainMax = maxEntries - windowMax;
+    this.sketch = new FrequencySketch(maxEntries);
+    this.directory = directory;
+    if (directory != null) {
+      try {
+        Files.createDirectories(directory);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Cannot create cache directory " + directory, e);
+      }
+    }
+  }
+
+  /** Cache configured by -Dsearch.cache and -Dsearch.cache.dir, or null if neither is set. */
+  public static ResultCache fromSystemProperty() {
+    String entries = System.getProperty("search.cache");
+    String dir = System.getProperty("search.cache.dir");
+    if (entries == null && dir == null)
+      return null;
+    return new ResultCache(entries == null ? DEFAULT_ENTRIES : Integer.parseInt(entries),
+        dir == null ? null : Path.of(dir));
+  }
+
+  /** The cached result of the query, or solver's result, which is then cached. */
+  public String solve(Board board, String algorithmLine, String orderLine, Supplier<String> solver) {
+    if (!isCacheable(algorithmLine)) {
+      synchronized (this) {
+        bypassed++;
+      }
+      return solver.get();
+    }
+    String key = key(board, algorithmLine, orderLine);
+    String result = lookup(key, true);
+    if (result != null)
+      return result;
+
+    CompletableFuture<String> mine = new CompletableFuture<>();
+    CompletableFuture<String> running = solving.putIfAbsent(key, mine);
+    if (running != null) {
+      result = running.join(); // same query in flight
+      synchronized (this) {
+        hits++;
+      }
+      return result;
+    }
+    try {
+      result = lookup(key, false); // stored while this thread was getting here
+      if (result == null) {
+        result = readDisk(key);
+        synchronized (this) {
+          if (result != null)
+            diskHits++;
+          else
+            misses++;
+        }
+        if (result == null) {
+          result = solver.get();
+          writeDisk(key, result);
+        }
+        synchronized (this) {
+          insert(key, result);
+        }
+      }
+      mine.complete(result);
+      return result;
+    } catch (RuntimeException | Error e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      solving.remove(key);
+    }
+  }
+
+  /** Results that are a function of the query alone. */
+  public static boolean isCacheable(String algorithmLine) {
+    for (String option : algorithmLine.trim().split("\\s+"))
+      if (option.equals("parallel") || option.startsWith("ms="))
+        return false;
+    return true;
+  }
+
+  // Fingerprint ; start ; goal ; algorithm with its options sorted, as Ex1 reads them as a set ;
+  // order line
+  static String key(Board board, String algorithmLine, String orderLine) {
+    String[] algorithm = algorithmLine.trim().split("\\s+");
+    Arrays.sort(algorithm, 1, algorithm.length);
+    return board.getFingerprint() + ";" + board.getStartRow() + "," + board.getStartCol() + ";"
+        + board.getGoalRow() + "," + board.getGoalCol() + ";" + String.join(" ", algorithm) + ";"
+        + String.join(" ", orderLine.trim().split("\\s+"));
+  }
+
+  // --- Memory tier (W-TinyLFU) ---
+
+  private synchronized String lookup(String key, boolean count) {
+    if (count)
+      sketch.increment(key);
+    String result = window.get(key);
+    if (result == null)
+      result = main.get(key);
+    if (result != null && count)
+      hits++;
+    return result;
+  }
+
+  private void insert(String key, String result) {
+    window.put(key, result);
+    if (window.size() <= windowMax)
+      return;
+    Map.Entry<String, String> candidate = eldest(window);
+    window.remove(candidate.getKey());
+    if (main.size() < mainMax) {
+      main.put(candidate.getKey(), candidate.getValue());
+      return;
+    }
+    // Admission: the more frequent of the window's evictee and the main LRU's victim stays
+    Map.Entry<String, String> victim = eldest(main);
+    evictions++;
+    if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey())) {
+      main.remove(victim.getKey());
+      main.put(candidate.getKey(), candidate.getValue());
+    }
+  }
+
+  private static Map.Entry<String, String> eldest(LinkedHashMap<String, String> map) {
+    return map.entrySet().iterator().next();
+  }
+
+  // --- Disk tier: one file per key, named by the key's SHA-256, holding the key and the result ---
+
+  private String readDisk(String key) {
+    if (directory == null)
+      return null;
+    Path file = file(key);
+    try {
+      String content = Files.readString(file, StandardCharsets.UTF_8);
+      int split = content.indexOf('\n');
+      return split >= 0 && content.substring(0, split).equals(key) ? content.substring(split + 1)
+          : null;
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      synchronized (this) {
+        diskErrors++;
+      }
+      return null;
+    }
+  }
+
+  private void writeDisk(String key, String result) {
+    if (directory == null)
+      return;
+    try {
+      // Written aside and renamed, so a reader never sees half a file
+      Path temp = Files.createTempFile(directory, "result", ".tmp");
+      Files.writeString(temp, key + "\n" + result, StandardCharsets.UTF_8);
+      Files.move(temp, file(key), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      synchronized (this) {
+        diskErrors++; // the result is still returned and kept in memory
+      }
+    }
+  }
+
+  private Path file(String key) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256")
+          .digest(key.getBytes(StandardCharsets.UTF_8));
+      return directory.resolve(HexFormat.of().formatHex(hash) + ".result");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required on every JVM", e);
+    }
+  }
+
+  // --- Statistics ---
+
+  public synchronized long hits() {
+    return hits;
+  }
+
+  public synchronized long diskHits() {
+    return diskHits;
+  }
+
+  public synchronized long misses() {
+    return misses;
+  }
+
+  public synchronized int size() {
+    return window.size() + main.size();
+  }
+
+  @Override
+  public synchronized String toString() {
+    long lookups = hits + diskHits + misses;
+    return String.format("Cache: %d hits, %d disk hits, %d misses (%.1f%% hit rate), %d not"
+        + " cacheable, %d evictions, %d entries%s", hits, diskHits, misses,
+        lookups == 0 ? 0.0 : 100.0 * (hits + diskHits) / lookups, bypassed, evictions,
+        window.size() + main.size(), diskErrors > 0 ? ", " + diskErrors + " disk errors" : "");
+  }
+
+  /**
+   * Count-min sketch of key frequencies: 4-bit counters (capped at 15) at four hashed slots,
+   * estimate = the smallest. Every counter is halved after 10 increments per cache entry, so
+   * the counts follow recent queries rather than all-time ones.
+   */
+  private static final class FrequencySketch {
+
+    private final byte[] counters;
+    private final int mask;
+    private final int resetAt;
+    private int additions = 0;
+
+    FrequencySketch(int maxEntries) {
+      int size = Integer.highestOneBit(Math.max(16, maxEntries * 4 - 1)) << 1;
+      this.counters = new byte[size];
+      this.mask = size - 1;
+      this.resetAt = 10 * maxEntries;
+    }
+
+    void increment(String key) {
+      long hash = spread(key);
+      for (int i = 0; i < 4; i++) {
+        int slot = slot(hash, i);
+        if (counters[slot] < 15)
+          counters[slot]++;
+      }
+      if (++additions == resetAt) {
+        for (int i = 0; i < counters.length; i++)
+          counters[i] >>= 1;
+        additions /= 2;
+      }
+    }
+
+    int frequency(String key) {
+      long hash = spread(key);
+      int min = 15;
+      for (int i = 0; i < 4; i++)
+        min = Math.min(min, counters[slot(hash, i)]);
+      return min;
+    }
+
+    private static long spread(String key) {
+      long h = key.hashCode() * 0x9E3779B97F4A7C15L;
+      return h ^ (h >>> 29);
+    }
+
+    // Double hashing: slot i = h1 + i * h2
+    private int slot(long hash, int i) {
+      return (int) (hash + i * ((hash >>> 32) | 1)) & mask;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/**
+ * The move graph walked backwards: for a state (r, c, supply) lists every state that reaches it
+ * in one forward move, with that move's direction and cost. Mirrors the forward rules - the cost
+ * is getPositionValue of the destination, '~' needs supply, stepping on '*' turns supply on for
+ * good, a tunnel jump costs the Ent price - and only yields states a forward search could stand
+ * on (no walls, no '~' or '*' without supply, never the goal, which is terminal). Shared by
+ * DistanceField and the bidirectional engines.
+ */
+public class ReverseMoves {
+
+  /** Receives one predecessor (prevRow, prevCol, prevSupply) --dir/cost--> current state. */
+  public interface Visitor {
+    void accept(int prevRow, int prevCol, boolean prevSupply, int cost, Direction dir);
+  }
+
+  private final Board board;
+  private final int rows;
+  private final int cols;
+  private final int[] tunnelCells; // every cell that has a tunnel exit, as r * cols + c
+
+  public ReverseMoves(Board board) {
+    this.board = board;
+    this.rows = board.getRows();
+    this.cols = board.getCols();
+
+    java.util.List<Integer> cells = new java.util.ArrayList<>();
+    for (int[] t : board.getAllTunnels()) {
+      for (int end = 0; end < 4; end += 2) {
+        int cell = t[end] * cols + t[end + 1];
+        if (!cells.contains(cell))
+          cells.add(cell);
+      }
+    }
+    this.tunnelCells = cells.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /** True if a forward search can ever stand on (r, c) with this supply flag. */
+  public boolean isValidState(int r, int c, boolean supply) {
+    char cell = board.getCell(r, c);
+    if (cell == '#')
+      return false;
+    return supply || (cell != '~' && cell != '*');
+  }
+
+  public void forEach(int r, int c, boolean supply, Direction[] dirs, Visitor visitor) {
+    if (!isValidState(r, c, supply))
+      return;
+    boolean onStation = board.isSupplyStation(r, c);
+
+    for (Direction dir : dirs) {
+      if (dir == Direction.Ent) {
+        if (!board.isTunnel(r, c))
+          continue;
+        int cost = board.getPositionValue(r, c, Direction.Ent);
+        int here = r * cols + c;
+        for (int from : tunnelCells) {
+          if (board.getTunnelExitIndex(from / cols, from % cols) == here)
+            visitor.accept(from / cols, from % cols, supply, cost, dir);
+        }
+        continue;
+      }
+      int pr = r - dir.dr;
+      int pc = c - dir.dc;
+      if (pr < 0 || pr >= rows || pc < 0 || pc >= cols || board.isGoal(pr, pc))
+        continue;
+      int cost = board.getPositionValue(r, c, dir);
+      // arriving without supply picks it up here
+      if (onStation && isValidState(pr, pc, false))
+        visitor.accept(pr, pc, false, cost, dir);
+      if (isValidState(pr, pc, supply))
+        visitor.accept(pr, pc, supply, cost, dir);
+    }
+  }
+}
@@ -0,0 +1,369 @@
+import java.util.*;
+
+/**
+ * Simplified memory-bounded A* ("A* sma"): A* that never holds more than a fixed number of nodes.
+ * When memory is full the worst leaf (highest f, shallowest) is forgotten and its f is backed up
+ * into its parent, which regenerates that child only once it is the most promising node again.
+ * Each node's f is kept at the lowest f below it, so nodes are still expanded in order of their
+ * best known bound and the goal is accepted when popped.
+ *
+ * <p>If the optimal path fits in the node budget it is found with an optimal Cost, since nodes are
+ * ordered by PortalHeuristic, a consistent lower bound also when tunnels chain; if no path fits,
+ * the result is "no path" rather than an OutOfMemoryError. Duplicates are pruned against the
+ * cheapest copy in memory and a transposition table of the same size, which still remembers
+ * states whose nodes were forgotten. "Num" counts generated nodes (regenerations included), "Max
+ * space" the most nodes held at once. Budgets far below what A* needs can take very long: the
+ * search keeps regenerating what it had to forget.
+ */
+public class SMAStar implements Algorithm {
+
+  public static final int DEFAULT_MAX_NODES = 1 << 20;
+
+  private static final int INF = Integer.MAX_VALUE;
+  private static final int NONE = -1;
+  private static final Direction[] DIRECTIONS = Direction.values();
+  private static final int MOVES = DIRECTIONS.length;
+
+  private final boolean clockwise;
+  private final int maxNodes;
+
+  // Search tree, one slot per node; freed slots are reused
+  private int[] row, col, g, f, depth, parent, firstChild, nextSibling;
+  private int[] forgotten; // backed-up f per node and move of a forgotten child, INF if none
+  private byte[] forgottenCount;
+  private byte[] move; // direction ordinal, -1 for the root
+  private boolean[] supply, expanded, inFrontier;
+  private int[] free;
+  private int freeCount, used, allocated;
+  private TreeSet<Integer> frontier; // expandable nodes by (f, larger g first, deeper first)
+  private LongIntMap best; // state -> its cheapest node in memory
+  private TranspositionTable seen; // cheapest g per state, kept after its node is forgotten
+  private int expanding = NONE;
+
+  private Board board;
+  private Heuristic heuristic;
+  private int generatedNodesCount = 0;
+  private int maxSpace = 0;
+  private SearchMetrics metrics = SearchMetrics.NONE;
+
+  public SMAStar(String order, int maxNodes) {
+    if (maxNodes < 2)
+      throw new IllegalArgumentException("SMA* needs room for at least 2 nodes: " + maxNodes);
+    this.clockwise = order.equalsIgnoreCase("clockwise");
+    this.maxNodes = maxNodes;
+  }
+
+  @Override
+  public void setMetrics(SearchMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public String solve(Board board) {
+    metrics.searchStarted("A* sma");
+    this.board = board;
+    this.heuristic = new PortalHeuristic(board, board.getGoalRow(), board.getGoalCol());
+    init(Math.min(maxNodes, 1024));
+    generatedNodesCount = 0;
+
+    int startRow = board.getStartRow();
+    int startCol = board.getStartCol();
+    boolean startSupply = board.isSupplyStation(startRow, startCol);
+    long startKey = State.key(startRow, startCol, startSupply);
+    int root = allocate();
+    set(root, startRow, startCol, startSupply, 0, h(startRow, startCol, startSupply), NONE, -1);
+    metrics.heuristicEvaluated();
+    best.put(startKey, root);
+    seen.store(startKey, 0);
+    setF(root, f[root]);
+
+    Direction[] dirs = clockwise ? Direction.CLOCKWISE : Direction.COUNTERCLOCKWISE;
+
+    while (!frontier.isEmpty()) {
+      int b = frontier.first();
+      if (f[b] == INF)
+        break; // every path left is longer than memory allows
+      if (board.isGoal(row[b], col[b]))
+        return returnResult(b);
+      long key = State.key(row[b], col[b], supply[b]);
+      int cheapest = best.get(key, NONE);
+      if (firstChild[b] == NONE && (cheapest != b && cheapest != NONE && g[cheapest] <= g[b]
+          || seen.hasCheaper(key, g[b]))) {
+        // A cheaper copy turned up after this one was generated: drop it for good
+        removeFromFrontier(b);
+        int p = parent[b];
+        release(b);
+        backup(p);
+        metrics.duplicatePruned();
+        continue;
+      }
+      expand(b, dirs);
+    }
+
+    metrics.searchFinished(false, 0);
+    return "no path" + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace + "\nCost: inf";
+  }
+
+  // The first expansion generates every successor, later ones regenerate the best forgotten child
+  // (regenerating all of them at once could have them forget each other forever)
+  private void expand(int b, Direction[] dirs) {
+    removeFromFrontier(b);
+    boolean regenerate = expanded[b];
+    int only = NONE;
+    if (regenerate) {
+      metrics.reopened();
+      for (Direction dir : dirs)
+        if (only == NONE || forgotten[b * MOVES + dir.ordinal()] < forgotten[b * MOVES + only])
+          only = dir.ordinal();
+    } else {
+      metrics.expanded();
+    }
+    expanded[b] = true;
+    expanding = b;
+
+    int parentRow = parent[b] == NONE ? -1 : row[parent[b]];
+    int parentCol = parent[b] == NONE ? -1 : col[parent[b]];
+    boolean parentSupply = parent[b] != NONE && supply[parent[b]];
+
+    for (Direction dir : dirs) {
+      if (regenerate && dir.ordinal() != only)
+        continue;
+      int backedUp = forgotten[b * MOVES + dir.ordinal()];
+      if (backedUp != INF) {
+        forgotten[b * MOVES + dir.ordinal()] = INF;
+        forgottenCount[b]--;
+      }
+      int newR, newC;
+      if (dir == Direction.Ent) {
+        int exit = board.isTunnel(row[b], col[b]) ? board.getTunnelExitIndex(row[b], col[b]) : -1;
+        if (exit < 0)
+          continue;
+        newR = exit / board.getCols();
+        newC = exit % board.getCols();
+      } else {
+        newR = row[b] + dir.dr;
+        newC = col[b] + dir.dc;
+      }
+      if (!board.isLegal(newR, newC, supply[b], parentRow, parentCol, parentSupply))
+        continue;
+      boolean newSupply = supply[b] || board.isSupplyStation(newR, newC);
+      int newG = g[b] + board.getPositionValue(newR, newC, dir);
+      generatedNodesCount++;
+      metrics.generated();
+
+      long key = State.key(newR, newC, newSupply);
+      int existing = best.get(key, NONE);
+      if (existing != NONE && g[existing] <= newG || seen.hasCheaper(key, newG)) {
+        metrics.duplicatePruned();
+        continue;
+      }
+      int newH = board.isGoal(newR, newC) ? 0 : h(newR, newC, newSupply);
+      metrics.heuristicEvaluated();
+      int s = allocate();
+      if (s == NONE)
+        continue; // no leaf left to forget: this branch does not fit
+      int newF = Math.max(Math.max(f[b], newG + newH), backedUp == INF ? 0 : backedUp);
+      set(s, newR, newC, newSupply, newG, newF, b, dir.ordinal());
+      nextSibling[s] = firstChild[b];
+      firstChild[b] = s;
+      best.put(key, s);
+      seen.store(key, newG);
+      setF(s, f[s]);
+    }
+
+    expanding = NONE;
+    backup(b);
+    metrics.frontier(frontier.size(), used - frontier.size());
+  }
+
+  // Recomputes an expanded node's f from its children and forgotten children, up the tree while
+  // it changes; a node left with neither is a dead end and is dropped
+  private void backup(int n) {
+    while (n != NONE) {
+      int m = INF;
+      for (int c = firstChild[n]; c != NONE; c = nextSibling[c])
+        m = Math.min(m, f[c]);
+      for (int d = 0; d < MOVES; d++)
+        m = Math.min(m, forgotten[n * MOVES + d]);
+      if (m == INF && parent[n] != NONE) {
+        int p = parent[n];
+        removeFromFrontier(n);
+        release(n);
+        n = p;
+        continue;
+      }
+      boolean changed = m != f[n];
+      setF(n, m);
+      if (!changed)
+        return;
+      n = parent[n];
+    }
+  }
+
+  // --- Memory ---
+
+  private void init(int capacity) {
+    row = new int[capacity];
+    col = new int[capacity];
+    g = new int[capacity];
+    f = new int[capacity];
+    depth = new int[capacity];
+    parent = new int[capacity];
+    firstChild = new int[capacity];
+    nextSibling = new int[capacity];
+    forgotten = new int[capacity * MOVES];
+    forgottenCount = new byte[capacity];
+    move = new byte[capacity];
+    supply = new boolean[capacity];
+    expanded = new boolean[capacity];
+    inFrontier = new boolean[capacity];
+    free = new int[capacity];
+    freeCount = 0;
+    used = 0;
+    allocated = 0;
+    best = new LongIntMap();
+    seen = new TranspositionTable(maxNodes);
+    frontier = new TreeSet<>((a, b) -> f[a] != f[b] ? Integer.compare(f[a], f[b])
+        : g[a] != g[b] ? Integer.compare(g[b], g[a])
+        : depth[a] != depth[b] ? Integer.compare(depth[b], depth[a]) : Integer.compare(a, b));
+    maxSpace = 0;
+  }
+
+  // A free slot, forgetting the worst leaf when memory is full; NONE if there is no leaf to forget
+  private int allocate() {
+    if (freeCount == 0 && allocated == maxNodes && !forgetWorstLeaf())
+      return NONE;
+    int id;
+    if (freeCount > 0) {
+      id = free[--freeCount];
+    } else {
+      if (allocated == row.length)
+        grow((int) Math.min(maxNodes, 2L * row.length));
+      id = allocated++;
+    }
+    used++;
+    maxSpace = Math.max(maxSpace, used);
+    return id;
+  }
+
+  private boolean forgetWorstLeaf() {
+    Iterator<Integer> it = frontier.descendingIterator();
+    while (it.hasNext()) {
+      int leaf = it.next();
+      if (firstChild[leaf] != NONE || parent[leaf] == NONE)
+        continue;
+      int p = parent[leaf];
+      it.remove();
+      inFrontier[leaf] = false;
+      forgotten[p * MOVES + move[leaf]] = f[leaf];
+      forgottenCount[p]++;
+      release(leaf);
+      if (p != expanding)
+        setF(p, f[p]); // back in the frontier to regenerate the forgotten child
+      return true;
+    }
+    return false;
+  }
+
+  // Unlinks a leaf from its parent and the state map, and frees its slot
+  private void release(int n) {
+    int p = parent[n];
+    if (firstChild[p] == n) {
+      firstChild[p] = nextSibling[n];
+    } else {
+      int c = firstChild[p];
+      while (nextSibling[c] != n)
+        c = nextSibling[c];
+      nextSibling[c] = nextSibling[n];
+    }
+    long key = State.key(row[n], col[n], supply[n]);
+    if (best.get(key, NONE) == n)
+      best.remove(key);
+    free[freeCount++] = n;
+    used--;
+  }
+
+  private void grow(int capacity) {
+    row = Arrays.copyOf(row, capacity);
+    col = Arrays.copyOf(col, capacity);
+    g = Arrays.copyOf(g, capacity);
+    f = Arrays.copyOf(f, capacity);
+    depth = Arrays.copyOf(depth, capacity);
+    parent = Arrays.copyOf(parent, capacity);
+    firstChild = Arrays.copyOf(firstChild, capacity);
+    nextSibling = Arrays.copyOf(nextSibling, capacity);
+    forgotten = Arrays.copyOf(forgotten, capacity * MOVES);
+    forgottenCount = Arrays.copyOf(forgottenCount, capacity);
+    move = Arrays.copyOf(move, capacity);
+    supply = Arrays.copyOf(supply, capacity);
+    expanded = Arrays.copyOf(expanded, capacity);
+    inFrontier = Arrays.copyOf(inFrontier, capacity);
+    free = Arrays.copyOf(free, capacity);
+  }
+
+  private void set(int n, int r, int c, boolean s, int gValue, int fValue, int p, int dir) {
+    row[n] = r;
+    col[n] = c;
+    supply[n] = s;
+    g[n] = gValue;
+    f[n] = fValue;
+    parent[n] = p;
+    depth[n] = p == NONE ? 0 : depth[p] + 1;
+    move[n] = (byte) dir;
+    firstChild[n] = NONE;
+    nextSibling[n] = NONE;
+    Arrays.fill(forgotten, n * MOVES, (n + 1) * MOVES, INF);
+    forgottenCount[n] = 0;
+    expanded[n] = false;
+    inFrontier[n] = false;
+  }
+
+  // --- Frontier: unexpanded nodes and nodes with forgotten children ---
+
+  private void setF(int n, int value) {
+    removeFromFrontier(n);
+    f[n] = value;
+    if (!expanded[n] || forgottenCount[n] > 0) {
+      frontier.add(n);
+      inFrontier[n] = true;
+    }
+  }
+
+  private void removeFromFrontier(int n) {
+    if (inFrontier[n]) {
+      frontier.remove(n);
+      inFrontier[n] = false;
+    }
+  }
+
+  private int h(int r, int c, boolean s) {
+    return (int) heuristic.get(r, c, s);
+  }
+
+  private String returnResult(int goal) {
+    metrics.searchFinished(true, g[goal]);
+    Deque<String> moves = new ArrayDeque<>();
+    for (int n = goal; parent[n] != NONE; n = parent[n])
+      moves.push(DIRECTIONS[move[n]].name());
+    return String.join("-", moves) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + g[goal];
+  }
+
+  @Override
+  public String returnResult(State next) {
+    return buildPath(next) + "\nNum: " + generatedNodesCount + "\nMax space: " + maxSpace
+        + "\nCost: " + (int) next.getG();
+  }
+
+  @Override
+  public String buildPath(State goal) {
+    List<String> moves = new ArrayList<>();
+    State curr = goal;
+    while (curr.parent != null) {
+      moves.add(curr.move);
+      curr = curr.parent;
+    }
+    Collections.reverse(moves);
+    return String.join("-", moves);
+  }
+}
@@ -0,0 +1,62 @@
+/**
+ * Event sink every engine reports its search into: expansions, generations, pruned duplicates,
+ * reopenings, heuristic evaluations, frontier sizes and DFID/IDA* iterations. The engines' own
+ * counters (Num, Max space) are unchanged; this is for diagnosing slow queries.
+ *
+ * <p>Every method defaults to a no-op and engines start with {@link #NONE}, so while metrics are
+ * off each call site only ever sees that one class and the JIT inlines the calls away.
+ * Implementations, selected with {@link #create(String)} (Ex1 and BatchSolver read the
+ * "search.metrics" system property, e.g. -Dsearch.metrics=jfr):
+ * <ul>
+ * <li>"none" - NONE
+ * <li>"counting" - CountingMetrics, totals, iterations and sampled frontier sizes as a report
+ * <li>"jfr" - JfrMetrics, the same plus Flight Recorder events per search, iteration and sample
+ * </ul>
+ * Engines that run several threads (ParallelAStar) call in from all of them.
+ */
+public interface SearchMetrics {
+
+  SearchMetrics NONE = new SearchMetrics() {};
+
+  default void searchStarted(String engine) {}
+
+  /** A node was taken off the frontier and its successors generated. */
+  default void expanded() {}
+
+  default void generated() {}
+
+  /** A generated node was dropped because its state was already reached at least as cheaply. */
+  default void duplicatePruned() {}
+
+  /** A state already reached was queued again with a cheaper g. */
+  default void reopened() {}
+
+  default void heuristicEvaluated() {}
+
+  /** Current frontier (open list, queue or stack) and closed/visited sizes, once per expansion. */
+  default void frontier(int open, int closed) {}
+
+  /** A DFID/IDA* iteration starts (iteration numbers from 1) with the given depth/f bound. */
+  default void iteration(int iteration, double threshold) {}
+
+  /** cost is ignored when found is false. */
+  default void searchFinished(boolean found, double cost) {}
+
+  /** Metrics named by the "search.metrics" system property, NONE if it is not set. */
+  static SearchMetrics fromSystemProperty() {
+    return create(System.getProperty("search.metrics", "none"));
+  }
+
+  static SearchMetrics create(String type) {
+    switch (type) {
+      case "none":
+        return NONE;
+      case "counting":
+        return new CountingMetrics();
+      case "jfr":
+        return new JfrMetrics();
+      default:
+        throw new IllegalArgumentException("Unknown metrics: " + type);
+    }
+  }
+}
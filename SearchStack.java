@@ -0,0 +1,73 @@
+import java.util.*;
+
+/**
+ * Array-backed DFS stack for IDAStar and DFBnB. Entries remember their slot, so removing a
+ * superseded state from the middle is O(1): it leaves a null hole that pop() skips.
+ */
+public class SearchStack {
+
+  /** Stack slot of a state, plus the "out" mark (state is on the current path). */
+  public static final class Entry {
+    public final State state;
+    public boolean out = false;
+    int index = -1;
+
+    public Entry(State state) {
+      this.state = state;
+    }
+  }
+
+  private Entry[] items = new Entry[64];
+  private int top = 0; // slots in use, including holes
+  private int live = 0;
+
+  public void push(Entry e) {
+    if (top == items.length)
+      items = Arrays.copyOf(items, top << 1);
+    e.index = top;
+    items[top++] = e;
+    live++;
+  }
+
+  public Entry pop() {
+    while (items[top - 1] == null)
+      top--;
+    Entry e = items[--top];
+    items[top] = null;
+    live--;
+    return e;
+  }
+
+  public void remove(Entry e) {
+    items[e.index] = null;
+    live--;
+  }
+
+  /** True if e was pushed onto this stack and is still in it. */
+  public boolean contains(Entry e) {
+    return e.index >= 0 && e.index < top && items[e.index] == e;
+  }
+
+  public boolean isEmpty() {
+    return live == 0;
+  }
+
+  public int size() {
+    return live;
+  }
+
+  public void clear() {
+    Arrays.fill(items, 0, top, null);
+    top = 0;
+    live = 0;
+  }
+
+  @Override
+  public String toString() {
+    StringJoiner sj = new StringJoiner(", ", "[", "]");
+    for (int i = 0; i < top; i++)
+      if (items[i] != null)
+        sj.add(items[i].state.toString());
+    return sj.toString();
+  }
+}
@@ -0,0 +1,171 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+/**
+ * A run of fixed-size search records on local disk (ExternalSearch). Written once front to back,
+ * then memory-mapped read-only in 1 GB chunks, like CellGrid, for merges and binary searches. A
+ * record is a packed State key, its parent's key, the sequence number of the move that generated
+ * it, g and the move's direction. The file is unlinked as soon as it is mapped, so its disk space
+ * goes with the mapping and a crashed search leaves nothing behind. Runs smaller than the write
+ * buffer stay on the heap, so small searches and small spills cost no files or mappings.
+ */
+public class SpillFile {
+
+  public static final int RECORD_BYTES = 32;
+  public static final int NO_MOVE = -1;
+
+  private static final int CHUNK_BITS = 30;
+  private static final int RECORD_BITS = 5; // log2(RECORD_BYTES), records never straddle chunks
+  private static final int CHUNK_RECORDS_MASK = (1 << (CHUNK_BITS - RECORD_BITS)) - 1;
+
+  private final ByteBuffer[] chunks;
+  private final long size;
+
+  private SpillFile(ByteBuffer[] chunks, long size) {
+    this.chunks = chunks;
+    this.size = size;
+  }
+
+  /** Number of records. */
+  public long size() {
+    return size;
+  }
+
+  public long key(long i) {
+    return chunk(i).getLong(offset(i));
+  }
+
+  public long parent(long i) {
+    return chunk(i).getLong(offset(i) + 8);
+  }
+
+  public long seq(long i) {
+    return chunk(i).getLong(offset(i) + 16);
+  }
+
+  public int g(long i) {
+    return chunk(i).getInt(offset(i) + 24);
+  }
+
+  public int move(long i) {
+    return chunk(i).getInt(offset(i) + 28);
+  }
+
+  /**
+   * First index at or after from whose key is at least key, in a run sorted by key. Gallops from
+   * from, so a sorted sweep of m keys over n records costs O(m log(n / m)) record reads.
+   */
+  public long seek(long from, long key) {
+    if (from >= size || key(from) >= key)
+      return from;
+    long lo = from; // key(lo) < key
+    long step = 1;
+    while (lo + step < size && key(lo + step) < key) {
+      lo += step;
+      step <<= 1;
+    }
+    long hi = Math.min(lo + step, size); // key(hi) >= key, or hi == size
+    while (hi - lo > 1) {
+      long mid = (lo + hi) >>> 1;
+      if (key(mid) < key)
+        lo = mid;
+      else
+        hi = mid;
+    }
+    return hi;
+  }
+
+  /** Index of the record with this key in a run sorted by key, or -1. */
+  public long find(long key) {
+    long i = seek(0, key);
+    return i < size && key(i) == key ? i : -1;
+  }
+
+  private ByteBuffer chunk(long i) {
+    return chunks[(int) (i >>> (CHUNK_BITS - RECORD_BITS))];
+  }
+
+  private static int offset(long i) {
+    return (int) (i & CHUNK_RECORDS_MASK) << RECORD_BITS;
+  }
+
+  /**
+   * Appends records to a new temporary file in a directory; finish() maps it. A run that fits in
+   * the 1 MB write buffer never touches the disk, it stays on the heap.
+   */
+  public static final class Writer {
+
+    private final Path directory;
+    private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20);
+    private Path file; // created by the first flush
+    private FileChannel channel;
+    private long size = 0;
+
+    public Writer(Path directory) {
+      this.directory = directory;
+    }
+
+    /** Records appended so far, which is also the index of the next one. */
+    public long size() {
+      return size;
+    }
+
+    public void append(long key, long parent, long seq, int g, int move) {
+      if (!buffer.hasRemaining())
+        flush();
+      buffer.putLong(key).putLong(parent).putLong(seq).putInt(g).putInt(move);
+      size++;
+    }
+
+    /** Copies record i of another run. */
+    public void append(SpillFile run, long i) {
+      append(run.key(i), run.parent(i), run.seq(i), run.g(i), run.move(i));
+    }
+
+    public SpillFile finish() {
+      if (channel == null)
+        return new SpillFile(new ByteBuffer[] {ByteBuffer.wrap(
+            Arrays.copyOf(buffer.array(), buffer.position()))}, size);
+      try {
+        flush();
+        long bytes = size * RECORD_BYTES;
+        ByteBuffer[] chunks = new ByteBuffer[(int) ((bytes + (1L << CHUNK_BITS) - 1)
+            >>> CHUNK_BITS)];
+        for (int i = 0; i < chunks.length; i++) {
+          long start = (long) i << CHUNK_BITS;
+          chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+              Math.min(bytes - start, 1L << CHUNK_BITS));
+        }
+        return new SpillFile(chunks, size);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Writing spill file " + file + " failed", e);
+      } finally {
+        try {
+          channel.close();
+          Files.deleteIfExists(file); // the mapping keeps the data
+        } catch (IOException e) {
+          // Nothing to do: a leftover temp file is harmless
+        }
+      }
+    }
+
+    private void flush() {
+      try {
+        if (channel == null) {
+          file = Files.createTempFile(directory, "search", ".run");
+          channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining())
+          channel.write(buffer);
+      } catch (IOException e) {
+        throw new UncheckedIOException("Writing spill file in " + directory + " failed", e);
+      }
+      buffer.clear();
+    }
+  }
+}
@@ -28,7 +28,7 @@ public class State {
             this.SupplyStation = true;
             // System.out.println("Supply station acquired at: " + row + "," + col);
         }
-        if (board == null || (board.getGoal().row == row && board.getGoal().col == col)) {
+        if (board == null || board.isGoal(row, col)) {
             this.onGoal = true;
         }
     }
@@ -66,6 +66,33 @@ public class State {
         return row + "," + col + "," + SupplyStation;
     }
 
+    // Packed primitive form of getId(): row in the high 32 bits, col and the supply bit below.
+    // Used as the key of LongSet/LongDoubleMap so lookups don't build a String per node.
+    public long getKey() {
+        return key(row, col, SupplyStation);
+    }
+
+    public static long key(int row, int col, boolean supplyStation) {
+        return ((long) row << 32) | ((long) col << 1) | (supplyStation ? 1 : 0);
+    }
+
+    public static int keyRow(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int keyCol(long key) {
+        return (int) (key & 0xFFFFFFFFL) >>> 1;
+    }
+
+    public static boolean keySupply(long key) {
+        return (key & 1) != 0;
+    }
+
+    // Same text as getId() for a packed key, for the "with open" printouts.
+    public static String keyToId(long key) {
+        return keyRow(key) + "," + keyCol(key) + "," + keySupply(key);
+    }
+
     @Override
     public String toString() {
         // Helpful for the "with open" printout requirements
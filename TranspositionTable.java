@@ -0,0 +1,37 @@
+import java.util.Arrays;
+
+/**
+ * Fixed-size, direct-mapped table of the cheapest g seen per state key. IDAStar keeps it across
+ * threshold iterations to prune states already reached more cheaply. Each key hashes to one slot;
+ * a colliding key simply overwrites it, so memory stays bounded and a lost entry only costs
+ * pruning, never correctness.
+ */
+public class TranspositionTable {
+
+  private final long[] keys;
+  private final double[] g;
+  private final int mask;
+
+  public TranspositionTable(int capacity) {
+    int cap = Integer.highestOneBit(Math.max(16, capacity));
+    this.keys = new long[cap];
+    this.g = new double[cap];
+    this.mask = cap - 1;
+    Arrays.fill(keys, LongSet.EMPTY);
+  }
+
+  /** True if the state was already reached with a strictly smaller g. */
+  public boolean hasCheaper(long key, double newG) {
+    int i = LongSet.mix(key) & mask;
+    return keys[i] == key && g[i] < newG;
+  }
+
+  /** Records newG for the key unless the slot already holds a cheaper g for the same key. */
+  public void store(long key, double newG) {
+    int i = LongSet.mix(key) & mask;
+    if (keys[i] != key || newG < g[i]) {
+      keys[i] = key;
+      g[i] = newG;
+    }
+  }
+}
@@ -6,14 +6,6 @@ public class TunnelManager {
     }
 
     public int[] getTunnelExit(int row, int col) {
-        for (int r = 0; r < board.getRows(); r++) {
-            for (int c = 0; c < board.getCols(); c++) {
-                if (board.getCell(row, col) == board.getCell(r, c) && (r != row || c != col)) { // found matching tunnel
-                                                                                                // exit(but not itself)
-                    return new int[] { r, c };
-                }
-            }
-        }
-        return null; // no exit found
+        return board.getTunnelExit(row, col); // O(1) lookup in the board's precomputed partner table
     }
 }